@@ -1,34 +1,62 @@
 package com.swiftype.api.easy;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 
-import com.swiftype.api.easy.helper.Client;
+import com.swiftype.api.easy.helper.SwiftypeClient;
+import com.swiftype.api.easy.helper.SwiftypeConfig;
 
 /**
  * Provides access to the @see <a href="https://swiftype.com/documentation/analytics">Analytics API</a>
  *
  */
 public class AnalyticsApi {
-	private static final SimpleDateFormat DATE_FORMATER = new SimpleDateFormat("yyyy-MM-dd");
+	/**
+	 * Days are sent and received as "yyyy-MM-dd", single digit months and days are accepted as well, days
+	 * which don't exist are rejected. The formatter is immutable, so concurrent calls don't have to share
+	 * or lock a SimpleDateFormat.
+	 */
+	private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("uuuu-M-d").withResolverStyle(ResolverStyle.STRICT);
 
+	private final SwiftypeClient client;
 	private final String analyticsPath;
 
 	public AnalyticsApi(final String engineId) {
-		analyticsPath = EnginesApi.enginePath(engineId) + "/analytics";
+		this(null, engineId);
+	}
+
+	/**
+	 * @param client	Client sending the requests, null uses the client configured in {@link SwiftypeConfig}
+	 * @param engineId	Slug or id of the engine
+	 */
+	public AnalyticsApi(final SwiftypeClient client, final String engineId) {
+		this.client = client;
+		this.analyticsPath = EnginesApi.enginePath(engineId) + "/analytics";
 	}
 
 	/**
 	 * @return 		List of searches per day
 	 */
 	public List<DateCount> searches() {
-		return toDateCountList(Client.get(analyticsPath + "/searches"));
+		return toDateCountList(client().get(analyticsPath + "/searches"));
+	}
+
+	/**
+	 * @return		Future of {@link #searches()}
+	 */
+	public CompletableFuture<List<DateCount>> searchesAsync() {
+		return client().async(() -> searches());
 	}
 
 	/**
@@ -37,7 +65,16 @@ public class AnalyticsApi {
 	 * @return		List of searches per day
 	 */
 	public List<DateCount> searches(final Date from, final Date to) {
-		return toDateCountList(Client.get(analyticsPath + "/searches", queryRange(from, to)));
+		return toDateCountList(client().get(analyticsPath + "/searches", queryRange(from, to)));
+	}
+
+	/**
+	 * @param from	First day
+	 * @param to	Last day
+	 * @return		Future of {@link #searches(Date, Date)}
+	 */
+	public CompletableFuture<List<DateCount>> searchesAsync(final Date from, final Date to) {
+		return client().async(() -> searches(from, to));
 	}
 
 	/**
@@ -46,18 +83,30 @@ public class AnalyticsApi {
 	 * @return		List of searches per day
 	 */
 	public List<DateCount> searches(final String from, final String to) {
-		try {
-			return searches(DATE_FORMATER.parse(from), DATE_FORMATER.parse(to));
-		} catch (ParseException e) {
-			throw new IllegalArgumentException(e.getMessage());
-		}
+		return toDateCountList(client().get(analyticsPath + "/searches", queryRange(parseDay(from), parseDay(to))));
+	}
+
+	/**
+	 * @param from	First day as "yyyy-MM-dd"
+	 * @param to	Last day as "yyyy-MM-dd"
+	 * @return		Future of {@link #searches(String, String)}
+	 */
+	public CompletableFuture<List<DateCount>> searchesAsync(final String from, final String to) {
+		return client().async(() -> searches(from, to));
 	}
 
 	/**
 	 * @return		List of clicks on autocomplete results per day
 	 */
 	public List<DateCount> autoselects() {
-		return toDateCountList(Client.get(analyticsPath + "/autoselects"));
+		return toDateCountList(client().get(analyticsPath + "/autoselects"));
+	}
+
+	/**
+	 * @return		Future of {@link #autoselects()}
+	 */
+	public CompletableFuture<List<DateCount>> autoselectsAsync() {
+		return client().async(() -> autoselects());
 	}
 
 	/**
@@ -66,7 +115,16 @@ public class AnalyticsApi {
 	 * @return		List of clicks on autocomplete results per day
 	 */
 	public List<DateCount> autoselects(final Date from, final Date to) {
-		return toDateCountList(Client.get(analyticsPath + "/autoselects", queryRange(from, to)));
+		return toDateCountList(client().get(analyticsPath + "/autoselects", queryRange(from, to)));
+	}
+
+	/**
+	 * @param from	First day
+	 * @param to	Last day
+	 * @return		Future of {@link #autoselects(Date, Date)}
+	 */
+	public CompletableFuture<List<DateCount>> autoselectsAsync(final Date from, final Date to) {
+		return client().async(() -> autoselects(from, to));
 	}
 
 	/**
@@ -75,18 +133,30 @@ public class AnalyticsApi {
 	 * @return		List of clicks on autocomplete results per day
 	 */
 	public List<DateCount> autoselects(final String from, final String to) {
-		try {
-			return autoselects(DATE_FORMATER.parse(from), DATE_FORMATER.parse(to));
-		} catch (ParseException e) {
-			throw new IllegalArgumentException(e.getMessage());
-		}
+		return toDateCountList(client().get(analyticsPath + "/autoselects", queryRange(parseDay(from), parseDay(to))));
+	}
+
+	/**
+	 * @param from	First day as "yyyy-MM-dd"
+	 * @param to	Last day as "yyyy-MM-dd"
+	 * @return		Future of {@link #autoselects(String, String)}
+	 */
+	public CompletableFuture<List<DateCount>> autoselectsAsync(final String from, final String to) {
+		return client().async(() -> autoselects(from, to));
 	}
 
 	/**
 	 * @return		List of top queries with counts
 	 */
 	public List<QueryCount> topQueries() {
-			return toQueryCountList(Client.get(analyticsPath + "/top_queries"));
+			return toQueryCountList(client().get(analyticsPath + "/top_queries"));
+	}
+
+	/**
+	 * @return		Future of {@link #topQueries()}
+	 */
+	public CompletableFuture<List<QueryCount>> topQueriesAsync() {
+		return client().async(() -> topQueries());
 	}
 
 	/**
@@ -97,7 +167,16 @@ public class AnalyticsApi {
 	public List<QueryCount> topQueries(final int page, final int perPage) {
 		final String[] pageParam = {"page", Integer.toString(page)};
 		final String[] perPageParam = {"per_page", Integer.toString(perPage)};
-		return toQueryCountList(Client.get(analyticsPath + "/top_queries", pageParam, perPageParam));
+		return toQueryCountList(client().get(analyticsPath + "/top_queries", pageParam, perPageParam));
+	}
+
+	/**
+	 * @param page		Page you want to see
+	 * @param perPage	Results per page
+	 * @return			Future of {@link #topQueries(int, int)}
+	 */
+	public CompletableFuture<List<QueryCount>> topQueriesAsync(final int page, final int perPage) {
+		return client().async(() -> topQueries(page, perPage));
 	}
 
 	/**
@@ -106,7 +185,16 @@ public class AnalyticsApi {
 	 * @return			Top 10 queries between start and last day
 	 */
 	public List<QueryCount> topQueries(final Date from, final Date to) {
-		return toQueryCountList(Client.get(analyticsPath + "/top_queries_in_range", queryRange(from, to)));
+		return toQueryCountList(client().get(analyticsPath + "/top_queries_in_range", queryRange(from, to)));
+	}
+
+	/**
+	 * @param from	First day
+	 * @param to	Last day
+	 * @return		Future of {@link #topQueries(Date, Date)}
+	 */
+	public CompletableFuture<List<QueryCount>> topQueriesAsync(final Date from, final Date to) {
+		return client().async(() -> topQueries(from, to));
 	}
 
 	/**
@@ -115,18 +203,30 @@ public class AnalyticsApi {
 	 * @return			Top 10 queries between start and last day
 	 */
 	public List<QueryCount> topQueries(final String from, final String to) {
-		try {
-			return topQueries(DATE_FORMATER.parse(from), DATE_FORMATER.parse(to));
-		} catch (ParseException e) {
-			throw new IllegalArgumentException(e.getMessage());
-		}
+		return toQueryCountList(client().get(analyticsPath + "/top_queries_in_range", queryRange(parseDay(from), parseDay(to))));
+	}
+
+	/**
+	 * @param from	First day as "yyyy-MM-dd"
+	 * @param to	Last day as "yyyy-MM-dd"
+	 * @return		Future of {@link #topQueries(String, String)}
+	 */
+	public CompletableFuture<List<QueryCount>> topQueriesAsync(final String from, final String to) {
+		return client().async(() -> topQueries(from, to));
 	}
 
 	/**
 	 * @return		Top queries with no results in the last 14 days
 	 */
 	public List<QueryCount> topNoResultQueries() {
-		return toQueryCountList(Client.get(analyticsPath + "/top_no_result_queries_in_range"));
+		return toQueryCountList(client().get(analyticsPath + "/top_no_result_queries_in_range"));
+	}
+
+	/**
+	 * @return		Future of {@link #topNoResultQueries()}
+	 */
+	public CompletableFuture<List<QueryCount>> topNoResultQueriesAsync() {
+		return client().async(() -> topNoResultQueries());
 	}
 
 	/**
@@ -135,7 +235,16 @@ public class AnalyticsApi {
 	 * @return			Top queries with no result between start and last day
 	 */
 	public List<QueryCount> topNoResultQueries(final Date from, final Date to) {
-		return toQueryCountList(Client.get(analyticsPath + "/top_no_result_queries_in_range", queryRange(from, to)));
+		return toQueryCountList(client().get(analyticsPath + "/top_no_result_queries_in_range", queryRange(from, to)));
+	}
+
+	/**
+	 * @param from	First day
+	 * @param to	Last day
+	 * @return		Future of {@link #topNoResultQueries(Date, Date)}
+	 */
+	public CompletableFuture<List<QueryCount>> topNoResultQueriesAsync(final Date from, final Date to) {
+		return client().async(() -> topNoResultQueries(from, to));
 	}
 
 	/**
@@ -144,40 +253,74 @@ public class AnalyticsApi {
 	 * @return			Top queries with no result between start and last day
 	 */
 	public List<QueryCount> topNoResultQueries(final String from, final String to) {
+		return toQueryCountList(client().get(analyticsPath + "/top_no_result_queries_in_range", queryRange(parseDay(from), parseDay(to))));
+	}
+
+	/**
+	 * @param from	First day as "yyyy-MM-dd"
+	 * @param to	Last day as "yyyy-MM-dd"
+	 * @return		Future of {@link #topNoResultQueries(String, String)}
+	 */
+	public CompletableFuture<List<QueryCount>> topNoResultQueriesAsync(final String from, final String to) {
+		return client().async(() -> topNoResultQueries(from, to));
+	}
+
+	private String[][] queryRange(final Date from, final Date to) {
+		return queryRange(toDay(from), toDay(to));
+	}
+
+	private String[][] queryRange(final LocalDate from, final LocalDate to) {
+		final String[] fromDate = {"start_date", from.toString()};
+		final String[] toDate = {"end_date", to.toString()};
+		return new String[][] {fromDate, toDate};
+	}
+
+	/**
+	 * @throws IllegalArgumentException	If the day isn't given as "yyyy-MM-dd"
+	 */
+	private static LocalDate parseDay(final String day) {
 		try {
-			return topNoResultQueries(DATE_FORMATER.parse(from), DATE_FORMATER.parse(to));
-		} catch (ParseException e) {
+			return LocalDate.parse(day, DAY_FORMAT);
+		} catch (DateTimeParseException e) {
 			throw new IllegalArgumentException(e.getMessage());
 		}
 	}
 
-	private String[][] queryRange(final Date from, final Date to) {
-		final String[] fromDate = {"start_date", DATE_FORMATER.format(from)};
-		final String[] toDate = {"end_date", DATE_FORMATER.format(to)};
-		return new String[][] {fromDate, toDate};
+	/**
+	 * @return	Day of the date in the default time zone, as the date was formatted before
+	 */
+	private static LocalDate toDay(final Date date) {
+		return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+	}
+
+	/**
+	 * @return	Start of the day in the default time zone
+	 */
+	private static Date toDate(final LocalDate day) {
+		return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
 	}
 
 	private List<DateCount> toDateCountList(final String response) {
 		try {
-			final JSONArray dateCountsJson = new JSONArray(response);
+			final JSONArray dateCountsJson = client().getJsonCodec().readArray(response);
 			final List<DateCount> dateCounts = new ArrayList<AnalyticsApi.DateCount>(dateCountsJson.length());
 			for (int i = 0; i < dateCountsJson.length(); ++i) {
 				final JSONArray dataPoint = dateCountsJson.getJSONArray(i);
-				final Date date = DATE_FORMATER.parse(dataPoint.getString(0));
+				final Date date = toDate(LocalDate.parse(dataPoint.getString(0), DAY_FORMAT));
 				final int count = dataPoint.getInt(1);
 				dateCounts.add(new DateCount(date, count));
 			}
 			return dateCounts;
 		} catch (JSONException e) {
 			return null;
-		} catch (ParseException e) {
+		} catch (DateTimeParseException e) {
 			return null;
 		}
 	}
 
 	private List<QueryCount> toQueryCountList(final String response) {
 		try {
-			final JSONArray queryCountsJson = new JSONArray(response);
+			final JSONArray queryCountsJson = client().getJsonCodec().readArray(response);
 			final List<QueryCount> queryCounts = new ArrayList<AnalyticsApi.QueryCount>(queryCountsJson.length());
 			for (int i = 0; i < queryCountsJson.length(); ++i) {
 				final JSONArray dataPoint = queryCountsJson.getJSONArray(i);
@@ -218,4 +361,15 @@ public class AnalyticsApi {
 			return "QueryCount [query=" + query + ", count=" + count + "]";
 		}
 	}
+
+	/**
+	 * @return	Client given to the constructor, may be null
+	 */
+	SwiftypeClient getClient() {
+		return client;
+	}
+
+	private SwiftypeClient client() {
+		return client == null ? SwiftypeConfig.INSTANCE.getClient() : client;
+	}
 }
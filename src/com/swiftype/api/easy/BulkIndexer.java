@@ -0,0 +1,361 @@
+package com.swiftype.api.easy;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.json.JSONObject;
+
+import com.swiftype.api.easy.helper.DaemonThreadFactory;
+
+/**
+ * Collects single documents from any number of threads and sends them in batches to the
+ * bulk create or update endpoint of a DocumentType. A batch is sent once it reaches the configured
+ * document count or size, or once it is older than the flush interval.
+ *
+ * While the maximum number of batches is in flight, adding to a full batch blocks until a batch completes.
+ *
+ */
+public class BulkIndexer implements Closeable {
+	private static final int BATCH_OVERHEAD = "{\"documents\": [] }".length();
+
+	private final DocumentsApi api;
+	private final int maxDocuments;
+	private final long maxBytes;
+	private final int maxConcurrentBatches;
+	private final Listener listener;
+
+	private final Semaphore inFlight;
+	private final ExecutorService senders;
+	private final ScheduledExecutorService scheduler;
+
+	private final AtomicLong documentsIndexed = new AtomicLong();
+	private final AtomicLong documentsFailed = new AtomicLong();
+	private final AtomicLong batchesSent = new AtomicLong();
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private Batch batch = new Batch();
+	private boolean closed;
+
+	private BulkIndexer(final Builder builder) {
+		api = builder.api;
+		maxDocuments = builder.maxDocuments;
+		maxBytes = builder.maxBytes;
+		maxConcurrentBatches = builder.maxConcurrentBatches;
+		listener = builder.listener;
+
+		inFlight = new Semaphore(maxConcurrentBatches);
+		senders = Executors.newFixedThreadPool(maxConcurrentBatches, new DaemonThreadFactory("swiftype-bulk"));
+		if (builder.flushIntervalMillis > 0) {
+			final long interval = builder.flushIntervalMillis;
+			scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("swiftype-bulk-flush"));
+			scheduler.scheduleWithFixedDelay(() -> flushOlderThan(interval), interval, interval, TimeUnit.MILLISECONDS);
+		} else {
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * @param document	Document to create or update. For details on the Document JSON see {@link DocumentsApi#create(JSONObject) create}.
+	 * @throws InterruptedException	If interrupted while waiting for a batch to complete
+	 */
+	public void add(final JSONObject document) throws InterruptedException {
+		final String json = api.jsonCodec().toJson(document);
+		final long bytes = utf8Length(json) + 1;
+		lock.lockInterruptibly();
+		try {
+			if (closed) {
+				throw new IllegalStateException("BulkIndexer is already closed.");
+			}
+			if (!batch.isEmpty() && batch.bytes + bytes > maxBytes) {
+				send();
+			}
+			batch.add(document, json, bytes);
+			if (batch.documents.size() >= maxDocuments || batch.bytes >= maxBytes) {
+				send();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Sends the current batch and waits until all batches in flight completed.
+	 *
+	 * @throws InterruptedException	If interrupted while waiting
+	 */
+	public void flush() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			if (!batch.isEmpty()) {
+				send();
+			}
+		} finally {
+			lock.unlock();
+		}
+		inFlight.acquire(maxConcurrentBatches);
+		inFlight.release(maxConcurrentBatches);
+	}
+
+	/**
+	 * Sends all remaining documents and releases the threads of this indexer.
+	 */
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		} finally {
+			lock.unlock();
+		}
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+		try {
+			flush();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			senders.shutdown();
+		}
+	}
+
+	/**
+	 * @return	Number of documents the API reported as created or updated
+	 */
+	public long getDocumentsIndexed() {
+		return documentsIndexed.get();
+	}
+
+	/**
+	 * @return	Number of documents the API rejected or which could not be sent
+	 */
+	public long getDocumentsFailed() {
+		return documentsFailed.get();
+	}
+
+	/**
+	 * @return	Number of batches sent so far
+	 */
+	public long getBatchesSent() {
+		return batchesSent.get();
+	}
+
+	private void flushOlderThan(final long intervalMillis) {
+		lock.lock();
+		try {
+			if (batch.isEmpty() || System.currentTimeMillis() - batch.createdAt < intervalMillis) {
+				return;
+			}
+			send();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Hands the current batch to a sender thread. Must be called while holding the lock of this indexer,
+	 * so producers block here while all senders are busy. The lock is a {@link ReentrantLock} rather than
+	 * a monitor, so a producer running on a virtual thread doesn't pin its carrier thread while it waits.
+	 */
+	private void send() throws InterruptedException {
+		final Batch sealed = batch;
+		inFlight.acquire();
+		batch = new Batch();
+		try {
+			senders.execute(() -> sendBatch(sealed));
+		} catch (RuntimeException e) {
+			inFlight.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Only failures of the request are counted as failed documents, an exception thrown by the listener
+	 * is passed on to the sender thread without touching the counters of the already counted batch.
+	 */
+	private void sendBatch(final Batch sealed) {
+		final JSONObject[] documents = sealed.documents.toArray(new JSONObject[sealed.documents.size()]);
+		try {
+			final boolean[] stati;
+			try {
+				stati = api.bulkCreateOrUpdate(sealed.json);
+			} catch (RuntimeException e) {
+				documentsFailed.addAndGet(documents.length);
+				listener.onFailure(documents, e);
+				return;
+			}
+			batchesSent.incrementAndGet();
+			if (stati == null) {
+				documentsFailed.addAndGet(documents.length);
+				listener.onFailure(documents, new IllegalStateException("Malformed response for bulk create or update."));
+				return;
+			}
+			for (final boolean status : stati) {
+				if (status) {
+					documentsIndexed.incrementAndGet();
+				} else {
+					documentsFailed.incrementAndGet();
+				}
+			}
+			listener.afterBatch(documents, stati);
+		} finally {
+			inFlight.release();
+		}
+	}
+
+	private static long utf8Length(final String s) {
+		long length = 0;
+		for (int i = 0; i < s.length(); ++i) {
+			final char c = s.charAt(i);
+			if (c < 0x80) {
+				++length;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c)) {
+				length += 4;
+				++i;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Receives the outcome of every batch. Called on the sender threads.
+	 */
+	public interface Listener {
+		/**
+		 * @param documents	Documents of the batch
+		 * @param stati		Success stati for the individual documents
+		 */
+		void afterBatch(JSONObject[] documents, boolean[] stati);
+
+		/**
+		 * @param documents	Documents of the batch
+		 * @param cause		Reason the batch could not be indexed
+		 */
+		void onFailure(JSONObject[] documents, RuntimeException cause);
+	}
+
+	public static class Builder {
+		private final DocumentsApi api;
+		private int maxDocuments = 100;
+		private long maxBytes = 5 * 1024 * 1024 - BATCH_OVERHEAD;
+		private long flushIntervalMillis = TimeUnit.SECONDS.toMillis(1);
+		private int maxConcurrentBatches = 2;
+		private Listener listener = new Listener() {
+			@Override
+			public void afterBatch(final JSONObject[] documents, final boolean[] stati) {
+				// Only counted
+			}
+
+			@Override
+			public void onFailure(final JSONObject[] documents, final RuntimeException cause) {
+				// Only counted
+			}
+		};
+
+		/**
+		 * @param api	DocumentsApi of the DocumentType the documents are indexed to
+		 */
+		public Builder(final DocumentsApi api) {
+			this.api = api;
+		}
+
+		/**
+		 * @param maxDocuments	Documents per batch
+		 * @return				Builder to add more options. If your finished create the indexer with {@link #build()}.
+		 */
+		public Builder maxDocuments(final int maxDocuments) {
+			if (maxDocuments < 1) {
+				throw new IllegalArgumentException("maxDocuments has to be positive!");
+			}
+			this.maxDocuments = maxDocuments;
+			return this;
+		}
+
+		/**
+		 * @param maxBytes	Size of the serialized documents of a batch. A single larger document is sent on its own.
+		 * @return			Builder to add more options. If your finished create the indexer with {@link #build()}.
+		 */
+		public Builder maxBytes(final long maxBytes) {
+			if (maxBytes <= BATCH_OVERHEAD) {
+				throw new IllegalArgumentException("maxBytes has to be larger than " + BATCH_OVERHEAD + "!");
+			}
+			this.maxBytes = maxBytes - BATCH_OVERHEAD;
+			return this;
+		}
+
+		/**
+		 * @param interval	Maximum time a document waits in a batch which is not full. 0 disables the time limit.
+		 * @param unit		Unit of the interval
+		 * @return			Builder to add more options. If your finished create the indexer with {@link #build()}.
+		 */
+		public Builder flushInterval(final long interval, final TimeUnit unit) {
+			this.flushIntervalMillis = unit.toMillis(interval);
+			return this;
+		}
+
+		/**
+		 * @param maxConcurrentBatches	Batches sent at the same time
+		 * @return						Builder to add more options. If your finished create the indexer with {@link #build()}.
+		 */
+		public Builder maxConcurrentBatches(final int maxConcurrentBatches) {
+			if (maxConcurrentBatches < 1) {
+				throw new IllegalArgumentException("maxConcurrentBatches has to be positive!");
+			}
+			this.maxConcurrentBatches = maxConcurrentBatches;
+			return this;
+		}
+
+		/**
+		 * @param listener	Listener notified about the outcome of each batch
+		 * @return			Builder to add more options. If your finished create the indexer with {@link #build()}.
+		 */
+		public Builder listener(final Listener listener) {
+			this.listener = listener;
+			return this;
+		}
+
+		/**
+		 * @return		BulkIndexer based on the supplied values to this builder.
+		 */
+		public BulkIndexer build() {
+			return new BulkIndexer(this);
+		}
+	}
+
+	private static class Batch {
+		private final List<JSONObject> documents = new ArrayList<JSONObject>();
+		private final List<String> json = new ArrayList<String>();
+		private long createdAt;
+		private long bytes;
+
+		private void add(final JSONObject document, final String serialized, final long size) {
+			if (documents.isEmpty()) {
+				createdAt = System.currentTimeMillis();
+			}
+			documents.add(document);
+			json.add(serialized);
+			bytes += size;
+		}
+
+		private boolean isEmpty() {
+			return documents.isEmpty();
+		}
+	}
+}
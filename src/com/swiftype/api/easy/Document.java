@@ -1,11 +1,19 @@
 package com.swiftype.api.easy;
 
+import java.io.IOException;
+import java.time.Instant;
 import java.util.Date;
+import java.util.List;
 
-import javax.xml.bind.DatatypeConverter;
-
+import org.json.JSONException;
 import org.json.JSONObject;
 
+import com.swiftype.api.easy.helper.FieldValues;
+import com.swiftype.api.easy.helper.GeoPoint;
+import com.swiftype.api.easy.helper.JsonReader;
+import com.swiftype.api.easy.helper.SwiftypeClient;
+import com.swiftype.api.easy.helper.Timestamps;
+
 public class Document {
 	private String id;
 	private String externalId;
@@ -16,7 +24,8 @@ public class Document {
 	private boolean destroyed;
 	private final DocumentsApi api;
 
-	private Document(final String id,
+	private Document(final SwiftypeClient client,
+					 final String id,
 					 final String externalId,
 					 final String engineId,
 					 final String documentTypeId,
@@ -30,7 +39,7 @@ public class Document {
 		this.allFields = allFields;
 
 		this.destroyed = false;
-		this.api = new DocumentsApi(engineId, documentTypeId);
+		this.api = new DocumentsApi(client, engineId, documentTypeId);
 	}
 
 	/**
@@ -114,13 +123,81 @@ public class Document {
 		return allFields;
 	}
 
+	/**
+	 * @param name			Name of the field
+	 * @param defaultValue	Returned if the Document has no such field or it is null
+	 * @return				Value of a number field
+	 * @throws NumberFormatException	If the field is no number
+	 */
+	public long getLong(final String name, final long defaultValue) {
+		checkDestroyed();
+		return FieldValues.toLong(allFields.opt(name), defaultValue);
+	}
+
+	/**
+	 * @param name			Name of the field
+	 * @param defaultValue	Returned if the Document has no such field or it is null
+	 * @return				Value of a float field
+	 * @throws NumberFormatException	If the field is no number
+	 */
+	public double getDouble(final String name, final double defaultValue) {
+		checkDestroyed();
+		return FieldValues.toDouble(allFields.opt(name), defaultValue);
+	}
+
+	/**
+	 * @param name	Name of the field
+	 * @return		Value of a date field or null if the Document has no such field
+	 * @throws IllegalArgumentException	If the field is no ISO 8601 date
+	 */
+	public Instant getInstant(final String name) {
+		checkDestroyed();
+		return FieldValues.toInstant(allFields.opt(name));
+	}
+
+	/**
+	 * @param name	Name of the field
+	 * @return		Elements of an array field, a single value as list of one element or null if the Document has no such field
+	 */
+	public List<String> getStringList(final String name) {
+		checkDestroyed();
+		return FieldValues.toStringList(allFields.opt(name));
+	}
+
+	/**
+	 * @param name	Name of the field
+	 * @return		Value of a location field or null if the Document has no such field
+	 * @throws IllegalStateException	If the field is no location
+	 */
+	public GeoPoint getGeoPoint(final String name) {
+		checkDestroyed();
+		return FieldValues.toGeoPoint(allFields.opt(name));
+	}
+
 	public static Document fromJson(final JSONObject json) {
+		return fromJson(null, json);
+	}
+
+	/**
+	 * @param client	Client for the requests of the Document, null uses the client configured in SwiftypeConfig
+	 * @param json		Document JSON
+	 * @return			Document read from the JSON
+	 */
+	static Document fromJson(final SwiftypeClient client, final JSONObject json) {
 		final String id = json.optString("id");
 		final String externalId = json.optString("external_id");
 		final String engineId = json.optString("engine_id");
 		final String documentTypeId = json.optString("document_type_id");
-		final Date updatedAt = DatatypeConverter.parseDateTime(json.optString("updated_at")).getTime();
-		return new Document(id, externalId, engineId, documentTypeId, updatedAt, json);
+		final Date updatedAt = new Date(Timestamps.parseMillis(json.optString("updated_at")));
+		return new Document(client, id, externalId, engineId, documentTypeId, updatedAt, json);
+	}
+
+	/**
+	 * @param reader	Reader positioned in front of a document object
+	 * @return			Document read from the reader
+	 */
+	public static Document fromJson(final JsonReader reader) throws IOException, JSONException {
+		return fromJson(reader.readObject());
 	}
 
 	private void checkDestroyed() {
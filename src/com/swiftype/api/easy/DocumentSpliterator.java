@@ -0,0 +1,185 @@
+package com.swiftype.api.easy;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Walks the documents of a DocumentType page by page. While a page is consumed, the following pages
+ * are already requested. A range of pages with a known end can be split, so parallel streams export
+ * disjoint page ranges at the same time.
+ *
+ * Pages requested ahead are cancelled once the last page or a failed page is reached, and by {@link #cancel()}
+ * for streams which are not consumed to the end.
+ *
+ * Pages are requested by number, so documents created or deleted during the export can be missed or seen twice.
+ */
+class DocumentSpliterator implements Spliterator<Document> {
+	private final DocumentsApi api;
+	private final int perPage;
+	private final int prefetchPages;
+	private final Deque<CompletableFuture<Document[]>> pending = new ArrayDeque<CompletableFuture<Document[]>>();
+	/** Pages in flight of this spliterator and all spliterators split from it */
+	private final Set<CompletableFuture<Document[]>> requested;
+
+	private int nextPage;
+	private int endPage;
+	private boolean openEnded;
+
+	private Document[] current;
+	private int index;
+	private boolean exhausted;
+
+	/**
+	 * @param api			DocumentsApi to fetch the pages from
+	 * @param perPage		Documents per page
+	 * @param prefetchPages	Pages requested ahead of the current one
+	 * @param fromPage		First page, starting at 1
+	 * @param endPage		Page after the last page of this range
+	 * @param openEnded		Continue after endPage until a page is not full anymore
+	 */
+	DocumentSpliterator(final DocumentsApi api,
+						final int perPage,
+						final int prefetchPages,
+						final int fromPage,
+						final int endPage,
+						final boolean openEnded) {
+		this(api, perPage, prefetchPages, fromPage, endPage, openEnded, ConcurrentHashMap.<CompletableFuture<Document[]>>newKeySet());
+	}
+
+	private DocumentSpliterator(final DocumentsApi api,
+								final int perPage,
+								final int prefetchPages,
+								final int fromPage,
+								final int endPage,
+								final boolean openEnded,
+								final Set<CompletableFuture<Document[]>> requested) {
+		if (perPage < 1) {
+			throw new IllegalArgumentException("perPage has to be positive!");
+		}
+		this.api = api;
+		this.perPage = perPage;
+		this.prefetchPages = Math.max(0, prefetchPages);
+		this.nextPage = fromPage;
+		this.endPage = endPage;
+		this.openEnded = openEnded;
+		this.requested = requested;
+	}
+
+	@Override
+	public boolean tryAdvance(final Consumer<? super Document> action) {
+		while (current == null || index == current.length) {
+			if (!nextPage()) {
+				return false;
+			}
+		}
+		action.accept(current[index++]);
+		return true;
+	}
+
+	@Override
+	public Spliterator<Document> trySplit() {
+		if (endPage == Integer.MAX_VALUE || current != null || !pending.isEmpty()) {
+			return null;
+		}
+		final int pages = endPage - nextPage;
+		if (pages < 2) {
+			return null;
+		}
+		final int middle = nextPage + pages / 2;
+		final DocumentSpliterator prefix = new DocumentSpliterator(api, perPage, prefetchPages, nextPage, middle, false, requested);
+		nextPage = middle;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		if (endPage == Integer.MAX_VALUE) {
+			return Long.MAX_VALUE;
+		}
+		final long remainingInPage = current == null ? 0 : current.length - index;
+		return (long) (Math.max(0, endPage - nextPage) + pending.size()) * perPage + remainingInPage;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL;
+	}
+
+	/**
+	 * Cancels all pages requested ahead by this spliterator and the ones split from it, e.g. when the
+	 * stream is closed after a short-circuiting operation.
+	 */
+	void cancel() {
+		for (final CompletableFuture<Document[]> page : requested) {
+			page.cancel(false);
+		}
+		requested.clear();
+	}
+
+	private boolean nextPage() {
+		if (exhausted) {
+			return false;
+		}
+		if (current != null && current.length < perPage) {
+			// The last page was not full, so there are no more documents
+			exhausted = true;
+			cancelPending();
+			return false;
+		}
+		prefetch();
+		final CompletableFuture<Document[]> page = pending.pollFirst();
+		if (page == null) {
+			exhausted = true;
+			return false;
+		}
+		try {
+			current = await(page);
+		} catch (RuntimeException e) {
+			exhausted = true;
+			cancelPending();
+			throw e;
+		} finally {
+			requested.remove(page);
+		}
+		index = 0;
+		return true;
+	}
+
+	private void prefetch() {
+		while (pending.size() <= prefetchPages && (openEnded || nextPage < endPage)) {
+			final CompletableFuture<Document[]> page = api.getAllAsync(nextPage++, perPage);
+			requested.add(page);
+			pending.addLast(page);
+		}
+	}
+
+	private void cancelPending() {
+		CompletableFuture<Document[]> page;
+		while ((page = pending.pollFirst()) != null) {
+			page.cancel(false);
+			requested.remove(page);
+		}
+	}
+
+	private static Document[] await(final CompletableFuture<Document[]> page) {
+		final Document[] documents;
+		try {
+			documents = page.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+		if (documents == null) {
+			throw new IllegalStateException("Received a malformed page of documents.");
+		}
+		return documents;
+	}
+}
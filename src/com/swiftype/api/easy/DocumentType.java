@@ -1,14 +1,15 @@
 package com.swiftype.api.easy;
 
 import java.util.Date;
-
-import javax.xml.bind.DatatypeConverter;
+import java.util.stream.Stream;
 
 import org.json.JSONObject;
 
 import com.swiftype.api.easy.helper.SearchOptions;
 import com.swiftype.api.easy.helper.SearchResult;
 import com.swiftype.api.easy.helper.SuggestResult;
+import com.swiftype.api.easy.helper.SwiftypeClient;
+import com.swiftype.api.easy.helper.Timestamps;
 
 public class DocumentType {
 	private String name;
@@ -19,7 +20,8 @@ public class DocumentType {
 	private boolean destroyed;
 	private final DocumentTypesApi api;
 
-	private DocumentType(final String name,
+	private DocumentType(final SwiftypeClient client,
+						 final String name,
 						 final String slug,
 						 final String engineId,
 						 final Date updatedAt,
@@ -31,7 +33,7 @@ public class DocumentType {
 		this.documentCount = documentCount;
 		this.destroyed = false;
 
-		this.api = new DocumentTypesApi(engineId);
+		this.api = new DocumentTypesApi(client, engineId);
 	}
 
 	/**
@@ -97,7 +99,18 @@ public class DocumentType {
 	 */
 	public DocumentsApi getDocumentsApi() {
 		checkDestroyed();
-		return new DocumentsApi(engineId, slug);
+		return new DocumentsApi(api.getClient(), engineId, slug);
+	}
+
+	/**
+	 * @param perPage		Documents per page
+	 * @param prefetchPages	Pages requested ahead of the one currently consumed
+	 * @return				Lazily fetched documents of this DocumentType, splittable for parallel streams
+	 * 						based on the document count
+	 */
+	public Stream<Document> streamDocuments(final int perPage, final int prefetchPages) {
+		checkDestroyed();
+		return getDocumentsApi().stream(perPage, prefetchPages, documentCount);
 	}
 
 	/**
@@ -146,12 +159,21 @@ public class DocumentType {
 	}
 
 	public static DocumentType fromJson(final JSONObject json) {
+		return fromJson(null, json);
+	}
+
+	/**
+	 * @param client	Client for the requests of the DocumentType, null uses the client configured in SwiftypeConfig
+	 * @param json		DocumentType JSON
+	 * @return			DocumentType read from the JSON
+	 */
+	static DocumentType fromJson(final SwiftypeClient client, final JSONObject json) {
 		final String name = json.optString("name");
 		final String slug = json.optString("slug");
 		final String engineId = json.optString("engine_id");
-		final Date updatedAt = DatatypeConverter.parseDateTime(json.optString("updated_at")).getTime();
+		final Date updatedAt = new Date(Timestamps.parseMillis(json.optString("updated_at")));
 		final int documentCount = json.optInt("document_count");
-		return new DocumentType(name, slug, engineId, updatedAt, documentCount);
+		return new DocumentType(client, name, slug, engineId, updatedAt, documentCount);
 	}
 
 	private void checkDestroyed() {
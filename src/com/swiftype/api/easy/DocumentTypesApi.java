@@ -1,22 +1,37 @@
 package com.swiftype.api.easy;
 
 import java.util.Map;
-
-import javax.xml.ws.WebServiceException;
+import java.util.concurrent.CompletableFuture;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import com.swiftype.api.easy.helper.Client;
+import com.swiftype.api.easy.helper.Client.ResponseParser;
 import com.swiftype.api.easy.helper.SearchOptions;
 import com.swiftype.api.easy.helper.SearchResult;
 import com.swiftype.api.easy.helper.SuggestResult;
+import com.swiftype.api.easy.helper.SwiftypeClient;
+import com.swiftype.api.easy.helper.SwiftypeConfig;
+import com.swiftype.api.easy.helper.SwiftypeException;
 
 public class DocumentTypesApi {
+	private static final ResponseParser<Map<String, SearchResult>> SEARCH_RESULTS = SearchResult::fromJson;
+	private static final ResponseParser<Map<String, SuggestResult>> SUGGEST_RESULTS = SuggestResult::fromJson;
+
+	private final SwiftypeClient client;
 	private final String engineId;
 
 	public DocumentTypesApi(final String engineId) {
+		this(null, engineId);
+	}
+
+	/**
+	 * @param client	Client sending the requests, null uses the client configured in {@link SwiftypeConfig}
+	 * @param engineId	Slug or id of the engine
+	 */
+	public DocumentTypesApi(final SwiftypeClient client, final String engineId) {
+		this.client = client;
 		this.engineId = engineId;
 	}
 
@@ -25,10 +40,10 @@ public class DocumentTypesApi {
 	 */
 	public DocumentType[] getAll() {
 		try {
-			final JSONArray documentTypesJson = new JSONArray(Client.get(documentTypesPath()));
+			final JSONArray documentTypesJson = client().getJsonCodec().readArray(client().get(documentTypesPath()));
 			final DocumentType[] documentTypes = new DocumentType[documentTypesJson.length()];
 			for (int i = 0; i < documentTypes.length; ++i) {
-				documentTypes[i] = DocumentType.fromJson(documentTypesJson.getJSONObject(i));
+				documentTypes[i] = DocumentType.fromJson(client, documentTypesJson.getJSONObject(i));
 			}
 			return documentTypes;
 		} catch (JSONException e) {
@@ -36,12 +51,29 @@ public class DocumentTypesApi {
 		}
 	}
 
+	/**
+	 * @return	Future of {@link #getAll()}
+	 */
+	public CompletableFuture<DocumentType[]> getAllAsync() {
+		return client().async(() -> getAll());
+	}
+
 	/**
 	 * @param documentTypeId	DocumentType slug or id
 	 * @return					Specified DocumentType
 	 */
 	public DocumentType get(final String documentTypeId) {
-		return toDocumentType(Client.get(documentTypePath(documentTypeId)));
+		final String path = documentTypePath(documentTypeId);
+		// Only the response is shared, every caller gets its own DocumentType
+		return toDocumentType(client().coalesced(path, () -> client().get(path)));
+	}
+
+	/**
+	 * @param documentTypeId	DocumentType slug or id
+	 * @return					Future of {@link #get(String)}
+	 */
+	public CompletableFuture<DocumentType> getAsync(final String documentTypeId) {
+		return client().async(() -> get(documentTypeId));
 	}
 
 	/**
@@ -49,22 +81,42 @@ public class DocumentTypesApi {
 	 * @return		Newly created DocumentType
 	 */
 	public DocumentType create(final String name) {
-		return toDocumentType(Client.post(documentTypesPath(), "{\"document_type\": {\"name\": \"" + name + "\"}}"));
+		return toDocumentType(client().post(documentTypesPath(), "{\"document_type\": {\"name\": \"" + name + "\"}}"));
+	}
+
+	/**
+	 * @param name	Name for the DocumentType you want to create
+	 * @return		Future of {@link #create(String)}
+	 */
+	public CompletableFuture<DocumentType> createAsync(final String name) {
+		return client().async(() -> create(name));
 	}
 
 	/**
 	 * @param documentTypeId	DocumentType slug or id
 	 * @return					Success of deletion command
+	 * @throws SwiftypeException	If the deletion failed for another reason than the request itself
 	 */
 	public boolean destroy(final String documentTypeId) {
 		try {
-			Client.delete(documentTypePath(documentTypeId));
+			client().delete(documentTypePath(documentTypeId));
 			return true;
-		} catch (WebServiceException e) {
-			return false;
+		} catch (SwiftypeException e) {
+			if (e.isClientError()) {
+				return false;
+			}
+			throw e;
 		}
 	}
 
+	/**
+	 * @param documentTypeId	DocumentType slug or id
+	 * @return					Future of {@link #destroy(String)}
+	 */
+	public CompletableFuture<Boolean> destroyAsync(final String documentTypeId) {
+		return client().async(() -> destroy(documentTypeId));
+	}
+
 	/**
 	 * @param documentTypeId	DocumentType slug or id
 	 * @param query				Query terms to search for
@@ -74,6 +126,15 @@ public class DocumentTypesApi {
 		return search(documentTypeId, query, SearchOptions.DEFAULT);
 	}
 
+	/**
+	 * @param documentTypeId	DocumentType slug or id
+	 * @param query				Query terms to search for
+	 * @return					Future of {@link #search(String, String)}
+	 */
+	public CompletableFuture<SearchResult> searchAsync(final String documentTypeId, final String query) {
+		return searchAsync(documentTypeId, query, SearchOptions.DEFAULT);
+	}
+
 
 	/**
 	 * @param documentTypeId	DocumentType slug or id
@@ -82,8 +143,18 @@ public class DocumentTypesApi {
 	 * @return					Search results
 	 */
 	public SearchResult search(final String documentTypeId, final String query, final SearchOptions options) {
-		final String response = Client.post(documentTypePath(documentTypeId) + "/search", options.withQuery(query));
-		return toSearchResults(response).get(documentTypeId);
+		final String path = documentTypePath(documentTypeId) + "/search";
+		return client().cached(path, query, options, () -> client().query(path, options.withQuery(query), SEARCH_RESULTS)).get(documentTypeId);
+	}
+
+	/**
+	 * @param documentTypeId	DocumentType slug or id
+	 * @param query				Query terms to search for
+	 * @param options			Options for the search
+	 * @return					Future of {@link #search(String, String, SearchOptions)}
+	 */
+	public CompletableFuture<SearchResult> searchAsync(final String documentTypeId, final String query, final SearchOptions options) {
+		return client().async(() -> search(documentTypeId, query, options));
 	}
 
 	/**
@@ -95,6 +166,15 @@ public class DocumentTypesApi {
 		return suggest(documentTypeId, query, SearchOptions.DEFAULT);
 	}
 
+	/**
+	 * @param documentTypeId	DocumentType slug or id
+	 * @param query				Query for the suggestions
+	 * @return					Future of {@link #suggest(String, String)}
+	 */
+	public CompletableFuture<SuggestResult> suggestAsync(final String documentTypeId, final String query) {
+		return suggestAsync(documentTypeId, query, SearchOptions.DEFAULT);
+	}
+
 	/**
 	 * @param documentTypeId	DocumentType slug or id
 	 * @param query				Query for the suggestions
@@ -102,8 +182,18 @@ public class DocumentTypesApi {
 	 * @return					Suggest results
 	 */
 	public SuggestResult suggest(final String documentTypeId, final String query, final SearchOptions options) {
-		final String response = Client.post(documentTypePath(documentTypeId) + "/suggest", options.withQuery(query));
-		return toSuggestResults(response).get(documentTypeId);
+		final String path = documentTypePath(documentTypeId) + "/suggest";
+		return client().cached(path, query, options, () -> client().query(path, options.withQuery(query), SUGGEST_RESULTS)).get(documentTypeId);
+	}
+
+	/**
+	 * @param documentTypeId	DocumentType slug or id
+	 * @param query				Query for the suggestions
+	 * @param options			Options for the suggest
+	 * @return					Future of {@link #suggest(String, String, SearchOptions)}
+	 */
+	public CompletableFuture<SuggestResult> suggestAsync(final String documentTypeId, final String query, final SearchOptions options) {
+		return client().async(() -> suggest(documentTypeId, query, options));
 	}
 
 	String documentTypesPath() {
@@ -114,31 +204,23 @@ public class DocumentTypesApi {
 		return documentTypesPath() + "/" + documentTypeId;
 	}
 
-	private static DocumentType toDocumentType(final String response){
+	private DocumentType toDocumentType(final String response){
 		try {
-			final JSONObject json = new JSONObject(response);
-			return DocumentType.fromJson(json);
+			final JSONObject json = client().getJsonCodec().readObject(response);
+			return DocumentType.fromJson(client, json);
 		} catch (JSONException e) {
 			throw new IllegalStateException(e.getMessage());
 		}
 	}
 
-	private Map<String, SearchResult> toSearchResults(final String response) {
-		try {
-			final JSONObject json = new JSONObject(response);
-			return SearchResult.fromJson(json);
-		} catch (JSONException e) {
-			throw new IllegalStateException(e.getMessage());
-		}
+	/**
+	 * @return	Client given to the constructor, may be null
+	 */
+	SwiftypeClient getClient() {
+		return client;
 	}
 
-	private Map<String, SuggestResult> toSuggestResults(final String response) {
-		try {
-			final JSONObject json = new JSONObject(response);
-			return SuggestResult.fromJson(json);
-		} catch (JSONException e) {
-			throw new IllegalStateException(e.getMessage());
-		}
+	private SwiftypeClient client() {
+		return client == null ? SwiftypeConfig.INSTANCE.getClient() : client;
 	}
 }
-
@@ -1,29 +1,59 @@
 package com.swiftype.api.easy;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
-
-import javax.xml.ws.WebServiceException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import com.swiftype.api.easy.helper.Client;
+import com.swiftype.api.easy.helper.Client.ResponseParser;
+import com.swiftype.api.easy.helper.JsonArrayBody;
+import com.swiftype.api.easy.helper.JsonCodec;
+import com.swiftype.api.easy.helper.JsonReader;
+import com.swiftype.api.easy.helper.SwiftypeClient;
+import com.swiftype.api.easy.helper.SwiftypeConfig;
+import com.swiftype.api.easy.helper.SwiftypeException;
 
 public class DocumentsApi {
+	private final SwiftypeClient client;
 	private final String documentTypeId;
 	private final DocumentTypesApi documentTypeApi;
+	private final ResponseParser<Document[]> documentsParser = this::readDocuments;
+	private final ResponseParser<Document> documentParser = this::readDocument;
 
 	public DocumentsApi(final String engineId, final String documentTypeId) {
+		this(null, engineId, documentTypeId);
+	}
+
+	/**
+	 * @param client			Client sending the requests, null uses the client configured in {@link SwiftypeConfig}
+	 * @param engineId			Slug or id of the engine
+	 * @param documentTypeId	Slug or id of the DocumentType
+	 */
+	public DocumentsApi(final SwiftypeClient client, final String engineId, final String documentTypeId) {
+		this.client = client;
 		this.documentTypeId = documentTypeId;
-		this.documentTypeApi = new DocumentTypesApi(engineId);
+		this.documentTypeApi = new DocumentTypesApi(client, engineId);
 	}
 
 	/**
 	 * @return	List of documents for the specified Engine and DocumentType
 	 */
 	public Document[] getAll() {
-		return toDocuments(Client.get(documentsPath()));
+		return client().get(documentsPath(), documentsParser);
+	}
+
+	/**
+	 * @return	Future of {@link #getAll()}
+	 */
+	public CompletableFuture<Document[]> getAllAsync() {
+		return client().async(() -> getAll());
 	}
 
 	/**
@@ -34,7 +64,45 @@ public class DocumentsApi {
 	public Document[] getAll(final int page, final int perPage) {
 		final String[] pageParam = {"page", Integer.toString(page)};
 		final String[] perPageParam = {"per_page", Integer.toString(perPage)};
-		return toDocuments(Client.get(documentsPath(), pageParam, perPageParam));
+		return client().get(documentsPath(), documentsParser, pageParam, perPageParam);
+	}
+
+	/**
+	 * @param page		Page to retrieve
+	 * @param perPage	Documents per page
+	 * @return			Future of {@link #getAll(int, int)}
+	 */
+	public CompletableFuture<Document[]> getAllAsync(final int page, final int perPage) {
+		return client().async(() -> getAll(page, perPage));
+	}
+
+	/**
+	 * Exports all documents page by page. A page is only fetched once the stream reaches it,
+	 * while the following pages are already requested in the background. Close the stream if it is
+	 * not consumed to the end, e.g. after findFirst() or limit(), to cancel the pages requested ahead.
+	 *
+	 * @param perPage		Documents per page
+	 * @param prefetchPages	Pages requested ahead of the one currently consumed
+	 * @return				Lazily fetched documents for the specified Engine and DocumentType
+	 */
+	public Stream<Document> stream(final int perPage, final int prefetchPages) {
+		final DocumentSpliterator spliterator = new DocumentSpliterator(this, perPage, prefetchPages, 1, Integer.MAX_VALUE, true);
+		return StreamSupport.stream(spliterator, false).onClose(spliterator::cancel);
+	}
+
+	/**
+	 * Like {@link #stream(int, int)}, but the known document count allows splitting the pages of the export
+	 * for {@link Stream#parallel()}. Documents beyond the count are still exported.
+	 *
+	 * @param perPage		Documents per page
+	 * @param prefetchPages	Pages requested ahead of the one currently consumed by each part of the stream
+	 * @param documentCount	Expected number of documents, e.g. {@link DocumentType#getDocumentCount()}
+	 * @return				Lazily fetched documents for the specified Engine and DocumentType
+	 */
+	public Stream<Document> stream(final int perPage, final int prefetchPages, final int documentCount) {
+		final int pages = Math.max(1, (documentCount + perPage - 1) / perPage);
+		final DocumentSpliterator spliterator = new DocumentSpliterator(this, perPage, prefetchPages, 1, 1 + pages, true);
+		return StreamSupport.stream(spliterator, false).onClose(spliterator::cancel);
 	}
 
 	/**
@@ -42,7 +110,17 @@ public class DocumentsApi {
 	 * @return				Document matching the specified id
 	 */
 	public Document get(final String documentId) {
-		return toDocument(Client.get(documentPath(documentId)));
+		final String path = documentPath(documentId);
+		// Only the response is shared, every caller gets its own Document with its own fields
+		return toDocument(client().coalesced(path, () -> client().get(path)));
+	}
+
+	/**
+	 * @param documentId	Id of the document
+	 * @return				Future of {@link #get(String)}
+	 */
+	public CompletableFuture<Document> getAsync(final String documentId) {
+		return client().async(() -> get(documentId));
 	}
 
 	/**
@@ -60,7 +138,15 @@ public class DocumentsApi {
 	 * @return			Newly created document
 	 */
 	public Document create(final JSONObject document) {
-		return toDocument(Client.post(documentsPath(), "{\"document\": " + document + " }"));
+		return client().post(documentsPath(), "{\"document\": " + client().getJsonCodec().toJson(document) + " }", documentParser);
+	}
+
+	/**
+	 * @param document	JSONObject representing a Document
+	 * @return			Future of {@link #create(JSONObject)}
+	 */
+	public CompletableFuture<Document> createAsync(final JSONObject document) {
+		return client().async(() -> create(document));
 	}
 
 	/**
@@ -68,7 +154,15 @@ public class DocumentsApi {
 	 * @return				Array of success stati for creating the individual documents
 	 */
 	public boolean[] create(final JSONObject ... documents) {
-		return toBooleans(Client.post(documentsPath() + "/bulk_create", "{\"documents\": " + Arrays.toString(documents) + " }"));
+		return toBooleans(client().post(documentsPath() + "/bulk_create", new JsonArrayBody(client().getJsonCodec(), "documents", Arrays.asList(documents))));
+	}
+
+	/**
+	 * @param documents		Array of JSONObjects
+	 * @return				Future of {@link #create(JSONObject...)}
+	 */
+	public CompletableFuture<boolean[]> createAsync(final JSONObject ... documents) {
+		return client().async(() -> create(documents));
 	}
 
 	/**
@@ -76,7 +170,15 @@ public class DocumentsApi {
 	 * @return				Created or updated Document
 	 */
 	public Document createOrUpdate(final JSONObject document) {
-		return toDocument(Client.post(documentsPath() + "/create_or_update", "{\"document\": " + document + " }"));
+		return client().post(documentsPath() + "/create_or_update", "{\"document\": " + client().getJsonCodec().toJson(document) + " }", documentParser);
+	}
+
+	/**
+	 * @param document		Document to create or update
+	 * @return				Future of {@link #createOrUpdate(JSONObject)}
+	 */
+	public CompletableFuture<Document> createOrUpdateAsync(final JSONObject document) {
+		return client().async(() -> createOrUpdate(document));
 	}
 
 	/**
@@ -84,7 +186,15 @@ public class DocumentsApi {
 	 * @return				Success stati for creating or updating the specified documents
 	 */
 	public boolean[] createOrUpdate(final JSONObject ... documents) {
-		return toBooleans(Client.post(documentsPath() + "/bulk_create_or_update", "{\"documents\": " + Arrays.toString(documents) + " }"));
+		return toBooleans(client().post(documentsPath() + "/bulk_create_or_update", new JsonArrayBody(client().getJsonCodec(), "documents", Arrays.asList(documents))));
+	}
+
+	/**
+	 * @param documents		Array of Documents
+	 * @return				Future of {@link #createOrUpdate(JSONObject...)}
+	 */
+	public CompletableFuture<boolean[]> createOrUpdateAsync(final JSONObject ... documents) {
+		return client().async(() -> createOrUpdate(documents));
 	}
 
 	/**
@@ -98,7 +208,16 @@ public class DocumentsApi {
 	 * @return				Updated Document
 	 */
 	public Document update(final String documentId, final JSONObject fields) {
-		return toDocument(Client.put(documentPath(documentId) + "/update_fields", "{\"fields\": " + fields + " }"));
+		return client().put(documentPath(documentId) + "/update_fields", "{\"fields\": " + client().getJsonCodec().toJson(fields) + " }", documentParser);
+	}
+
+	/**
+	 * @param documentId	Id of the Document you want to update
+	 * @param fields		Fields to update
+	 * @return				Future of {@link #update(String, JSONObject)}
+	 */
+	public CompletableFuture<Document> updateAsync(final String documentId, final JSONObject fields) {
+		return client().async(() -> update(documentId, fields));
 	}
 
 	/**
@@ -114,22 +233,42 @@ public class DocumentsApi {
 	 * @return				Success stati for updating the documents
 	 */
 	public boolean[] update(final JSONObject[] documents) {
-		return toBooleans(Client.put(documentsPath() + "/bulk_update", "{\"documents\": " + Arrays.toString(documents) + " }"));
+		return toBooleans(client().put(documentsPath() + "/bulk_update", new JsonArrayBody(client().getJsonCodec(), "documents", Arrays.asList(documents))));
+	}
+
+	/**
+	 * @param documents		Documents JSON Objects to update
+	 * @return				Future of {@link #update(JSONObject[])}
+	 */
+	public CompletableFuture<boolean[]> updateAsync(final JSONObject[] documents) {
+		return client().async(() -> update(documents));
 	}
 
 	/**
 	 * @param documentId	Id of Document
 	 * @return				Success of deletion command
+	 * @throws SwiftypeException	If the deletion failed for another reason than the request itself
 	 */
 	public boolean destroy(final String documentId) {
 		try {
-			Client.delete(documentPath(documentId));
+			client().delete(documentPath(documentId));
 			return true;
-		} catch (WebServiceException e) {
-			return false;
+		} catch (SwiftypeException e) {
+			if (e.isClientError()) {
+				return false;
+			}
+			throw e;
 		}
 	}
 
+	/**
+	 * @param documentId	Id of Document
+	 * @return				Future of {@link #destroy(String)}
+	 */
+	public CompletableFuture<Boolean> destroyAsync(final String documentId) {
+		return client().async(() -> destroy(documentId));
+	}
+
 	/**
 	 * @param documentIds	Ids to delete
 	 * @return				Success stati of deletion
@@ -144,17 +283,42 @@ public class DocumentsApi {
 			sb.deleteCharAt(sb.length() - 1);
 		}
 		sb.append("] }");
-		return toBooleans(Client.post(documentsPath() + "/bulk_destroy", sb.toString()));
+		return toBooleans(client().post(documentsPath() + "/bulk_destroy", sb.toString()));
+	}
+
+	/**
+	 * @param documentIds	Ids to delete
+	 * @return				Future of {@link #destroy(String...)}
+	 */
+	public CompletableFuture<boolean[]> destroyAsync(final String ... documentIds) {
+		return client().async(() -> destroy(documentIds));
+	}
+
+	/**
+	 * @param documents		Already serialized JSON documents
+	 * @return				Success stati for creating or updating the specified documents
+	 */
+	boolean[] bulkCreateOrUpdate(final List<String> documents) {
+		return toBooleans(client().post(documentsPath() + "/bulk_create_or_update", new JsonArrayBody(client().getJsonCodec(), "documents", documents)));
 	}
 
-	private Document[] toDocuments(final String response) {
+	private Document[] readDocuments(final JsonReader reader) throws IOException {
 		try {
-			final JSONArray documentsJson = new JSONArray(response);
-			final Document[] documents = new Document[documentsJson.length()];
-			for (int i = 0; i < documents.length; ++i) {
-				documents[i] = Document.fromJson(documentsJson.getJSONObject(i));
+			final List<Document> documents = new ArrayList<Document>();
+			reader.beginArray();
+			while (reader.hasNext()) {
+				documents.add(Document.fromJson(client, reader.readObject()));
 			}
-			return documents;
+			reader.endArray();
+			return documents.toArray(new Document[documents.size()]);
+		} catch (JSONException e) {
+			return null;
+		}
+	}
+
+	private Document readDocument(final JsonReader reader) throws IOException {
+		try {
+			return Document.fromJson(client, reader.readObject());
 		} catch (JSONException e) {
 			return null;
 		}
@@ -162,8 +326,7 @@ public class DocumentsApi {
 
 	private Document toDocument(final String response) {
 		try {
-			final JSONObject json = new JSONObject(response);
-			return Document.fromJson(json);
+			return Document.fromJson(client, client().getJsonCodec().readObject(response));
 		} catch (JSONException e) {
 			return null;
 		}
@@ -171,7 +334,7 @@ public class DocumentsApi {
 
 	private boolean[] toBooleans(final String response) {
 		try {
-			final JSONArray json = new JSONArray(response);
+			final JSONArray json = client().getJsonCodec().readArray(response);
 			final boolean[] stati = new boolean[json.length()];
 			for (int i = 0; i < stati.length; ++i) {
 				stati[i] = json.getBoolean(i);
@@ -189,4 +352,22 @@ public class DocumentsApi {
 	String documentPath(final String documentId) {
 		return documentsPath() + "/" + documentId;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * @return	Client given to the constructor, may be null
+	 */
+	SwiftypeClient getClient() {
+		return client;
+	}
+
+	/**
+	 * @return	Codec of the client sending the requests
+	 */
+	JsonCodec jsonCodec() {
+		return client().getJsonCodec();
+	}
+
+	private SwiftypeClient client() {
+		return client == null ? SwiftypeConfig.INSTANCE.getClient() : client;
+	}
+}
@@ -2,10 +2,11 @@ package com.swiftype.api.easy;
 
 import java.util.Date;
 
-import javax.xml.bind.DatatypeConverter;
-
 import org.json.JSONObject;
 
+import com.swiftype.api.easy.helper.SwiftypeClient;
+import com.swiftype.api.easy.helper.Timestamps;
+
 public class Domain {
 	private String id;
 	private String submittedUrl;
@@ -16,7 +17,8 @@ public class Domain {
 	private DomainsApi api;
 	private boolean destroyed;
 
-	private Domain(final String engineId,
+	private Domain(final SwiftypeClient client,
+				   final String engineId,
 				   final String id,
 				   final String submittedUrl,
 				   final String startCrawlUrl,
@@ -31,7 +33,7 @@ public class Domain {
 		this.updatedAt = updatedAt;
 
 		this.destroyed = false;
-		this.api = new DomainsApi(engineId);
+		this.api = new DomainsApi(client, engineId);
 	}
 
 	/**
@@ -122,13 +124,23 @@ public class Domain {
 	}
 
 	public static Domain fromJson(final String engineId, final JSONObject json) {
+		return fromJson(null, engineId, json);
+	}
+
+	/**
+	 * @param client	Client for the requests of the domain, null uses the client configured in SwiftypeConfig
+	 * @param engineId	Slug or id of the engine the domain belongs to
+	 * @param json		Domain JSON
+	 * @return			Domain read from the JSON
+	 */
+	static Domain fromJson(final SwiftypeClient client, final String engineId, final JSONObject json) {
 		final String id = json.optString("id");
 		final String submittedUrl = json.optString("submitted_url");
 		final String startCrawlUrl = json.optString("start_crawl_url");
 		final boolean isCrawling = json.optBoolean("crawling");
 		final int documentCount = json.optInt("document_count");
-		final Date updatedAt = DatatypeConverter.parseDateTime(json.optString("updated_at")).getTime();
-		return new Domain(engineId, id, submittedUrl, startCrawlUrl, isCrawling, documentCount, updatedAt);
+		final Date updatedAt = new Date(Timestamps.parseMillis(json.optString("updated_at")));
+		return new Domain(client, engineId, id, submittedUrl, startCrawlUrl, isCrawling, documentCount, updatedAt);
 	}
 
 	private void updateFields(final Domain domain) {
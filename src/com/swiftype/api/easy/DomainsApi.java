@@ -1,17 +1,29 @@
 package com.swiftype.api.easy;
 
-import javax.xml.ws.WebServiceException;
+import java.util.concurrent.CompletableFuture;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import com.swiftype.api.easy.helper.Client;
+import com.swiftype.api.easy.helper.SwiftypeClient;
+import com.swiftype.api.easy.helper.SwiftypeConfig;
+import com.swiftype.api.easy.helper.SwiftypeException;
 
 public class DomainsApi {
+	private final SwiftypeClient client;
 	private final String engineId;
 
 	public DomainsApi(final String engineId) {
+		this(null, engineId);
+	}
+
+	/**
+	 * @param client	Client sending the requests, null uses the client configured in {@link SwiftypeConfig}
+	 * @param engineId	Slug or id of the engine
+	 */
+	public DomainsApi(final SwiftypeClient client, final String engineId) {
+		this.client = client;
 		this.engineId = engineId;
 	}
 
@@ -20,10 +32,10 @@ public class DomainsApi {
 	 */
 	public Domain[] getAll() {
 		try {
-			final JSONArray domainsJson = new JSONArray(Client.get(domainsPath()));
+			final JSONArray domainsJson = client().getJsonCodec().readArray(client().get(domainsPath()));
 			final Domain[] domains = new Domain[domainsJson.length()];
 			for (int i = 0; i < domains.length; ++i) {
-				domains[i] = Domain.fromJson(engineId, domainsJson.getJSONObject(i));
+				domains[i] = Domain.fromJson(client, engineId, domainsJson.getJSONObject(i));
 			}
 			return domains;
 		} catch (JSONException e) {
@@ -31,12 +43,27 @@ public class DomainsApi {
 		}
 	}
 
+	/**
+	 * @return	Future of {@link #getAll()}
+	 */
+	public CompletableFuture<Domain[]> getAllAsync() {
+		return client().async(() -> getAll());
+	}
+
 	/**
 	 * @param domainId	Id of the wanted domain
 	 * @return			Specified domain
 	 */
 	public Domain get(final String domainId) {
-		return toDomain(Client.get(domainPath(domainId)));
+		return toDomain(client().get(domainPath(domainId)));
+	}
+
+	/**
+	 * @param domainId	Id of the wanted domain
+	 * @return			Future of {@link #get(String)}
+	 */
+	public CompletableFuture<Domain> getAsync(final String domainId) {
+		return client().async(() -> get(domainId));
 	}
 
 	/**
@@ -44,29 +71,57 @@ public class DomainsApi {
 	 * @return		Domain belonging to the specified URL
 	 */
 	public Domain create(final String url) {
-		final String response = Client.post(domainsPath(), "{\"domain\": {\"submitted_url\": \"" + url + "\"} }");
+		final String response = client().post(domainsPath(), "{\"domain\": {\"submitted_url\": \"" + url + "\"} }");
 		return toDomain(response);
 	}
 
+	/**
+	 * @param url	Start URL used for crawling the domain
+	 * @return		Future of {@link #create(String)}
+	 */
+	public CompletableFuture<Domain> createAsync(final String url) {
+		return client().async(() -> create(url));
+	}
+
 	/**
 	 * @param domainId	Id of the domain to delete
 	 * @return			Success of deletion
+	 * @throws SwiftypeException	If the deletion failed for another reason than the request itself
 	 */
 	public boolean destroy(final String domainId) {
 		try {
-			Client.delete(domainPath(domainId));
+			client().delete(domainPath(domainId));
 			return true;
-		} catch (WebServiceException e) {
-			return false;
+		} catch (SwiftypeException e) {
+			if (e.isClientError()) {
+				return false;
+			}
+			throw e;
 		}
 	}
 
+	/**
+	 * @param domainId	Id of the domain to delete
+	 * @return			Future of {@link #destroy(String)}
+	 */
+	public CompletableFuture<Boolean> destroyAsync(final String domainId) {
+		return client().async(() -> destroy(domainId));
+	}
+
 	/**
 	 * @param domainId	Id of the domain
 	 * @return			Asynchronously recrawled domain
 	 */
 	public Domain recrawl(final String domainId) {
-		return toDomain(Client.put(domainPath(domainId) + "/recrawl", ""));
+		return toDomain(client().put(domainPath(domainId) + "/recrawl", ""));
+	}
+
+	/**
+	 * @param domainId	Id of the domain
+	 * @return			Future of {@link #recrawl(String)}
+	 */
+	public CompletableFuture<Domain> recrawlAsync(final String domainId) {
+		return client().async(() -> recrawl(domainId));
 	}
 
 	/**
@@ -74,7 +129,19 @@ public class DomainsApi {
 	 * @param url		URL to add or update on this domain
 	 */
 	public void crawlUrl(final String domainId, final String url) {
-		Client.put(domainPath(domainId) + "/crawl_url", "{\"url\": \"" + url + "\"}");
+		client().put(domainPath(domainId) + "/crawl_url", "{\"url\": \"" + url + "\"}");
+	}
+
+	/**
+	 * @param domainId	Id of the domain
+	 * @param url		URL to add or update on this domain
+	 * @return			Future completed once the URL was submitted
+	 */
+	public CompletableFuture<Void> crawlUrlAsync(final String domainId, final String url) {
+		return client().async(() -> {
+			crawlUrl(domainId, url);
+			return null;
+		});
 	}
 
 	String domainsPath() {
@@ -87,10 +154,21 @@ public class DomainsApi {
 
 	private Domain toDomain(final String response){
 		try {
-			final JSONObject json = new JSONObject(response);
-			return Domain.fromJson(engineId, json);
+			final JSONObject json = client().getJsonCodec().readObject(response);
+			return Domain.fromJson(client, engineId, json);
 		} catch (JSONException e) {
 			throw new IllegalStateException(e.getMessage());
 		}
 	}
+
+	/**
+	 * @return	Client given to the constructor, may be null
+	 */
+	SwiftypeClient getClient() {
+		return client;
+	}
+
+	private SwiftypeClient client() {
+		return client == null ? SwiftypeConfig.INSTANCE.getClient() : client;
+	}
 }
@@ -3,13 +3,13 @@ package com.swiftype.api.easy;
 import java.util.Date;
 import java.util.Map;
 
-import javax.xml.bind.DatatypeConverter;
-
 import org.json.JSONObject;
 
 import com.swiftype.api.easy.helper.SearchOptions;
 import com.swiftype.api.easy.helper.SearchResult;
 import com.swiftype.api.easy.helper.SuggestResult;
+import com.swiftype.api.easy.helper.SwiftypeClient;
+import com.swiftype.api.easy.helper.Timestamps;
 
 
 public class Engine {
@@ -22,7 +22,8 @@ public class Engine {
 	private EnginesApi api;
 	private boolean destroyed;
 
-	private Engine(final String id,
+	private Engine(final SwiftypeClient client,
+				   final String id,
 				   final String key,
 				   final String name,
 				   final String slug,
@@ -35,7 +36,7 @@ public class Engine {
 		this.updatedAt = updatedAt;
 		this.documentCount = documentCount;
 
-		this.api = new EnginesApi();
+		this.api = new EnginesApi(client);
 		this.destroyed = false;
 	}
 
@@ -104,7 +105,7 @@ public class Engine {
 	 */
 	public DocumentTypesApi getDocumentTypeApi() {
 		checkDestroyed();
-		return new DocumentTypesApi(id);
+		return new DocumentTypesApi(api.getClient(), id);
 	}
 
 
@@ -157,13 +158,22 @@ public class Engine {
 	}
 
 	public static Engine fromJson(final JSONObject json) {
+		return fromJson(null, json);
+	}
+
+	/**
+	 * @param client	Client for the requests of the engine, null uses the client configured in SwiftypeConfig
+	 * @param json		Engine JSON
+	 * @return			Engine read from the JSON
+	 */
+	static Engine fromJson(final SwiftypeClient client, final JSONObject json) {
 		final String id = json.optString("id");
 		final String key = json.optString("key");
 		final String name = json.optString("name");
 		final String slug = json.optString("slug");
-		final Date updatedAt = DatatypeConverter.parseDateTime(json.optString("updated_at")).getTime();
+		final Date updatedAt = new Date(Timestamps.parseMillis(json.optString("updated_at")));
 		final int documentCount = json.optInt("document_count");
-		return new Engine(id, key, name, slug, updatedAt, documentCount);
+		return new Engine(client, id, key, name, slug, updatedAt, documentCount);
 	}
 
 	private void checkDestroyed() {
@@ -1,30 +1,53 @@
 package com.swiftype.api.easy;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-
-import javax.xml.ws.WebServiceException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import com.swiftype.api.easy.helper.Client;
+import com.swiftype.api.easy.helper.Client.ResponseParser;
+import com.swiftype.api.easy.helper.Query;
 import com.swiftype.api.easy.helper.SearchOptions;
 import com.swiftype.api.easy.helper.SearchResult;
 import com.swiftype.api.easy.helper.SuggestResult;
+import com.swiftype.api.easy.helper.SwiftypeClient;
+import com.swiftype.api.easy.helper.SwiftypeConfig;
+import com.swiftype.api.easy.helper.SwiftypeException;
 
 public class EnginesApi {
 	private static final String ENGINES_PATH = "engines";
+	private static final ResponseParser<Map<String, SearchResult>> SEARCH_RESULTS = SearchResult::fromJson;
+	private static final ResponseParser<Map<String, SuggestResult>> SUGGEST_RESULTS = SuggestResult::fromJson;
+
+	private final SwiftypeClient client;
+
+	public EnginesApi() {
+		this(null);
+	}
+
+	/**
+	 * @param client	Client sending the requests, null uses the client configured in {@link SwiftypeConfig}
+	 */
+	public EnginesApi(final SwiftypeClient client) {
+		this.client = client;
+	}
 
 	/**
 	 * @return	List of all your engines
 	 */
 	public Engine[] getAll() {
 		try {
-			final JSONArray enginesJson = new JSONArray(Client.get(ENGINES_PATH));
+			final JSONArray enginesJson = client().getJsonCodec().readArray(client().get(ENGINES_PATH));
 			final Engine[] engines = new Engine[enginesJson.length()];
 			for (int i = 0; i < engines.length; ++i) {
-				engines[i] = Engine.fromJson(enginesJson.getJSONObject(i));
+				engines[i] = Engine.fromJson(client, enginesJson.getJSONObject(i));
 			}
 			return engines;
 		} catch (JSONException e) {
@@ -32,12 +55,29 @@ public class EnginesApi {
 		}
 	}
 
+	/**
+	 * @return	Future of {@link #getAll()}
+	 */
+	public CompletableFuture<Engine[]> getAllAsync() {
+		return client().async(() -> getAll());
+	}
+
 	/**
 	 * @param engineId		Slug or id of an engine
 	 * @return				Engine matching the specified engineId
 	 */
 	public Engine get(final String engineId) {
-		return toEngine(Client.get(enginePath(engineId)));
+		final String path = enginePath(engineId);
+		// Only the response is shared, every caller gets its own Engine
+		return toEngine(client().coalesced(path, () -> client().get(path)));
+	}
+
+	/**
+	 * @param engineId		Slug or id of an engine
+	 * @return				Future of {@link #get(String)}
+	 */
+	public CompletableFuture<Engine> getAsync(final String engineId) {
+		return client().async(() -> get(engineId));
 	}
 
 	/**
@@ -45,23 +85,43 @@ public class EnginesApi {
 	 * @return			Created engine
 	 */
 	public Engine create(final String name) {
-		final String response = Client.post(ENGINES_PATH, "{\"engine\": {\"name\": \"" + name + "\"}}");
+		final String response = client().post(ENGINES_PATH, "{\"engine\": {\"name\": \"" + name + "\"}}");
 		return toEngine(response);
 	}
 
+	/**
+	 * @param name		Name of the engine
+	 * @return			Future of {@link #create(String)}
+	 */
+	public CompletableFuture<Engine> createAsync(final String name) {
+		return client().async(() -> create(name));
+	}
+
 	/**
 	 * @param engineId	Slug or id of an engine
 	 * @return			Success of deletion
+	 * @throws SwiftypeException	If the deletion failed for another reason than the request itself
 	 */
 	public boolean destroy(final String engineId) {
 		try {
-			Client.delete(enginePath(engineId));
+			client().delete(enginePath(engineId));
 			return true;
-		} catch (WebServiceException e) {
-			return false;
+		} catch (SwiftypeException e) {
+			if (e.isClientError()) {
+				return false;
+			}
+			throw e;
 		}
 	}
 
+	/**
+	 * @param engineId	Slug or id of an engine
+	 * @return			Future of {@link #destroy(String)}
+	 */
+	public CompletableFuture<Boolean> destroyAsync(final String engineId) {
+		return client().async(() -> destroy(engineId));
+	}
+
 	/**
 	 * @param engineId	Slug or id of an engine
 	 * @param query		Query terms for the search
@@ -71,6 +131,15 @@ public class EnginesApi {
 		return search(engineId, query, SearchOptions.DEFAULT);
 	}
 
+	/**
+	 * @param engineId	Slug or id of an engine
+	 * @param query		Query terms for the search
+	 * @return			Future of {@link #search(String, String)}
+	 */
+	public CompletableFuture<Map<String, SearchResult>> searchAsync(final String engineId, final String query) {
+		return searchAsync(engineId, query, SearchOptions.DEFAULT);
+	}
+
 	/**
 	 * @param engineId	Slug or id of an engine
 	 * @param query		Query terms for the search
@@ -78,7 +147,18 @@ public class EnginesApi {
 	 * @return			Search results per DocumentType
 	 */
 	public Map<String, SearchResult> search(final String engineId, final String query, final SearchOptions options) {
-		return toSearchResults(Client.post(enginePath(engineId) + "/search", options.withQuery(query)));
+		final String path = enginePath(engineId) + "/search";
+		return client().cached(path, query, options, () -> client().query(path, options.withQuery(query), SEARCH_RESULTS));
+	}
+
+	/**
+	 * @param engineId	Slug or id of an engine
+	 * @param query		Query terms for the search
+	 * @param options	Options for the search
+	 * @return			Future of {@link #search(String, String, SearchOptions)}
+	 */
+	public CompletableFuture<Map<String, SearchResult>> searchAsync(final String engineId, final String query, final SearchOptions options) {
+		return client().async(() -> search(engineId, query, options));
 	}
 
 	/**
@@ -90,6 +170,15 @@ public class EnginesApi {
 		return suggest(engineId, query, SearchOptions.DEFAULT);
 	}
 
+	/**
+	 * @param engineId	Slug or id of an engine
+	 * @param query		Query for the suggestions
+	 * @return			Future of {@link #suggest(String, String)}
+	 */
+	public CompletableFuture<Map<String, SuggestResult>> suggestAsync(final String engineId, final String query) {
+		return suggestAsync(engineId, query, SearchOptions.DEFAULT);
+	}
+
 	/**
 	 * @param engineId	Slug or id of an engine
 	 * @param query		Query for the suggestions
@@ -97,7 +186,72 @@ public class EnginesApi {
 	 * @return			Suggest results per DocumentType
 	 */
 	public Map<String, SuggestResult> suggest(final String engineId, final String query, final SearchOptions options) {
-		return toSuggestResults(Client.post(enginePath(engineId) + "/suggest", options.withQuery(query)));
+		final String path = enginePath(engineId) + "/suggest";
+		return client().cached(path, query, options, () -> client().query(path, options.withQuery(query), SUGGEST_RESULTS));
+	}
+
+	/**
+	 * @param engineId	Slug or id of an engine
+	 * @param query		Query for the suggestions
+	 * @param options	Options for the suggest
+	 * @return			Future of {@link #suggest(String, String, SearchOptions)}
+	 */
+	public CompletableFuture<Map<String, SuggestResult>> suggestAsync(final String engineId, final String query, final SearchOptions options) {
+		return client().async(() -> suggest(engineId, query, options));
+	}
+
+	/**
+	 * @param query	Search against the whole engine or, if the query names one, a single DocumentType
+	 * @return		Search results per DocumentType
+	 */
+	public Map<String, SearchResult> search(final Query query) {
+		if (query.getDocumentTypeId() == null) {
+			return search(query.getEngineId(), query.getQuery(), query.getOptions());
+		}
+		final DocumentTypesApi documentTypes = new DocumentTypesApi(client, query.getEngineId());
+		return Collections.singletonMap(query.getDocumentTypeId(), documentTypes.search(query.getDocumentTypeId(), query.getQuery(), query.getOptions()));
+	}
+
+	/**
+	 * @param query	Suggest against the whole engine or, if the query names one, a single DocumentType
+	 * @return		Suggest results per DocumentType
+	 */
+	public Map<String, SuggestResult> suggest(final Query query) {
+		if (query.getDocumentTypeId() == null) {
+			return suggest(query.getEngineId(), query.getQuery(), query.getOptions());
+		}
+		final DocumentTypesApi documentTypes = new DocumentTypesApi(client, query.getEngineId());
+		return Collections.singletonMap(query.getDocumentTypeId(), documentTypes.suggest(query.getDocumentTypeId(), query.getQuery(), query.getOptions()));
+	}
+
+	/**
+	 * Runs all searches at the same time on the executor of the client and waits for them. The first failing
+	 * search stops the searches not sent yet and is rethrown, see {@link SwiftypeClient#asyncAll(List)}.
+	 *
+	 * @param queries	Searches to run
+	 * @return			Results of every search in the order of the queries
+	 */
+	public List<Map<String, SearchResult>> searchAll(final Collection<Query> queries) {
+		final List<Supplier<Map<String, SearchResult>>> calls = new ArrayList<Supplier<Map<String, SearchResult>>>(queries.size());
+		for (final Query query : queries) {
+			calls.add(() -> search(query));
+		}
+		return client().asyncAll(calls);
+	}
+
+	/**
+	 * Runs all suggests at the same time on the executor of the client and waits for them. The first failing
+	 * suggest stops the suggests not sent yet and is rethrown, see {@link SwiftypeClient#asyncAll(List)}.
+	 *
+	 * @param queries	Suggests to run
+	 * @return			Suggestions of every query in the order of the queries
+	 */
+	public List<Map<String, SuggestResult>> suggestAll(final Collection<Query> queries) {
+		final List<Supplier<Map<String, SuggestResult>>> calls = new ArrayList<Supplier<Map<String, SuggestResult>>>(queries.size());
+		for (final Query query : queries) {
+			calls.add(() -> suggest(query));
+		}
+		return client().asyncAll(calls);
 	}
 
 	static String enginePath(final String engineId) {
@@ -106,28 +260,21 @@ public class EnginesApi {
 
 	private Engine toEngine(final String response){
 		try {
-			final JSONObject json = new JSONObject(response);
-			return Engine.fromJson(json);
+			final JSONObject json = client().getJsonCodec().readObject(response);
+			return Engine.fromJson(client, json);
 		} catch (JSONException e) {
 			throw new IllegalStateException(e.getMessage());
 		}
 	}
 
-	private Map<String, SearchResult> toSearchResults(final String response) {
-		try {
-			final JSONObject json = new JSONObject(response);
-			return SearchResult.fromJson(json);
-		} catch (JSONException e) {
-			throw new IllegalStateException(e.getMessage());
-		}
+	/**
+	 * @return	Client given to the constructor, may be null
+	 */
+	SwiftypeClient getClient() {
+		return client;
 	}
 
-	private Map<String, SuggestResult> toSuggestResults(final String response) {
-		try {
-			final JSONObject json = new JSONObject(response);
-			return SuggestResult.fromJson(json);
-		} catch (JSONException e) {
-			throw new IllegalStateException();
-		}
+	private SwiftypeClient client() {
+		return client == null ? SwiftypeConfig.INSTANCE.getClient() : client;
 	}
 }
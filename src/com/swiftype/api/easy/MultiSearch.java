@@ -0,0 +1,191 @@
+package com.swiftype.api.easy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.swiftype.api.easy.helper.Deadline;
+import com.swiftype.api.easy.helper.Query;
+import com.swiftype.api.easy.helper.SearchResult;
+import com.swiftype.api.easy.helper.SwiftypeClient;
+import com.swiftype.api.easy.helper.SwiftypeConfig;
+
+/**
+ * Runs a batch of searches in parallel, e.g. all searches of a results page, so the batch takes as long as
+ * its slowest search instead of the sum of all of them. The searches share one {@link Deadline} and at most
+ * the configured number of them are sent at the same time. A failing search doesn't fail the batch, its
+ * error is reported in its {@link Result}.
+ *
+ * <pre>
+ * final List&lt;MultiSearch.Result&gt; results = new MultiSearch.Builder().timeout(300, TimeUnit.MILLISECONDS).build()
+ * 		.search(new Query("youtube", "videos", "swiftype", options), new Query("youtube", "swiftype"));
+ * </pre>
+ *
+ */
+public class MultiSearch {
+	private final SwiftypeClient client;
+	private final EnginesApi api;
+	private final int maxConcurrent;
+	private final long timeoutNanos;
+
+	private MultiSearch(final Builder builder) {
+		client = builder.client;
+		api = new EnginesApi(client);
+		maxConcurrent = builder.maxConcurrent;
+		timeoutNanos = builder.timeoutNanos;
+	}
+
+	/**
+	 * @param queries	Searches to run
+	 * @return			Result of every search in the order of the queries
+	 * @see #search(List)
+	 */
+	public List<Result> search(final Query... queries) {
+		return search(Arrays.asList(queries));
+	}
+
+	/**
+	 * Runs the searches and waits until all of them are answered, failed or ran out of time.
+	 *
+	 * @param queries	Searches to run
+	 * @return			Result of every search in the order of the queries
+	 */
+	public List<Result> search(final List<Query> queries) {
+		final Result[] results = new Result[queries.size()];
+		if (timeoutNanos > 0) {
+			Deadline.after(timeoutNanos, TimeUnit.NANOSECONDS).run(() -> run(queries, results));
+		} else {
+			run(queries, results);
+		}
+		return Collections.unmodifiableList(Arrays.asList(results));
+	}
+
+	/**
+	 * Starts up to maxConcurrent workers taking the next query until all are done, so no more searches
+	 * are sent at once and the executor isn't flooded with tasks waiting for a slot.
+	 */
+	private void run(final List<Query> queries, final Result[] results) {
+		final AtomicInteger next = new AtomicInteger();
+		final int workers = Math.min(maxConcurrent, queries.size());
+		final List<CompletableFuture<Void>> running = new ArrayList<CompletableFuture<Void>>(workers);
+		for (int i = 0; i < workers; ++i) {
+			running.add(client().async(() -> {
+				for (int index = next.getAndIncrement(); index < results.length; index = next.getAndIncrement()) {
+					results[index] = searchOne(queries.get(index));
+				}
+				return null;
+			}));
+		}
+		for (final CompletableFuture<Void> worker : running) {
+			worker.join();
+		}
+	}
+
+	private Result searchOne(final Query query) {
+		try {
+			return new Result(query, api.search(query), null);
+		} catch (RuntimeException e) {
+			return new Result(query, null, e);
+		}
+	}
+
+	private SwiftypeClient client() {
+		return client == null ? SwiftypeConfig.INSTANCE.getClient() : client;
+	}
+
+	/**
+	 * Outcome of a single search of the batch.
+	 */
+	public static class Result {
+		private final Query query;
+		private final Map<String, SearchResult> results;
+		private final RuntimeException error;
+
+		private Result(final Query query, final Map<String, SearchResult> results, final RuntimeException error) {
+			this.query = query;
+			this.results = results;
+			this.error = error;
+		}
+
+		public Query getQuery() {
+			return query;
+		}
+
+		/**
+		 * @return	True if the search was answered
+		 */
+		public boolean isSuccess() {
+			return error == null;
+		}
+
+		/**
+		 * @return	Search results per DocumentType, only the queried DocumentType if the query names one,
+		 * 			or null if the search failed
+		 */
+		public Map<String, SearchResult> getResults() {
+			return results;
+		}
+
+		/**
+		 * @return	Reason the search failed, e.g. a {@link com.swiftype.api.easy.helper.DeadlineExceededException}
+		 * 			if it ran out of time, or null if it was answered
+		 */
+		public RuntimeException getError() {
+			return error;
+		}
+	}
+
+	public static class Builder {
+		private SwiftypeClient client;
+		private int maxConcurrent = 8;
+		private long timeoutNanos;
+
+		/**
+		 * @param client	Client sending the requests, null uses the client configured in {@link SwiftypeConfig}
+		 * @return			Builder to add more options. If your finished create the MultiSearch with {@link #build()}.
+		 */
+		public Builder client(final SwiftypeClient client) {
+			this.client = client;
+			return this;
+		}
+
+		/**
+		 * @param maxConcurrent	Searches of a batch sent at the same time
+		 * @return				Builder to add more options. If your finished create the MultiSearch with {@link #build()}.
+		 */
+		public Builder maxConcurrent(final int maxConcurrent) {
+			if (maxConcurrent < 1) {
+				throw new IllegalArgumentException("maxConcurrent has to be positive!");
+			}
+			this.maxConcurrent = maxConcurrent;
+			return this;
+		}
+
+		/**
+		 * @param timeout	Time for the whole batch, searches not answered by then fail with a
+		 * 					{@link com.swiftype.api.easy.helper.DeadlineExceededException}. By default the batch
+		 * 					only runs within the {@link Deadline} of the calling thread, if any.
+		 * @param unit		Unit of the timeout
+		 * @return			Builder to add more options. If your finished create the MultiSearch with {@link #build()}.
+		 */
+		public Builder timeout(final long timeout, final TimeUnit unit) {
+			if (timeout <= 0) {
+				throw new IllegalArgumentException("timeout has to be positive!");
+			}
+			this.timeoutNanos = unit.toNanos(timeout);
+			return this;
+		}
+
+		/**
+		 * @return		MultiSearch based on the supplied values to this builder.
+		 */
+		public MultiSearch build() {
+			return new MultiSearch(this);
+		}
+	}
+}
@@ -0,0 +1,366 @@
+package com.swiftype.api.easy.helper;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Finds the number of concurrent requests the API handles best, instead of a hand tuned thread count.
+ * Every answered request compares its round trip time with the shortest round trip time seen, the time
+ * the API needs without queueing: while they match, the limit grows, once requests get slower the limit
+ * shrinks by the same gradient. Requests failing with 429, a 5xx status or a broken connection cut the
+ * limit by the backoff ratio.
+ *
+ * Every probe interval the limit is halved and the shortest round trip time measured again, so it
+ * follows lasting changes of the API instead of the queueing caused by this client.
+ *
+ * Requests over the limit wait for a slot. The limit only grows while at least half of it is used,
+ * so a mostly idle client doesn't raise it without evidence.
+ *
+ */
+public class AdaptiveConcurrencyLimit implements AdaptiveConcurrencyLimitMXBean, Closeable {
+	/**
+	 * Domain and type of the MBeans, followed by a name key property per instance
+	 */
+	public static final String OBJECT_NAME = "com.swiftype.api.easy:type=AdaptiveConcurrencyLimit";
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final double rttTolerance;
+	private final double smoothing;
+	private final double backoffRatio;
+	private final int probeInterval;
+	private final long maxWaitNanos;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition slotFreed = lock.newCondition();
+	private double limit;
+	private long minRttNanos;
+	private int samplesUntilProbe;
+	private int inFlight;
+	private int queued;
+	private ObjectName objectName;
+
+	private AdaptiveConcurrencyLimit(final Builder builder) {
+		minLimit = builder.minLimit;
+		maxLimit = builder.maxLimit;
+		rttTolerance = builder.rttTolerance;
+		smoothing = builder.smoothing;
+		backoffRatio = builder.backoffRatio;
+		probeInterval = builder.probeInterval;
+		samplesUntilProbe = probeInterval;
+		maxWaitNanos = builder.maxWaitNanos;
+		limit = Math.max(minLimit, Math.min(maxLimit, builder.initialLimit));
+	}
+
+	/**
+	 * Takes a slot, waiting until one is free. Every slot has to be given back with {@link #onSuccess(long)},
+	 * {@link #onDropped()} or {@link #onIgnore()}.
+	 *
+	 * @return	Start of the request, to pass to {@link #onSuccess(long)}
+	 * @throws ConcurrencyLimitExceededException	If no slot got free within the maximum wait or the {@link Deadline} of the call
+	 */
+	public long acquire() {
+		long waitNanos = maxWaitNanos;
+		final Deadline deadline = Deadline.current();
+		if (deadline != null) {
+			waitNanos = Math.min(waitNanos, TimeUnit.MILLISECONDS.toNanos(Math.max(0, deadline.remainingMillis())));
+		}
+		lock.lock();
+		try {
+			if (inFlight >= (int) limit) {
+				++queued;
+				try {
+					while (inFlight >= (int) limit) {
+						if (waitNanos <= 0) {
+							throw new ConcurrencyLimitExceededException((int) limit);
+						}
+						try {
+							waitNanos = slotFreed.awaitNanos(waitNanos);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw new SwiftypeException("Interrupted while waiting below the concurrency limit", e);
+						}
+					}
+				} finally {
+					--queued;
+				}
+			}
+			++inFlight;
+			return System.nanoTime();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gives the slot back for a request the API answered, adapting the limit to its round trip time.
+	 *
+	 * @param startNanos	Start of the request as returned by {@link #acquire()}
+	 */
+	public void onSuccess(final long startNanos) {
+		final long rttNanos = System.nanoTime() - startNanos;
+		lock.lock();
+		try {
+			final int sampleInFlight = inFlight--;
+			if (minRttNanos == 0 || rttNanos < minRttNanos) {
+				minRttNanos = Math.max(1, rttNanos);
+			}
+			if (--samplesUntilProbe <= 0) {
+				samplesUntilProbe = probeInterval;
+				minRttNanos = 0;
+				setLimit(limit / 2);
+			} else if (sampleInFlight >= limit / 2) {
+				final double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * minRttNanos / Math.max(1, rttNanos)));
+				final double newLimit = limit * gradient + Math.sqrt(limit);
+				setLimit(limit * (1 - smoothing) + newLimit * smoothing);
+			}
+			slotFreed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gives the slot back for a request which failed with 429, a 5xx status or a broken connection,
+	 * cutting the limit.
+	 */
+	public void onDropped() {
+		lock.lock();
+		try {
+			--inFlight;
+			setLimit(limit * backoffRatio);
+			slotFreed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gives the slot back for a request which tells nothing about the load of the API, e.g. because it was not sent.
+	 */
+	public void onIgnore() {
+		lock.lock();
+		try {
+			--inFlight;
+			slotFreed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int getLimit() {
+		lock.lock();
+		try {
+			return (int) limit;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int getInFlight() {
+		lock.lock();
+		try {
+			return inFlight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int getQueued() {
+		lock.lock();
+		try {
+			return queued;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public double getMinRttMillis() {
+		lock.lock();
+		try {
+			return (double) minRttNanos / TimeUnit.MILLISECONDS.toNanos(1);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Registers this limit with the platform MBean server under {@link #OBJECT_NAME} and the name default.
+	 *
+	 * @return	This limit
+	 * @see #registerMBean(String)
+	 */
+	public AdaptiveConcurrencyLimit registerMBean() {
+		return registerMBean("default");
+	}
+
+	/**
+	 * Registers this limit with the platform MBean server under {@link #OBJECT_NAME} and the given name,
+	 * e.g. com.swiftype.api.easy:type=AdaptiveConcurrencyLimit,name=indexer. {@link #close()} unregisters it.
+	 *
+	 * @param name	Name telling the limits of several clients apart
+	 * @return		This limit
+	 * @throws IllegalStateException	If another limit is already registered under the name
+	 */
+	public synchronized AdaptiveConcurrencyLimit registerMBean(final String name) {
+		if (name == null) {
+			throw new IllegalArgumentException("name must not be null!");
+		}
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			final ObjectName objectName = new ObjectName(OBJECT_NAME + ",name=" + ObjectName.quote(name));
+			if (objectName.equals(this.objectName)) {
+				return this;
+			}
+			// An MXBean can only be registered under one name at a time
+			close();
+			server.registerMBean(this, objectName);
+			this.objectName = objectName;
+		} catch (JMException e) {
+			throw new IllegalStateException("Could not register " + OBJECT_NAME + " '" + name + "': " + e.getMessage());
+		}
+		return this;
+	}
+
+	/**
+	 * Removes this limit from the platform MBean server, if it was registered. Close the limit once no client
+	 * uses it anymore, it keeps working as a limit.
+	 */
+	@Override
+	public synchronized void close() {
+		if (objectName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (JMException e) {
+			// Already unregistered through the MBean server
+		}
+		objectName = null;
+	}
+
+	private void setLimit(final double newLimit) {
+		final double previous = limit;
+		limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+		if ((int) limit > (int) previous) {
+			slotFreed.signalAll();
+		}
+	}
+
+	public static class Builder {
+		private int initialLimit = 20;
+		private int minLimit = 1;
+		private int maxLimit = 200;
+		private double rttTolerance = 1.5;
+		private double smoothing = 0.2;
+		private double backoffRatio = 0.9;
+		private int probeInterval = 1000;
+		private long maxWaitNanos = Long.MAX_VALUE;
+
+		/**
+		 * @param initialLimit	Number of concurrent requests allowed before any request was answered
+		 * @return				Builder to add more options. If your finished create the limit with {@link #build()}.
+		 */
+		public Builder initialLimit(final int initialLimit) {
+			if (initialLimit < 1) {
+				throw new IllegalArgumentException("initialLimit has to be positive!");
+			}
+			this.initialLimit = initialLimit;
+			return this;
+		}
+
+		/**
+		 * @param minLimit	Lowest limit, even while the API is overloaded
+		 * @param maxLimit	Highest limit, even while the API is fast
+		 * @return			Builder to add more options. If your finished create the limit with {@link #build()}.
+		 */
+		public Builder limits(final int minLimit, final int maxLimit) {
+			if (minLimit < 1 || maxLimit < minLimit) {
+				throw new IllegalArgumentException("Limits have to be positive and minLimit must not exceed maxLimit!");
+			}
+			this.minLimit = minLimit;
+			this.maxLimit = maxLimit;
+			return this;
+		}
+
+		/**
+		 * @param rttTolerance	Factor by which the round trip time may exceed the minimum round trip time before the limit shrinks
+		 * @return				Builder to add more options. If your finished create the limit with {@link #build()}.
+		 */
+		public Builder rttTolerance(final double rttTolerance) {
+			if (!(rttTolerance >= 1)) {
+				throw new IllegalArgumentException("rttTolerance must not be less than 1!");
+			}
+			this.rttTolerance = rttTolerance;
+			return this;
+		}
+
+		/**
+		 * @param smoothing	Share of a new estimate taken over into the limit, between 0 exclusive and 1
+		 * @return			Builder to add more options. If your finished create the limit with {@link #build()}.
+		 */
+		public Builder smoothing(final double smoothing) {
+			if (!(smoothing > 0 && smoothing <= 1)) {
+				throw new IllegalArgumentException("smoothing has to be in (0, 1]!");
+			}
+			this.smoothing = smoothing;
+			return this;
+		}
+
+		/**
+		 * @param backoffRatio	Factor the limit is multiplied with for every dropped request, between 0 and 1 exclusive
+		 * @return				Builder to add more options. If your finished create the limit with {@link #build()}.
+		 */
+		public Builder backoffRatio(final double backoffRatio) {
+			if (!(backoffRatio > 0 && backoffRatio < 1)) {
+				throw new IllegalArgumentException("backoffRatio has to be in (0, 1)!");
+			}
+			this.backoffRatio = backoffRatio;
+			return this;
+		}
+
+		/**
+		 * @param probeInterval	Number of answered requests after which the shortest round trip time is measured again
+		 * @return				Builder to add more options. If your finished create the limit with {@link #build()}.
+		 */
+		public Builder probeInterval(final int probeInterval) {
+			if (probeInterval < 1) {
+				throw new IllegalArgumentException("probeInterval has to be positive!");
+			}
+			this.probeInterval = probeInterval;
+			return this;
+		}
+
+		/**
+		 * @param maxWait	Longest time a request waits for a slot before failing with a
+		 * 					{@link ConcurrencyLimitExceededException}. By default requests wait as long as needed.
+		 * @param unit		Unit of the maximum wait
+		 * @return			Builder to add more options. If your finished create the limit with {@link #build()}.
+		 */
+		public Builder maxWait(final long maxWait, final TimeUnit unit) {
+			if (maxWait < 0) {
+				throw new IllegalArgumentException("maxWait must not be negative!");
+			}
+			this.maxWaitNanos = unit.toNanos(maxWait);
+			return this;
+		}
+
+		/**
+		 * @return		AdaptiveConcurrencyLimit based on the supplied values to this builder.
+		 */
+		public AdaptiveConcurrencyLimit build() {
+			return new AdaptiveConcurrencyLimit(this);
+		}
+	}
+}
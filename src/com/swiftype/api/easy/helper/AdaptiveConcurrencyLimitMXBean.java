@@ -0,0 +1,27 @@
+package com.swiftype.api.easy.helper;
+
+/**
+ * JMX view of {@link AdaptiveConcurrencyLimit}.
+ *
+ */
+public interface AdaptiveConcurrencyLimitMXBean {
+	/**
+	 * @return	Current number of requests which may be sent at the same time
+	 */
+	int getLimit();
+
+	/**
+	 * @return	Number of requests currently sent
+	 */
+	int getInFlight();
+
+	/**
+	 * @return	Number of requests currently waiting for a slot
+	 */
+	int getQueued();
+
+	/**
+	 * @return	Shortest round trip time since the last probe, in milliseconds
+	 */
+	double getMinRttMillis();
+}
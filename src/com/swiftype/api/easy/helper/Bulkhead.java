@@ -0,0 +1,217 @@
+package com.swiftype.api.easy.helper;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounds the number of concurrent requests and keeps background traffic like bulk indexing or exports
+ * from delaying interactive reads like search and suggest. Background requests may only use part of the
+ * slots, and a free slot always goes to a waiting interactive request first.
+ *
+ * Requests which can't get a slot within their maximum queue time or their {@link Deadline} are shed
+ * with a {@link BulkheadFullException}.
+ *
+ */
+public class Bulkhead {
+	public enum Priority {
+		INTERACTIVE, BACKGROUND;
+
+		/**
+		 * @param method	HTTP method
+		 * @param endpoint	Endpoint template, see {@link RequestMetrics#endpointOf(String)}
+		 * @return			INTERACTIVE for searches, suggests and reads of a single resource, BACKGROUND for
+		 * 					writes, listings and analytics
+		 */
+		public static Priority of(final String method, final String endpoint) {
+			final RateLimiter.EndpointClass endpointClass = RateLimiter.EndpointClass.of(endpoint);
+			if (endpointClass == RateLimiter.EndpointClass.SEARCH || endpointClass == RateLimiter.EndpointClass.SUGGEST) {
+				return INTERACTIVE;
+			}
+			if ("GET".equals(method) && endpoint.endsWith("{id}")) {
+				return INTERACTIVE;
+			}
+			return BACKGROUND;
+		}
+	}
+
+	private final int maxConcurrent;
+	private final int maxBackground;
+	private final long[] maxQueueNanos = new long[Priority.values().length];
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition slotFreed = lock.newCondition();
+	private final int[] inFlight = new int[Priority.values().length];
+	private final int[] queued = new int[Priority.values().length];
+	private final AtomicLong[] shed = new AtomicLong[Priority.values().length];
+
+	private Bulkhead(final Builder builder) {
+		maxConcurrent = builder.maxConcurrent;
+		maxBackground = Math.min(builder.maxBackground, builder.maxConcurrent);
+		maxQueueNanos[Priority.INTERACTIVE.ordinal()] = builder.maxInteractiveQueueNanos;
+		maxQueueNanos[Priority.BACKGROUND.ordinal()] = builder.maxBackgroundQueueNanos;
+		for (int i = 0; i < shed.length; ++i) {
+			shed[i] = new AtomicLong();
+		}
+	}
+
+	/**
+	 * Takes a slot, waiting until one is free. Every slot has to be given back with {@link #release(Priority)}.
+	 *
+	 * @param priority	Priority of the request
+	 * @throws BulkheadFullException	If no slot got free within the maximum queue time or the {@link Deadline} of the call
+	 */
+	public void acquire(final Priority priority) {
+		long waitNanos = maxQueueNanos[priority.ordinal()];
+		final Deadline deadline = Deadline.current();
+		if (deadline != null) {
+			waitNanos = Math.min(waitNanos, TimeUnit.MILLISECONDS.toNanos(Math.max(0, deadline.remainingMillis())));
+		}
+		lock.lock();
+		try {
+			if (hasSlot(priority)) {
+				++inFlight[priority.ordinal()];
+				return;
+			}
+			++queued[priority.ordinal()];
+			try {
+				while (!hasSlot(priority)) {
+					if (waitNanos <= 0) {
+						shed[priority.ordinal()].incrementAndGet();
+						throw new BulkheadFullException(priority);
+					}
+					try {
+						waitNanos = slotFreed.awaitNanos(waitNanos);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SwiftypeException("Interrupted while waiting for a " + priority + " slot", e);
+					}
+				}
+			} finally {
+				--queued[priority.ordinal()];
+				// Leaving the queue may let background requests through
+				slotFreed.signalAll();
+			}
+			++inFlight[priority.ordinal()];
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @param priority	Priority the slot was acquired with
+	 */
+	public void release(final Priority priority) {
+		lock.lock();
+		try {
+			--inFlight[priority.ordinal()];
+			slotFreed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @param priority	Priority of the requests
+	 * @return			Number of requests with the priority currently sent
+	 */
+	public int getInFlight(final Priority priority) {
+		lock.lock();
+		try {
+			return inFlight[priority.ordinal()];
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @param priority	Priority of the requests
+	 * @return			Number of requests with the priority currently waiting for a slot
+	 */
+	public int getQueued(final Priority priority) {
+		lock.lock();
+		try {
+			return queued[priority.ordinal()];
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @param priority	Priority of the requests
+	 * @return			Number of requests with the priority which were not sent because no slot got free in time
+	 */
+	public long getShed(final Priority priority) {
+		return shed[priority.ordinal()].get();
+	}
+
+	private boolean hasSlot(final Priority priority) {
+		final int interactive = inFlight[Priority.INTERACTIVE.ordinal()];
+		final int background = inFlight[Priority.BACKGROUND.ordinal()];
+		if (interactive + background >= maxConcurrent) {
+			return false;
+		}
+		if (priority == Priority.INTERACTIVE) {
+			return true;
+		}
+		return background < maxBackground && queued[Priority.INTERACTIVE.ordinal()] == 0;
+	}
+
+	public static class Builder {
+		private int maxConcurrent = 20;
+		private int maxBackground = 10;
+		private long maxInteractiveQueueNanos = TimeUnit.SECONDS.toNanos(1);
+		private long maxBackgroundQueueNanos = Long.MAX_VALUE;
+
+		/**
+		 * @param maxConcurrent	Maximum number of requests sent at the same time
+		 * @return				Builder to add more options. If your finished create the bulkhead with {@link #build()}.
+		 */
+		public Builder maxConcurrent(final int maxConcurrent) {
+			if (maxConcurrent < 1) {
+				throw new IllegalArgumentException("maxConcurrent has to be positive!");
+			}
+			this.maxConcurrent = maxConcurrent;
+			return this;
+		}
+
+		/**
+		 * @param maxBackground	Maximum number of background requests sent at the same time, the remaining slots
+		 * 						are kept free for interactive requests
+		 * @return				Builder to add more options. If your finished create the bulkhead with {@link #build()}.
+		 */
+		public Builder maxBackground(final int maxBackground) {
+			if (maxBackground < 1) {
+				throw new IllegalArgumentException("maxBackground has to be positive!");
+			}
+			this.maxBackground = maxBackground;
+			return this;
+		}
+
+		/**
+		 * @param priority		Priority of the requests
+		 * @param maxQueueTime	Longest time a request waits for a slot before it is shed
+		 * @param unit			Unit of the maximum queue time
+		 * @return				Builder to add more options. If your finished create the bulkhead with {@link #build()}.
+		 */
+		public Builder maxQueueTime(final Priority priority, final long maxQueueTime, final TimeUnit unit) {
+			if (maxQueueTime < 0) {
+				throw new IllegalArgumentException("maxQueueTime must not be negative!");
+			}
+			if (priority == Priority.INTERACTIVE) {
+				maxInteractiveQueueNanos = unit.toNanos(maxQueueTime);
+			} else {
+				maxBackgroundQueueNanos = unit.toNanos(maxQueueTime);
+			}
+			return this;
+		}
+
+		/**
+		 * @return		Bulkhead based on the supplied values to this builder.
+		 */
+		public Bulkhead build() {
+			return new Bulkhead(this);
+		}
+	}
+}
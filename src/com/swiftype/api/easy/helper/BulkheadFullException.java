@@ -0,0 +1,31 @@
+package com.swiftype.api.easy.helper;
+
+/**
+ * Thrown without sending the request if the {@link Bulkhead} had no free slot for it in time.
+ *
+ */
+public class BulkheadFullException extends SwiftypeException {
+	private static final long serialVersionUID = 1L;
+
+	private final Bulkhead.Priority priority;
+
+	/**
+	 * @param priority	Priority of the request which was shed
+	 */
+	public BulkheadFullException(final Bulkhead.Priority priority) {
+		super("No slot for " + priority + " request available in time, request not sent.", null);
+		this.priority = priority;
+	}
+
+	public Bulkhead.Priority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * @return	False, the API is already busy with other requests of this client
+	 */
+	@Override
+	public boolean isRetryable() {
+		return false;
+	}
+}
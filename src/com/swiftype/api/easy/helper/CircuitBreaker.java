@@ -0,0 +1,164 @@
+package com.swiftype.api.easy.helper;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks failing requests per host. After a number of consecutive failures the circuit of the host opens
+ * and requests fail fast with a {@link CircuitOpenException} instead of waiting on a degraded API.
+ * Once the open duration passed, a single trial request is let through. If it succeeds the circuit closes,
+ * otherwise it opens again.
+ *
+ */
+public class CircuitBreaker {
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final int failureThreshold;
+	private final long openMillis;
+	private final ConcurrentMap<String, Circuit> circuits = new ConcurrentHashMap<String, Circuit>();
+
+	private CircuitBreaker(final Builder builder) {
+		failureThreshold = builder.failureThreshold;
+		openMillis = builder.openMillis;
+	}
+
+	/**
+	 * @param host	Host the request is sent to
+	 * @throws CircuitOpenException	If the circuit of the host is open
+	 */
+	public void acquire(final String host) {
+		if (!circuit(host).tryAcquire()) {
+			throw new CircuitOpenException(host);
+		}
+	}
+
+	/**
+	 * @param host	Host which answered a request
+	 */
+	public void onSuccess(final String host) {
+		circuit(host).onSuccess();
+	}
+
+	/**
+	 * @param host	Host which failed a request with a 5xx status or a connection failure
+	 */
+	public void onFailure(final String host) {
+		circuit(host).onFailure();
+	}
+
+	/**
+	 * Ends a request which tells nothing about the health of the host, e.g. because it was never sent.
+	 * A trial request of a half open circuit is let through again.
+	 *
+	 * @param host	Host the request was acquired for
+	 */
+	public void onIgnore(final String host) {
+		circuit(host).onIgnore();
+	}
+
+	/**
+	 * @param host	Host to look up
+	 * @return		Current state of the circuit of the host
+	 */
+	public State getState(final String host) {
+		return circuit(host).getState();
+	}
+
+	private Circuit circuit(final String host) {
+		Circuit circuit = circuits.get(host);
+		if (circuit == null) {
+			final Circuit created = new Circuit();
+			circuit = circuits.putIfAbsent(host, created);
+			if (circuit == null) {
+				circuit = created;
+			}
+		}
+		return circuit;
+	}
+
+	private class Circuit {
+		private State state = State.CLOSED;
+		private int failures;
+		private long openedAt;
+		private boolean trialRunning;
+
+		private synchronized boolean tryAcquire() {
+			if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+				state = State.HALF_OPEN;
+				trialRunning = false;
+			}
+			switch (state) {
+			case CLOSED:
+				return true;
+			case HALF_OPEN:
+				if (trialRunning) {
+					return false;
+				}
+				trialRunning = true;
+				return true;
+			default:
+				return false;
+			}
+		}
+
+		private synchronized void onSuccess() {
+			state = State.CLOSED;
+			failures = 0;
+			trialRunning = false;
+		}
+
+		private synchronized void onFailure() {
+			++failures;
+			if (state == State.HALF_OPEN || failures >= failureThreshold) {
+				state = State.OPEN;
+				openedAt = System.currentTimeMillis();
+				trialRunning = false;
+			}
+		}
+
+		private synchronized void onIgnore() {
+			trialRunning = false;
+		}
+
+		private synchronized State getState() {
+			return state;
+		}
+	}
+
+	public static class Builder {
+		private int failureThreshold = 5;
+		private long openMillis = TimeUnit.SECONDS.toMillis(30);
+
+		/**
+		 * @param failureThreshold	Consecutive failures opening the circuit of a host
+		 * @return					Builder to add more options. If your finished create the breaker with {@link #build()}.
+		 */
+		public Builder failureThreshold(final int failureThreshold) {
+			if (failureThreshold < 1) {
+				throw new IllegalArgumentException("failureThreshold has to be positive!");
+			}
+			this.failureThreshold = failureThreshold;
+			return this;
+		}
+
+		/**
+		 * @param duration	Time the circuit stays open before a trial request is let through
+		 * @param unit		Unit of the duration
+		 * @return			Builder to add more options. If your finished create the breaker with {@link #build()}.
+		 */
+		public Builder openDuration(final long duration, final TimeUnit unit) {
+			this.openMillis = unit.toMillis(duration);
+			return this;
+		}
+
+		/**
+		 * @return		CircuitBreaker based on the supplied values to this builder.
+		 */
+		public CircuitBreaker build() {
+			return new CircuitBreaker(this);
+		}
+	}
+}
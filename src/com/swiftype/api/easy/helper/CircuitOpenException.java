@@ -0,0 +1,31 @@
+package com.swiftype.api.easy.helper;
+
+/**
+ * Thrown without sending the request while the {@link CircuitBreaker} of the host is open.
+ *
+ */
+public class CircuitOpenException extends SwiftypeException {
+	private static final long serialVersionUID = 1L;
+
+	private final String host;
+
+	/**
+	 * @param host	Host the circuit breaker is open for
+	 */
+	public CircuitOpenException(final String host) {
+		super("Circuit breaker for " + host + " is open, request not sent.", null);
+		this.host = host;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	/**
+	 * @return	False, requests fail fast until the breaker lets a trial request through
+	 */
+	@Override
+	public boolean isRetryable() {
+		return false;
+	}
+}
@@ -1,151 +1,117 @@
 package com.swiftype.api.easy.helper;
 
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.UnsupportedEncodingException;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLEncoder;
-import java.util.Arrays;
-
-import javax.xml.ws.WebServiceException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
+import org.json.JSONException;
 
+/**
+ * Sends requests with the {@link SwiftypeClient} configured in {@link SwiftypeConfig}.
+ *
+ */
 public class Client {
-	private static final String USER_AGENT;
-	private static final SwiftypeConfig CONFIG;
 
-	static {
-		CONFIG = SwiftypeConfig.INSTANCE;
-		USER_AGENT = "Swiftype/Java-" + CONFIG.version;
+	public static String get(final String path, final String[] ... params) {
+		return client().get(path, params);
 	}
 
-	public static String get(final String path, final String[] ... params) {
-		return requestWithoutBody("GET", path, params);
+	/**
+	 * @param path		Path of the resource
+	 * @param parser	Parser reading the response body while it is received
+	 * @param params	Query parameters as name value pairs
+	 * @return			Result of the parser
+	 */
+	public static <T> T get(final String path, final ResponseParser<T> parser, final String[] ... params) {
+		return client().get(path, parser, params);
 	}
 
 	public static String post(final String path, final String data) {
-		return requestWithBody("POST", path, data);
+		return client().post(path, data);
+	}
+
+	/**
+	 * @param path	Path of the resource
+	 * @param body	Request body written while the request is sent
+	 * @return		Response body
+	 */
+	public static String post(final String path, final Transport.RequestBody body) {
+		return client().post(path, body);
+	}
+
+	/**
+	 * @param path		Path of the resource
+	 * @param data		JSON request body
+	 * @param parser	Parser reading the response body while it is received
+	 * @return			Result of the parser
+	 */
+	public static <T> T post(final String path, final String data, final ResponseParser<T> parser) {
+		return client().post(path, data, parser);
+	}
+
+	/**
+	 * @see SwiftypeClient#query(String, String, ResponseParser)
+	 */
+	public static <T> T query(final String path, final String data, final ResponseParser<T> parser) {
+		return client().query(path, data, parser);
 	}
 
 	public static String put(final String path, final String data) {
-		return requestWithBody("PUT", path, data);
+		return client().put(path, data);
+	}
+
+	/**
+	 * @param path	Path of the resource
+	 * @param body	Request body written while the request is sent
+	 * @return		Response body
+	 */
+	public static String put(final String path, final Transport.RequestBody body) {
+		return client().put(path, body);
+	}
+
+	/**
+	 * @param path		Path of the resource
+	 * @param data		JSON request body
+	 * @param parser	Parser reading the response body while it is received
+	 * @return			Result of the parser
+	 */
+	public static <T> T put(final String path, final String data, final ResponseParser<T> parser) {
+		return client().put(path, data, parser);
 	}
 
 	public static String delete(final String path, final String[] ... params) {
-		return requestWithoutBody("DELETE", path, params);
+		return client().delete(path, params);
+	}
+
+	/**
+	 * @see SwiftypeClient#async(Supplier)
+	 */
+	public static <T> CompletableFuture<T> async(final Supplier<T> call) {
+		return client().async(call);
 	}
 
-	private static String requestWithoutBody(final String method, final String path, final String[] ... params) {
-		final URL url = buildUrl(path, params);
-		try {
-			final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-			connection.setRequestMethod(method);
-			connection.setRequestProperty("User-Agent", USER_AGENT);
-
-			final int status = connection.getResponseCode();
-
-			final boolean isSuccess = (status / 100 == 2);
-			InputStream in = isSuccess ? connection.getInputStream() : connection.getErrorStream();
-
-			final StringBuilder sb = new StringBuilder();
-			if (in != null) {
-				final BufferedReader reader = new BufferedReader(new InputStreamReader(in));
-				String line;
-				while ((line = reader.readLine()) != null) {
-					sb.append(line);
-					sb.append("\n");
-				}
-				reader.close();
-			}
-
-			if (!isSuccess) {
-				errorResponse(status, sb.toString());
-			}
-
-			return sb.toString();
-		} catch (FileNotFoundException e) {
-			throw new WebServiceException(e.getMessage());
-		} catch (IOException e) {
-			throw new WebServiceException(e.getMessage());
-		}
+	/**
+	 * @see SwiftypeClient#cached(String, String, SearchOptions, Supplier)
+	 */
+	public static <T> T cached(final String path, final String query, final SearchOptions options, final Supplier<T> call) {
+		return client().cached(path, query, options, call);
 	}
 
-	private static String requestWithBody(final String method, final String path, final String data) {
-		final URL url = buildUrl(path);
-		try {
-			final byte[] dataBytes = data.getBytes("UTF-8");
-			final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-			connection.setDoOutput(true);
-			connection.setRequestMethod(method);
-			connection.setRequestProperty("User-Agent", USER_AGENT);
-			connection.setRequestProperty("Content-Type", "application/json");
-			connection.setRequestProperty("Accept", "application/json");
-			connection.setRequestProperty("Content-Length", Integer.toString(dataBytes.length));
-
-			final OutputStream out = connection.getOutputStream();
-			out.write(dataBytes);
-			out.flush();
-			final int status = connection.getResponseCode();
-
-			final boolean isSuccess = (status / 100 == 2);
-			InputStream in = isSuccess ? connection.getInputStream() : connection.getErrorStream();
-
-			final StringBuilder sb = new StringBuilder();
-			if (in != null) {
-				final BufferedReader reader = new BufferedReader(new InputStreamReader(in));
-				String line;
-				while((line = reader.readLine()) != null) {
-					sb.append(line);
-					sb.append("\n");
-				}
-				reader.close();
-			}
-
-			if (!isSuccess) {
-				errorResponse(status, sb.toString());
-			}
-
-			return sb.toString();
-		} catch (FileNotFoundException e) {
-			throw new WebServiceException(e.getMessage());
-		} catch (IOException e) {
-			throw new WebServiceException(e.getMessage());
-		}
+	/**
+	 * @see SwiftypeClient#coalesced(String, Supplier)
+	 */
+	public static <T> T coalesced(final String path, final Supplier<T> call) {
+		return client().coalesced(path, call);
 	}
 
-	private static URL buildUrl(final String path, final String[] ... params) {
-		final StringBuilder sb = new StringBuilder();
-		sb.append(CONFIG.getBaseUrl() + path + ".json?auth_token=" + CONFIG.getApiKey());
-		try {
-			for (String[] param : params) {
-				sb.append("&");
-				sb.append(URLEncoder.encode(param[0], "UTF-8"));
-				sb.append("=");
-				sb.append(URLEncoder.encode(param[1], "UTF-8"));
-			}
-			return new URL(sb.toString());
-		} catch (MalformedURLException e) {
-			throw new IllegalArgumentException("'" + sb.toString() + "' is not a valid URL.");
-		} catch (UnsupportedEncodingException e) {
-			final StringBuilder paramsSb = new StringBuilder();
-			for (final String[] param : params) {
-				paramsSb.append(Arrays.toString(param));
-				paramsSb.append(", ");
-			}
-			if (params.length > 0) {
-				sb.deleteCharAt(sb.length() - 1);
-			}
-			throw new IllegalArgumentException("'" + paramsSb.toString() + "' is no valid parameter set.");
-		}
+	/**
+	 * Builds the result of a request directly from the JSON tokens of the response body.
+	 */
+	public interface ResponseParser<T> {
+		T parse(JsonReader reader) throws IOException, JSONException;
 	}
 
-	private static void errorResponse(final int status, final String body) {
-		throw new WebServiceException("Status: " + status + ", Body: " + body);
+	private static SwiftypeClient client() {
+		return SwiftypeConfig.INSTANCE.getClient();
 	}
 }
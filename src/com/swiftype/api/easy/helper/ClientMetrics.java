@@ -0,0 +1,214 @@
+package com.swiftype.api.easy.helper;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Collects a {@link LatencyHistogram} per endpoint template, method, status and phase of the requests.
+ * Every {@link SwiftypeClient} collects into its own instance unless one is passed to its builder, see
+ * {@link SwiftypeClient#getMetrics()} and {@link SwiftypeConfig#getMetrics()}. Use {@link #registerMBean(String)}
+ * to publish them over JMX.
+ *
+ */
+public class ClientMetrics implements MetricsListener, ClientMetricsMXBean {
+	/**
+	 * Domain and type of the MBeans, followed by a name key property per instance
+	 */
+	public static final String OBJECT_NAME = "com.swiftype.api.easy:type=ClientMetrics";
+
+	public enum Phase {
+		CONNECT, TIME_TO_FIRST_BYTE, BODY_READ, PARSE, TOTAL
+	}
+
+	private final ConcurrentMap<String, Histograms> histograms = new ConcurrentHashMap<String, Histograms>();
+	private ObjectName objectName;
+
+	@Override
+	public void onRequest(final RequestMetrics metrics) {
+		final Histograms endpoint = histogramsFor(metrics.getEndpoint(), metrics.getMethod(), metrics.getStatus());
+		endpoint.get(Phase.CONNECT).record(metrics.getConnectNanos());
+		endpoint.get(Phase.TIME_TO_FIRST_BYTE).record(metrics.getTimeToFirstByteNanos());
+		endpoint.get(Phase.BODY_READ).record(metrics.getBodyReadNanos());
+		endpoint.get(Phase.PARSE).record(metrics.getParseNanos());
+		endpoint.get(Phase.TOTAL).record(metrics.getTotalNanos());
+	}
+
+	/**
+	 * @param endpoint	Endpoint template, see {@link RequestMetrics#endpointOf(String)}
+	 * @param method	HTTP method
+	 * @param status	HTTP status or {@link SwiftypeException#NO_RESPONSE}
+	 * @param phase		Phase of the requests
+	 * @return			Histogram of the matching requests or null if there was none
+	 */
+	public LatencyHistogram getHistogram(final String endpoint, final String method, final int status, final Phase phase) {
+		final Histograms endpointHistograms = histograms.get(key(endpoint, method, status));
+		return endpointHistograms == null ? null : endpointHistograms.get(phase);
+	}
+
+	@Override
+	public List<EndpointStats> getEndpointStats() {
+		final List<EndpointStats> stats = new ArrayList<EndpointStats>(histograms.size());
+		for (final Histograms endpoint : histograms.values()) {
+			stats.add(new EndpointStats(endpoint));
+		}
+		return stats;
+	}
+
+	@Override
+	public void reset() {
+		histograms.clear();
+	}
+
+	/**
+	 * Registers these metrics with the platform MBean server under {@link #OBJECT_NAME} and the name default.
+	 *
+	 * @return	This metrics
+	 * @see #registerMBean(String)
+	 */
+	public ClientMetrics registerMBean() {
+		return registerMBean("default");
+	}
+
+	/**
+	 * Registers these metrics with the platform MBean server under {@link #OBJECT_NAME} and the given name,
+	 * e.g. com.swiftype.api.easy:type=ClientMetrics,name=indexer. A client unregisters the metrics it created
+	 * when it is closed.
+	 *
+	 * @param name	Name telling the metrics of several clients apart
+	 * @return		This metrics
+	 * @throws IllegalStateException	If other metrics are already registered under the name
+	 */
+	public synchronized ClientMetrics registerMBean(final String name) {
+		if (name == null) {
+			throw new IllegalArgumentException("name must not be null!");
+		}
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			final ObjectName objectName = new ObjectName(OBJECT_NAME + ",name=" + ObjectName.quote(name));
+			if (objectName.equals(this.objectName)) {
+				return this;
+			}
+			// An MXBean can only be registered under one name at a time
+			unregisterMBean();
+			server.registerMBean(this, objectName);
+			this.objectName = objectName;
+		} catch (JMException e) {
+			throw new IllegalStateException("Could not register " + OBJECT_NAME + " '" + name + "': " + e.getMessage());
+		}
+		return this;
+	}
+
+	/**
+	 * Removes these metrics from the platform MBean server, if they were registered.
+	 */
+	public synchronized void unregisterMBean() {
+		if (objectName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (JMException e) {
+			// Already unregistered through the MBean server
+		}
+		objectName = null;
+	}
+
+	private Histograms histogramsFor(final String endpoint, final String method, final int status) {
+		final String key = key(endpoint, method, status);
+		Histograms endpointHistograms = histograms.get(key);
+		if (endpointHistograms == null) {
+			final Histograms created = new Histograms(endpoint, method, status);
+			endpointHistograms = histograms.putIfAbsent(key, created);
+			if (endpointHistograms == null) {
+				endpointHistograms = created;
+			}
+		}
+		return endpointHistograms;
+	}
+
+	private static String key(final String endpoint, final String method, final int status) {
+		return method + " " + endpoint + " " + status;
+	}
+
+	private static class Histograms {
+		private final String endpoint;
+		private final String method;
+		private final int status;
+		private final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+
+		private Histograms(final String endpoint, final String method, final int status) {
+			this.endpoint = endpoint;
+			this.method = method;
+			this.status = status;
+			for (int i = 0; i < phases.length; ++i) {
+				phases[i] = new LatencyHistogram();
+			}
+		}
+
+		private LatencyHistogram get(final Phase phase) {
+			return phases[phase.ordinal()];
+		}
+	}
+
+	/**
+	 * Snapshot of the latencies of one endpoint template, method and status in milliseconds.
+	 */
+	public static class EndpointStats {
+		private final Histograms histograms;
+
+		private EndpointStats(final Histograms histograms) {
+			this.histograms = histograms;
+		}
+
+		public String getEndpoint() {
+			return histograms.endpoint;
+		}
+
+		public String getMethod() {
+			return histograms.method;
+		}
+
+		public int getStatus() {
+			return histograms.status;
+		}
+
+		public long getCount() {
+			return histograms.get(Phase.TOTAL).getCount();
+		}
+
+		public double getTotalP50Millis() {
+			return histograms.get(Phase.TOTAL).getPercentileMillis(50);
+		}
+
+		public double getTotalP99Millis() {
+			return histograms.get(Phase.TOTAL).getPercentileMillis(99);
+		}
+
+		public double getTotalMaxMillis() {
+			return histograms.get(Phase.TOTAL).getMaxMillis();
+		}
+
+		public double getConnectP99Millis() {
+			return histograms.get(Phase.CONNECT).getPercentileMillis(99);
+		}
+
+		public double getTimeToFirstByteP99Millis() {
+			return histograms.get(Phase.TIME_TO_FIRST_BYTE).getPercentileMillis(99);
+		}
+
+		public double getBodyReadP99Millis() {
+			return histograms.get(Phase.BODY_READ).getPercentileMillis(99);
+		}
+
+		public double getParseP99Millis() {
+			return histograms.get(Phase.PARSE).getPercentileMillis(99);
+		}
+	}
+}
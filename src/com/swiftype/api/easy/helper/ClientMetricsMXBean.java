@@ -0,0 +1,19 @@
+package com.swiftype.api.easy.helper;
+
+import java.util.List;
+
+/**
+ * JMX view of {@link ClientMetrics}.
+ *
+ */
+public interface ClientMetricsMXBean {
+	/**
+	 * @return	Latencies per endpoint template, method and status
+	 */
+	List<ClientMetrics.EndpointStats> getEndpointStats();
+
+	/**
+	 * Drops all recorded latencies.
+	 */
+	void reset();
+}
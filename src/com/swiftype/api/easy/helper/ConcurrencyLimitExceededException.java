@@ -0,0 +1,31 @@
+package com.swiftype.api.easy.helper;
+
+/**
+ * Thrown without sending the request if the {@link AdaptiveConcurrencyLimit} had no free slot for it in time.
+ *
+ */
+public class ConcurrencyLimitExceededException extends SwiftypeException {
+	private static final long serialVersionUID = 1L;
+
+	private final int limit;
+
+	/**
+	 * @param limit	Concurrency limit at the time the request was rejected
+	 */
+	public ConcurrencyLimitExceededException(final int limit) {
+		super("Concurrency limit of " + limit + " requests reached, request not sent.", null);
+		this.limit = limit;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * @return	False, the limit is lowered because the API is already loaded
+	 */
+	@Override
+	public boolean isRetryable() {
+		return false;
+	}
+}
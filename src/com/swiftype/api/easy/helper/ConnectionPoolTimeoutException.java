@@ -0,0 +1,18 @@
+package com.swiftype.api.easy.helper;
+
+import java.io.IOException;
+
+/**
+ * Thrown by {@link PooledTransport} without sending the request if no connection to the host became free in time.
+ *
+ */
+public class ConnectionPoolTimeoutException extends IOException {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @param host	Host and port the request was meant for
+	 */
+	public ConnectionPoolTimeoutException(final String host) {
+		super("Timed out waiting for a connection to " + host + ".");
+	}
+}
@@ -0,0 +1,27 @@
+package com.swiftype.api.easy.helper;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates named daemon threads, so background work of the client never keeps the JVM alive.
+ *
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+	private final String prefix;
+	private final AtomicInteger count = new AtomicInteger();
+
+	/**
+	 * @param prefix	Prefix of the thread names, followed by a running number
+	 */
+	public DaemonThreadFactory(final String prefix) {
+		this.prefix = prefix;
+	}
+
+	@Override
+	public Thread newThread(final Runnable runnable) {
+		final Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	}
+}
@@ -0,0 +1,100 @@
+package com.swiftype.api.easy.helper;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Point in time by which all API calls made within {@link #call(Supplier)} have to be finished. The timeouts
+ * of every request are shortened to the remaining time, retries are only attempted while time is left and
+ * requests are not sent at all once the deadline passed. Asynchronous API calls started within the deadline
+ * inherit it.
+ *
+ * <pre>
+ * final Map&lt;String, SearchResult&gt; results = Deadline.after(300, TimeUnit.MILLISECONDS)
+ * 		.call(() -&gt; api.search("my-engine", "query"));
+ * </pre>
+ *
+ */
+public final class Deadline {
+	private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<Deadline>();
+
+	private volatile long expiresAtNanos;
+
+	private Deadline(final long expiresAtNanos) {
+		this.expiresAtNanos = expiresAtNanos;
+	}
+
+	/**
+	 * @param duration	Time budget for the calls
+	 * @param unit		Unit of the duration
+	 * @return			Deadline expiring after the given time
+	 */
+	public static Deadline after(final long duration, final TimeUnit unit) {
+		return new Deadline(System.nanoTime() + unit.toNanos(duration));
+	}
+
+	/**
+	 * @param parent	Deadline to inherit or null
+	 * @return			Deadline expiring with the parent, or in a year without one, which can be cancelled earlier
+	 */
+	static Deadline cancellable(final Deadline parent) {
+		return new Deadline(parent == null ? System.nanoTime() + TimeUnit.DAYS.toNanos(365) : parent.expiresAtNanos);
+	}
+
+	/**
+	 * Lets the deadline pass now, so the calls running within it stop before their next request.
+	 */
+	void cancel() {
+		expiresAtNanos = System.nanoTime();
+	}
+
+	/**
+	 * @return	Deadline of the API calls of the current thread or null if they have none
+	 */
+	public static Deadline current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * @return	Milliseconds left until the deadline, 0 or less once it passed
+	 */
+	public long remainingMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime());
+	}
+
+	public boolean isExpired() {
+		return expiresAtNanos - System.nanoTime() <= 0;
+	}
+
+	/**
+	 * Runs the call with this deadline. If the call is already running under an earlier deadline,
+	 * the earlier one stays in effect.
+	 *
+	 * @param call	API calls to make within the deadline
+	 * @return		Result of the call
+	 */
+	public <T> T call(final Supplier<T> call) {
+		final Deadline previous = CURRENT.get();
+		CURRENT.set(previous != null && previous.expiresAtNanos - expiresAtNanos < 0 ? previous : this);
+		try {
+			return call.get();
+		} finally {
+			if (previous == null) {
+				CURRENT.remove();
+			} else {
+				CURRENT.set(previous);
+			}
+		}
+	}
+
+	/**
+	 * @param call	API calls to make within the deadline
+	 * @see #call(Supplier)
+	 */
+	public void run(final Runnable call) {
+		call(() -> {
+			call.run();
+			return null;
+		});
+	}
+}
@@ -0,0 +1,35 @@
+package com.swiftype.api.easy.helper;
+
+import java.net.SocketTimeoutException;
+
+/**
+ * Thrown without sending the request once the {@link Deadline} of the call has passed, or if the
+ * response did not arrive before it.
+ *
+ */
+public class DeadlineExceededException extends SwiftypeException {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @param path	Path of the request which was not sent
+	 */
+	public DeadlineExceededException(final String path) {
+		super("Deadline exceeded before the request to " + path + " was sent.", null);
+	}
+
+	/**
+	 * @param path		Path of the request which was sent
+	 * @param timeout	Timeout of the request, which was shortened to the time left until the deadline
+	 */
+	public DeadlineExceededException(final String path, final SocketTimeoutException timeout) {
+		super("Deadline exceeded while waiting for the response to " + path + ".", timeout);
+	}
+
+	/**
+	 * @return	False, there is no time left for another attempt
+	 */
+	@Override
+	public boolean isRetryable() {
+		return false;
+	}
+}
@@ -0,0 +1,119 @@
+package com.swiftype.api.easy.helper;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Conversions of field values as org.json parses them to the types of the typed field accessors of
+ * {@link Record} and {@link com.swiftype.api.easy.Document Document}.
+ *
+ */
+public final class FieldValues {
+	private FieldValues() {
+	}
+
+	/**
+	 * @param value			Field value
+	 * @param defaultValue	Returned if the value is missing or null
+	 * @return				Number or numeric string as long
+	 * @throws NumberFormatException	If the value is no number
+	 */
+	public static long toLong(final Object value, final long defaultValue) {
+		if (isMissing(value)) {
+			return defaultValue;
+		}
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+		final String string = value.toString();
+		try {
+			return Long.parseLong(string);
+		} catch (NumberFormatException e) {
+			return (long) Double.parseDouble(string);
+		}
+	}
+
+	/**
+	 * @param value			Field value
+	 * @param defaultValue	Returned if the value is missing or null
+	 * @return				Number or numeric string as double
+	 * @throws NumberFormatException	If the value is no number
+	 */
+	public static double toDouble(final Object value, final double defaultValue) {
+		if (isMissing(value)) {
+			return defaultValue;
+		}
+		if (value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
+		return Double.parseDouble(value.toString());
+	}
+
+	/**
+	 * @param value	Field value
+	 * @return		ISO 8601 date as Instant or null if the value is missing or null
+	 * @throws IllegalArgumentException	If the value is no ISO 8601 date
+	 */
+	public static Instant toInstant(final Object value) {
+		if (isMissing(value)) {
+			return null;
+		}
+		return Timestamps.parseInstant(value.toString());
+	}
+
+	/**
+	 * @param value	Field value
+	 * @return		Elements of an array as strings, a single value as list of one string or null if the value is missing or null
+	 */
+	public static List<String> toStringList(final Object value) {
+		if (isMissing(value)) {
+			return null;
+		}
+		if (!(value instanceof JSONArray)) {
+			return Collections.singletonList(value.toString());
+		}
+		final JSONArray array = (JSONArray) value;
+		final List<String> strings = new ArrayList<String>(array.length());
+		for (int i = 0; i < array.length(); ++i) {
+			strings.add(array.opt(i).toString());
+		}
+		return Collections.unmodifiableList(strings);
+	}
+
+	/**
+	 * @param value	Field value, an object with lat and lon or a string "lat,lon"
+	 * @return		Location or null if the value is missing or null
+	 * @throws IllegalStateException	If the value is no location
+	 */
+	public static GeoPoint toGeoPoint(final Object value) {
+		if (isMissing(value)) {
+			return null;
+		}
+		try {
+			if (value instanceof JSONObject) {
+				final JSONObject json = (JSONObject) value;
+				if (json.has("lat") && json.has("lon")) {
+					return new GeoPoint(toDouble(json.opt("lat"), 0), toDouble(json.opt("lon"), 0));
+				}
+			} else if (value instanceof String) {
+				final String string = (String) value;
+				final int comma = string.indexOf(',');
+				if (comma > 0) {
+					return new GeoPoint(Double.parseDouble(string.substring(0, comma).trim()), Double.parseDouble(string.substring(comma + 1).trim()));
+				}
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalStateException("Malformed location " + value + ": " + e.getMessage());
+		}
+		throw new IllegalStateException("Malformed location " + value + ".");
+	}
+
+	private static boolean isMissing(final Object value) {
+		return value == null || JSONObject.NULL.equals(value);
+	}
+}
@@ -0,0 +1,48 @@
+package com.swiftype.api.easy.helper;
+
+/**
+ * Value of a location field.
+ *
+ */
+public class GeoPoint {
+	private final double lat;
+	private final double lon;
+
+	public GeoPoint(final double lat, final double lon) {
+		this.lat = lat;
+		this.lon = lon;
+	}
+
+	/**
+	 * @return	Latitude in degrees
+	 */
+	public double getLat() {
+		return lat;
+	}
+
+	/**
+	 * @return	Longitude in degrees
+	 */
+	public double getLon() {
+		return lon;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (!(obj instanceof GeoPoint)) {
+			return false;
+		}
+		final GeoPoint other = (GeoPoint) obj;
+		return Double.compare(lat, other.lat) == 0 && Double.compare(lon, other.lon) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Double.valueOf(lat).hashCode() + Double.valueOf(lon).hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return lat + "," + lon;
+	}
+}
@@ -0,0 +1,230 @@
+package com.swiftype.api.easy.helper;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides when searches and suggests send a second, hedged request. If a request has not been answered
+ * within a percentile of the recent latencies of its endpoint, a duplicate is sent and the first answer
+ * is taken. The budget keeps the hedged requests below a share of all requests, so hedging can't
+ * overload a slow API.
+ *
+ */
+public class HedgingPolicy {
+	private static final int BUDGET_SCALE = 1000;
+
+	private final double percentile;
+	private final long minDelayNanos;
+	private final int windowSize;
+	private final int minSamples;
+	private final long budgetPerRequest;
+	private final long maxBudget;
+	private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<String, Window>();
+
+	private final AtomicLong budget = new AtomicLong();
+	private final AtomicLong hedged = new AtomicLong();
+	private final AtomicLong hedgeWins = new AtomicLong();
+
+	private HedgingPolicy(final Builder builder) {
+		percentile = builder.percentile;
+		minDelayNanos = builder.minDelayNanos;
+		windowSize = builder.windowSize;
+		minSamples = Math.min(builder.minSamples, builder.windowSize);
+		budgetPerRequest = Math.round(builder.maxExtraLoad * BUDGET_SCALE);
+		maxBudget = builder.maxBurst * BUDGET_SCALE;
+	}
+
+	/**
+	 * Called for every request which may be hedged, adds its share to the budget.
+	 *
+	 * @param endpoint	Endpoint template, see {@link RequestMetrics#endpointOf(String)}
+	 * @return			Time to wait for an answer before hedging or -1 if there are too few recent latencies
+	 */
+	public long onRequest(final String endpoint) {
+		long current;
+		do {
+			current = budget.get();
+		} while (current < maxBudget && !budget.compareAndSet(current, Math.min(maxBudget, current + budgetPerRequest)));
+		final long delayNanos = window(endpoint).delayNanos();
+		return delayNanos < 0 ? -1 : Math.max(minDelayNanos, delayNanos);
+	}
+
+	/**
+	 * Takes a hedged request from the budget.
+	 *
+	 * @return	True if the duplicate may be sent
+	 */
+	public boolean tryHedge() {
+		long current;
+		do {
+			current = budget.get();
+			if (current < BUDGET_SCALE) {
+				return false;
+			}
+		} while (!budget.compareAndSet(current, current - BUDGET_SCALE));
+		hedged.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * @param endpoint		Endpoint template
+	 * @param latencyNanos	Time until the request was answered
+	 */
+	public void record(final String endpoint, final long latencyNanos) {
+		window(endpoint).record(latencyNanos);
+	}
+
+	/**
+	 * Called if the hedged request answered before the original one.
+	 */
+	public void onHedgeWon() {
+		hedgeWins.incrementAndGet();
+	}
+
+	/**
+	 * @return	Number of hedged requests sent
+	 */
+	public long getHedged() {
+		return hedged.get();
+	}
+
+	/**
+	 * @return	Number of hedged requests which answered before the original request
+	 */
+	public long getHedgeWins() {
+		return hedgeWins.get();
+	}
+
+	/**
+	 * @param endpoint	Endpoint template
+	 * @return			Current hedging delay of the endpoint in milliseconds or -1 if it is not hedged yet
+	 */
+	public double getDelayMillis(final String endpoint) {
+		final long delayNanos = window(endpoint).delayNanos();
+		return delayNanos < 0 ? -1 : (double) Math.max(minDelayNanos, delayNanos) / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	private Window window(final String endpoint) {
+		Window window = windows.get(endpoint);
+		if (window == null) {
+			final Window created = new Window();
+			window = windows.putIfAbsent(endpoint, created);
+			if (window == null) {
+				window = created;
+			}
+		}
+		return window;
+	}
+
+	/**
+	 * Latencies of the most recent requests of an endpoint. The percentile is recalculated after every
+	 * eighth of the window, not for every request.
+	 */
+	private class Window {
+		private final long[] latencies = new long[windowSize];
+		private int next;
+		private int size;
+		private int untilUpdate;
+		private volatile long delayNanos = -1;
+
+		private long delayNanos() {
+			return delayNanos;
+		}
+
+		private synchronized void record(final long latencyNanos) {
+			latencies[next] = latencyNanos;
+			next = (next + 1) % latencies.length;
+			if (size < latencies.length) {
+				++size;
+			}
+			if (size >= minSamples && --untilUpdate <= 0) {
+				untilUpdate = Math.max(1, latencies.length / 8);
+				final long[] sorted = Arrays.copyOf(latencies, size);
+				Arrays.sort(sorted);
+				delayNanos = sorted[Math.min(size - 1, (int) Math.ceil(percentile / 100 * size) - 1)];
+			}
+		}
+	}
+
+	public static class Builder {
+		private double percentile = 95;
+		private long minDelayNanos = TimeUnit.MILLISECONDS.toNanos(5);
+		private int windowSize = 1000;
+		private int minSamples = 100;
+		private double maxExtraLoad = 0.05;
+		private int maxBurst = 10;
+
+		/**
+		 * @param percentile	Percentile of the recent latencies after which a request is hedged
+		 * @return				Builder to add more options. If your finished create the policy with {@link #build()}.
+		 */
+		public Builder percentile(final double percentile) {
+			if (!(percentile > 0 && percentile < 100)) {
+				throw new IllegalArgumentException("percentile has to be in (0, 100)!");
+			}
+			this.percentile = percentile;
+			return this;
+		}
+
+		/**
+		 * @param minDelay	Shortest time to wait before hedging, even if the API is faster
+		 * @param unit		Unit of the delay
+		 * @return			Builder to add more options. If your finished create the policy with {@link #build()}.
+		 */
+		public Builder minDelay(final long minDelay, final TimeUnit unit) {
+			if (minDelay < 0) {
+				throw new IllegalArgumentException("minDelay must not be negative!");
+			}
+			this.minDelayNanos = unit.toNanos(minDelay);
+			return this;
+		}
+
+		/**
+		 * @param windowSize	Number of recent latencies per endpoint the percentile is taken of
+		 * @param minSamples	Number of latencies needed before requests to an endpoint are hedged
+		 * @return				Builder to add more options. If your finished create the policy with {@link #build()}.
+		 */
+		public Builder window(final int windowSize, final int minSamples) {
+			if (windowSize < 1 || minSamples < 1) {
+				throw new IllegalArgumentException("windowSize and minSamples have to be positive!");
+			}
+			this.windowSize = windowSize;
+			this.minSamples = minSamples;
+			return this;
+		}
+
+		/**
+		 * @param maxExtraLoad	Highest share of hedged requests, e.g. 0.05 for at most 5% additional requests
+		 * @return				Builder to add more options. If your finished create the policy with {@link #build()}.
+		 */
+		public Builder maxExtraLoad(final double maxExtraLoad) {
+			if (!(maxExtraLoad > 0 && maxExtraLoad <= 1)) {
+				throw new IllegalArgumentException("maxExtraLoad has to be in (0, 1]!");
+			}
+			this.maxExtraLoad = maxExtraLoad;
+			return this;
+		}
+
+		/**
+		 * @param maxBurst	Number of hedged requests the unused budget may add up to
+		 * @return			Builder to add more options. If your finished create the policy with {@link #build()}.
+		 */
+		public Builder maxBurst(final int maxBurst) {
+			if (maxBurst < 1) {
+				throw new IllegalArgumentException("maxBurst has to be positive!");
+			}
+			this.maxBurst = maxBurst;
+			return this;
+		}
+
+		/**
+		 * @return		HedgingPolicy based on the supplied values to this builder.
+		 */
+		public HedgingPolicy build() {
+			return new HedgingPolicy(this);
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package com.swiftype.api.easy.helper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+
+import org.json.JSONObject;
+
+/**
+ * Request body of the form <code>{"name": [element, ...] }</code>. The elements are serialized
+ * one by one straight into the connection and sent chunked, so the size of the body does not matter.
+ *
+ */
+public class JsonArrayBody implements Transport.RequestBody {
+	private final JsonCodec codec;
+	private final String name;
+	private final List<?> elements;
+
+	/**
+	 * @param name		Name of the array
+	 * @param elements	JSONObjects or already serialized JSON strings
+	 */
+	public JsonArrayBody(final String name, final List<?> elements) {
+		this(JsonCodec.DEFAULT, name, elements);
+	}
+
+	/**
+	 * @param codec		Codec serializing the JSONObjects
+	 * @param name		Name of the array
+	 * @param elements	JSONObjects or already serialized JSON strings
+	 */
+	public JsonArrayBody(final JsonCodec codec, final String name, final List<?> elements) {
+		this.codec = codec;
+		this.name = name;
+		this.elements = elements;
+	}
+
+	@Override
+	public long contentLength() {
+		return -1;
+	}
+
+	@Override
+	public void writeTo(final OutputStream out) throws IOException {
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"), 8192);
+		writer.write("{");
+		writer.write(JSONObject.quote(name));
+		writer.write(": [");
+		boolean first = true;
+		for (final Object element : elements) {
+			if (!first) {
+				writer.write(",");
+			}
+			first = false;
+			if (element instanceof JSONObject) {
+				final JsonWriter elementWriter = codec.newWriter(writer);
+				elementWriter.value(element);
+				elementWriter.close();
+			} else {
+				writer.write(element.toString());
+			}
+		}
+		writer.write("] }");
+		writer.flush();
+	}
+}
@@ -0,0 +1,90 @@
+package com.swiftype.api.easy.helper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Reads all responses and writes the request bodies of a {@link SwiftypeClient}. Plug in your own codec
+ * with {@link SwiftypeClient.Builder#jsonCodec(JsonCodec)}, e.g. to use the JSON library your application
+ * already tunes, by returning readers and writers adapting its parser and generator.
+ *
+ * The org.json based methods, like the fromJson methods taking a JSONObject, keep working with every codec:
+ * {@link JsonReader#readObject()} and {@link JsonWriter#value(Object)} convert between the tokens of the
+ * codec and org.json.
+ *
+ */
+public interface JsonCodec {
+	/**
+	 * Streaming codec of this library, used if no other codec is configured.
+	 */
+	JsonCodec DEFAULT = new JsonCodec() {
+		@Override
+		public JsonReader newReader(final Reader in) {
+			return new StreamingJsonReader(in);
+		}
+
+		@Override
+		public JsonWriter newWriter(final Writer out) {
+			return new StreamingJsonWriter(out);
+		}
+	};
+
+	/**
+	 * @param in	Characters of a JSON document, e.g. a response body
+	 * @return		Reader pulling the tokens of the document
+	 */
+	JsonReader newReader(Reader in);
+
+	/**
+	 * @param out	Destination of the JSON document, closing the JsonWriter must not close it
+	 * @return		Writer writing a single JSON document
+	 */
+	JsonWriter newWriter(Writer out);
+
+	/**
+	 * @param json	JSON object
+	 * @return		Object read with this codec
+	 */
+	default JSONObject readObject(final String json) throws JSONException {
+		try {
+			return newReader(new StringReader(json)).readObject();
+		} catch (IOException e) {
+			throw new JSONException(e.getMessage());
+		}
+	}
+
+	/**
+	 * @param json	JSON array
+	 * @return		Array read with this codec
+	 */
+	default JSONArray readArray(final String json) throws JSONException {
+		try {
+			return newReader(new StringReader(json)).readArray();
+		} catch (IOException e) {
+			throw new JSONException(e.getMessage());
+		}
+	}
+
+	/**
+	 * @param value	Value to serialize, see {@link JsonWriter#value(Object)}
+	 * @return		JSON written with this codec
+	 */
+	default String toJson(final Object value) {
+		final StringWriter out = new StringWriter();
+		try {
+			final JsonWriter writer = newWriter(out);
+			writer.value(value);
+			writer.close();
+		} catch (IOException e) {
+			throw new IllegalStateException(e.getMessage());
+		}
+		return out.toString();
+	}
+}
@@ -0,0 +1,195 @@
+package com.swiftype.api.easy.helper;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Pull parser all responses are read with. {@link JsonCodec}s supply their own implementation, the default
+ * is {@link StreamingJsonReader}. Values which have to stay JSON can be read into org.json objects with
+ * {@link #readValue()}.
+ *
+ */
+public abstract class JsonReader implements Closeable {
+	public static enum Token {
+		BEGIN_OBJECT,
+		END_OBJECT,
+		BEGIN_ARRAY,
+		END_ARRAY,
+		NAME,
+		STRING,
+		NUMBER,
+		BOOLEAN,
+		NULL,
+		END_DOCUMENT;
+	}
+
+	/**
+	 * @return	Type of the next token without consuming it
+	 */
+	public abstract Token peek() throws IOException, JSONException;
+
+	public abstract void beginObject() throws IOException, JSONException;
+
+	public abstract void endObject() throws IOException, JSONException;
+
+	public abstract void beginArray() throws IOException, JSONException;
+
+	public abstract void endArray() throws IOException, JSONException;
+
+	public abstract String nextName() throws IOException, JSONException;
+
+	/**
+	 * @return	Next string value. Numbers and booleans are returned as they are written.
+	 */
+	public abstract String nextString() throws IOException, JSONException;
+
+	public abstract boolean nextBoolean() throws IOException, JSONException;
+
+	public abstract void nextNull() throws IOException, JSONException;
+
+	public abstract long nextLong() throws IOException, JSONException;
+
+	public abstract double nextDouble() throws IOException, JSONException;
+
+	/**
+	 * @return	True if the current object or array has more elements
+	 */
+	public boolean hasNext() throws IOException, JSONException {
+		final Token token = peek();
+		return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+	}
+
+	public int nextInt() throws IOException, JSONException {
+		final long value = nextLong();
+		if (value != (int) value) {
+			throw new JSONException("Expected an int but was " + value);
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Skips the next value including all nested values.
+	 */
+	public void skipValue() throws IOException, JSONException {
+		int depth = 0;
+		do {
+			switch (peek()) {
+			case BEGIN_OBJECT:
+				beginObject();
+				++depth;
+				break;
+			case BEGIN_ARRAY:
+				beginArray();
+				++depth;
+				break;
+			case END_OBJECT:
+				endObject();
+				--depth;
+				break;
+			case END_ARRAY:
+				endArray();
+				--depth;
+				break;
+			case NAME:
+				nextName();
+				break;
+			case NULL:
+				nextNull();
+				break;
+			case END_DOCUMENT:
+				throw new JSONException("Unexpected end of document");
+			default:
+				nextString();
+				break;
+			}
+		} while (depth > 0);
+	}
+
+	/**
+	 * @return	Next value as it would have been parsed by org.json: JSONObject, JSONArray, String, Number,
+	 * 			Boolean or {@link JSONObject#NULL}
+	 */
+	public Object readValue() throws IOException, JSONException {
+		switch (peek()) {
+		case BEGIN_OBJECT:
+			return readObject();
+		case BEGIN_ARRAY:
+			return readArray();
+		case STRING:
+			return nextString();
+		case NUMBER:
+			return JSONObject.stringToValue(nextString());
+		case BOOLEAN:
+			return Boolean.valueOf(nextBoolean());
+		case NULL:
+			nextNull();
+			return JSONObject.NULL;
+		default:
+			throw new JSONException("Expected a value but was " + peek());
+		}
+	}
+
+	public JSONObject readObject() throws IOException, JSONException {
+		final JSONObject object = new JSONObject();
+		beginObject();
+		while (hasNext()) {
+			final String name = nextName();
+			object.put(name, readValue());
+		}
+		endObject();
+		return object;
+	}
+
+	public JSONArray readArray() throws IOException, JSONException {
+		final JSONArray array = new JSONArray();
+		beginArray();
+		while (hasNext()) {
+			array.put(readValue());
+		}
+		endArray();
+		return array;
+	}
+
+	/**
+	 * @return	True if the reader can record the source text of values, see {@link #beginCapture()}
+	 */
+	public boolean canCapture() {
+		return false;
+	}
+
+	/**
+	 * Starts recording the source text of the next object or array, so its values can be decoded later
+	 * from {@link #endCapture()} instead of being parsed now. Offsets of the values within the recorded text
+	 * are given by {@link #nextValueOffset()} and {@link #captureOffset()}.
+	 *
+	 * @throws UnsupportedOperationException	If {@link #canCapture()} is false
+	 */
+	public void beginCapture() throws IOException, JSONException {
+		throw new UnsupportedOperationException(getClass().getName() + " can't capture source text.");
+	}
+
+	/**
+	 * @return	Offset of the next value in the recorded text
+	 */
+	public int nextValueOffset() throws IOException, JSONException {
+		throw new UnsupportedOperationException(getClass().getName() + " can't capture source text.");
+	}
+
+	/**
+	 * @return	Offset behind the last consumed token in the recorded text
+	 */
+	public int captureOffset() {
+		throw new UnsupportedOperationException(getClass().getName() + " can't capture source text.");
+	}
+
+	/**
+	 * @return	Source text recorded since {@link #beginCapture()}
+	 */
+	public String endCapture() {
+		throw new UnsupportedOperationException(getClass().getName() + " can't capture source text.");
+	}
+}
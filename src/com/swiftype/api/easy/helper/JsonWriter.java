@@ -0,0 +1,125 @@
+package com.swiftype.api.easy.helper;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONString;
+
+/**
+ * Writer for the JSON of request bodies. {@link JsonCodec}s supply their own implementation, the default
+ * is {@link StreamingJsonWriter}. org.json values can be written with {@link #value(Object)}.
+ *
+ */
+public abstract class JsonWriter implements Closeable, Flushable {
+	public abstract JsonWriter beginObject() throws IOException;
+
+	public abstract JsonWriter endObject() throws IOException;
+
+	public abstract JsonWriter beginArray() throws IOException;
+
+	public abstract JsonWriter endArray() throws IOException;
+
+	/**
+	 * @param name	Name of the next member of the current object
+	 * @return		This writer
+	 */
+	public abstract JsonWriter name(String name) throws IOException;
+
+	/**
+	 * @param value	String to write, null writes null
+	 * @return		This writer
+	 */
+	public abstract JsonWriter value(String value) throws IOException;
+
+	/**
+	 * @param value	Finite number to write, null writes null
+	 * @return		This writer
+	 */
+	public abstract JsonWriter value(Number value) throws IOException;
+
+	public abstract JsonWriter value(boolean value) throws IOException;
+
+	public abstract JsonWriter nullValue() throws IOException;
+
+	/**
+	 * Writes JSON text supplied by a {@link JSONString}. This implementation parses it and writes its values,
+	 * writers which can copy it as it is should override this.
+	 *
+	 * @param json	Complete JSON value
+	 * @return		This writer
+	 * @throws IllegalArgumentException	If the text is no JSON
+	 */
+	public JsonWriter jsonValue(final String json) throws IOException {
+		try {
+			return value(new StreamingJsonReader(new StringReader(json)).readValue());
+		} catch (JSONException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes the value the way {@link JSONObject#toString()} writes the values of an object.
+	 *
+	 * @param value	JSONObject, JSONArray, {@link JSONString}, Map, Collection, array, String, Number, Boolean,
+	 * 				{@link JSONObject#NULL} or null. Other objects are written as their string.
+	 * @return		This writer
+	 */
+	public JsonWriter value(final Object value) throws IOException {
+		if (value == null || JSONObject.NULL.equals(value)) {
+			return nullValue();
+		}
+		if (value instanceof JSONString) {
+			final String json = ((JSONString) value).toJSONString();
+			if (json == null) {
+				throw new IllegalArgumentException("Bad value from toJSONString: null");
+			}
+			return jsonValue(json);
+		}
+		if (value instanceof JSONObject) {
+			final JSONObject object = (JSONObject) value;
+			beginObject();
+			for (@SuppressWarnings("unchecked") final Iterator<String> keys = object.keys(); keys.hasNext();) {
+				final String key = keys.next();
+				name(key);
+				value(object.opt(key));
+			}
+			return endObject();
+		}
+		if (value instanceof JSONArray) {
+			final JSONArray array = (JSONArray) value;
+			beginArray();
+			for (int i = 0; i < array.length(); ++i) {
+				value(array.opt(i));
+			}
+			return endArray();
+		}
+		if (value instanceof Number) {
+			return value((Number) value);
+		}
+		if (value instanceof Boolean) {
+			return value(((Boolean) value).booleanValue());
+		}
+		if (value instanceof Map) {
+			return value(new JSONObject((Map<?, ?>) value));
+		}
+		if (value instanceof Collection) {
+			return value(new JSONArray((Collection<?>) value));
+		}
+		if (value.getClass().isArray()) {
+			try {
+				return value(new JSONArray(value));
+			} catch (JSONException e) {
+				throw new IllegalArgumentException(e.getMessage());
+			}
+		}
+		return value(value.toString());
+	}
+}
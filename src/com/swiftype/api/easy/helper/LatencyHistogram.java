@@ -0,0 +1,114 @@
+package com.swiftype.api.easy.helper;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of latencies in the style of HdrHistogram. Values are counted in microseconds in
+ * buckets growing by powers of two, each split into 16 linear sub buckets, so every recorded value is
+ * kept with a precision of about 6% while the memory stays fixed.
+ *
+ */
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// 2^40 microseconds are about 12 days, longer values are counted in the last bucket
+	private static final int MAX_EXPONENT = 40;
+
+	private static final int LAST_INDEX = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS - 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(LAST_INDEX + 1);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sumMicros = new LongAdder();
+	private final AtomicLong maxMicros = new AtomicLong();
+
+	/**
+	 * @param nanos	Latency to record in nanoseconds, negative values are recorded as 0
+	 */
+	public void record(final long nanos) {
+		final long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+		counts.incrementAndGet(indexOf(micros));
+		count.increment();
+		sumMicros.add(micros);
+		long max;
+		while ((max = maxMicros.get()) < micros && !maxMicros.compareAndSet(max, micros)) {
+			// Another thread recorded a value concurrently, compare again
+		}
+	}
+
+	/**
+	 * @return	Number of recorded values
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	public double getMeanMillis() {
+		final long n = count.sum();
+		return n == 0 ? 0 : sumMicros.sum() / 1000.0 / n;
+	}
+
+	public double getMaxMillis() {
+		return maxMicros.get() / 1000.0;
+	}
+
+	/**
+	 * @param percentile	Percentile between 0 and 100
+	 * @return				Latency in milliseconds which the given percentage of values did not exceed
+	 */
+	public double getPercentileMillis(final double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile has to be between 0 and 100!");
+		}
+		long total = 0;
+		for (int i = 0; i < counts.length(); ++i) {
+			total += counts.get(i);
+		}
+		if (total == 0) {
+			return 0;
+		}
+		final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < counts.length(); ++i) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(highestValueOf(i), maxMicros.get()) / 1000.0;
+			}
+		}
+		return getMaxMillis();
+	}
+
+	/**
+	 * @param micros	Recorded value
+	 * @return			Index of the sub bucket counting the value
+	 */
+	static int indexOf(final long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+		final int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		if (exponent > MAX_EXPONENT) {
+			return LAST_INDEX;
+		}
+		final int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * @param index	Index of a sub bucket
+	 * @return		Highest value counted in the sub bucket
+	 */
+	static long highestValueOf(final int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		if (index == LAST_INDEX) {
+			return Long.MAX_VALUE;
+		}
+		final int shift = index / SUB_BUCKETS - 1;
+		final long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
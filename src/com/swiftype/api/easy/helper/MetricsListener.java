@@ -0,0 +1,15 @@
+package com.swiftype.api.easy.helper;
+
+/**
+ * Receives the timings of every request attempt. Register listeners through
+ * {@link SwiftypeConfig#addMetricsListener(MetricsListener)}.
+ *
+ * Listeners are called on the thread which sent the request, so they have to return quickly.
+ *
+ */
+public interface MetricsListener {
+	/**
+	 * @param metrics	Timings of the finished attempt
+	 */
+	void onRequest(RequestMetrics metrics);
+}
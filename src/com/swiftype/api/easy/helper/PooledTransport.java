@@ -0,0 +1,717 @@
+package com.swiftype.api.easy.helper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * HTTP/1.1 transport keeping connections alive between requests. Connections are pooled per host,
+ * limited by {@link Builder#maxConnectionsPerHost(int)} and closed once they were idle for longer than
+ * {@link Builder#idleTimeout(long, TimeUnit)}.
+ *
+ * System proxy settings are not honored, use {@link UrlConnectionTransport} if you need a proxy.
+ *
+ */
+public class PooledTransport implements Transport {
+	private static final byte[] CRLF = {'\r', '\n'};
+	private static final byte[] LAST_CHUNK = {'0', '\r', '\n', '\r', '\n'};
+
+	private final int maxConnectionsPerHost;
+	private final long idleTimeoutMillis;
+	private final long leaseTimeoutMillis;
+
+	private final ConcurrentMap<String, HostPool> pools = new ConcurrentHashMap<String, HostPool>();
+	private final AtomicLong connectionsCreated = new AtomicLong();
+	private final AtomicLong connectionsReused = new AtomicLong();
+	private final AtomicLong connectionsEvicted = new AtomicLong();
+	private volatile boolean closed;
+
+	private PooledTransport(final Builder builder) {
+		maxConnectionsPerHost = builder.maxConnectionsPerHost;
+		idleTimeoutMillis = builder.idleTimeoutMillis;
+		leaseTimeoutMillis = builder.leaseTimeoutMillis;
+	}
+
+	@Override
+	public Response execute(final Request request) throws IOException {
+		if (closed) {
+			throw new IllegalStateException("Transport is already closed.");
+		}
+		final HostPool pool = poolFor(request.getUrl());
+		pool.evictExpired();
+		final long start = System.nanoTime();
+		pool.acquire(request.getConnectTimeoutMillis());
+		try {
+			return send(pool, request, start);
+		} catch (IOException e) {
+			pool.release();
+			throw e;
+		} catch (RuntimeException e) {
+			pool.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes all idle connections which exceeded the idle timeout.
+	 */
+	public void evictIdleConnections() {
+		for (final HostPool pool : pools.values()) {
+			pool.evictExpired();
+		}
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		for (final HostPool pool : pools.values()) {
+			pool.closeIdle();
+		}
+	}
+
+	/**
+	 * @return	Number of connections opened so far
+	 */
+	public long getConnectionsCreated() {
+		return connectionsCreated.get();
+	}
+
+	/**
+	 * @return	Number of requests sent over an already open connection
+	 */
+	public long getConnectionsReused() {
+		return connectionsReused.get();
+	}
+
+	/**
+	 * @return	Number of idle connections closed because of the idle timeout
+	 */
+	public long getConnectionsEvicted() {
+		return connectionsEvicted.get();
+	}
+
+	/**
+	 * @return	Number of open connections currently waiting for a request
+	 */
+	public int getIdleConnections() {
+		int idle = 0;
+		for (final HostPool pool : pools.values()) {
+			idle += pool.idle.size();
+		}
+		return idle;
+	}
+
+	/**
+	 * @return	Number of connections currently serving a request
+	 */
+	public int getLeasedConnections() {
+		int leased = 0;
+		for (final HostPool pool : pools.values()) {
+			leased += maxConnectionsPerHost - pool.permits.availablePermits();
+		}
+		return leased;
+	}
+
+	private HostPool poolFor(final URL url) {
+		final boolean secure = "https".equalsIgnoreCase(url.getProtocol());
+		final int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+		final String key = url.getProtocol() + "://" + url.getHost() + ":" + port;
+		HostPool pool = pools.get(key);
+		if (pool == null) {
+			final HostPool newPool = new HostPool(url.getHost(), port, secure);
+			pool = pools.putIfAbsent(key, newPool);
+			if (pool == null) {
+				pool = newPool;
+			}
+		}
+		return pool;
+	}
+
+	private Response send(final HostPool pool, final Request request, final long start) throws IOException {
+		Connection connection = pool.pollIdle();
+		while (true) {
+			final boolean reused = connection != null;
+			if (reused) {
+				connectionsReused.incrementAndGet();
+			} else {
+				connection = pool.open(request);
+				connectionsCreated.incrementAndGet();
+			}
+			final long connectNanos = System.nanoTime() - start;
+			final long writtenBefore = connection.socketOut.written;
+			try {
+				connection.socket.setSoTimeout(Request.toIntTimeout(request.getReadTimeoutMillis()));
+				writeRequest(connection, request);
+				return readResponse(pool, connection, request, connectNanos);
+			} catch (IOException e) {
+				connection.closeQuietly();
+				if (!reused || e instanceof SocketTimeoutException) {
+					throw e;
+				}
+				if (connection.socketOut.written != writtenBefore && !request.isIdempotent()) {
+					// The server may have processed the request before closing the connection
+					throw e;
+				}
+				// The server most likely closed the idle connection, retry once on a fresh one
+				connection = null;
+			}
+		}
+	}
+
+	private static void writeRequest(final Connection connection, final Request request) throws IOException {
+		final URL url = request.getUrl();
+		final RequestBody body = request.getBody();
+		final long contentLength = body == null ? 0 : body.contentLength();
+		final String file = url.getFile().length() == 0 ? "/" : url.getFile();
+
+		final StringBuilder sb = new StringBuilder(256);
+		sb.append(request.getMethod()).append(' ').append(file).append(" HTTP/1.1\r\n");
+		sb.append("Host: ").append(url.getHost());
+		if (url.getPort() != -1) {
+			sb.append(':').append(url.getPort());
+		}
+		sb.append("\r\n");
+		for (final Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+			sb.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+		}
+		if (body != null) {
+			if (contentLength >= 0) {
+				sb.append("Content-Length: ").append(contentLength).append("\r\n");
+			} else {
+				sb.append("Transfer-Encoding: chunked\r\n");
+			}
+		}
+		sb.append("\r\n");
+
+		final OutputStream out = connection.out;
+		out.write(sb.toString().getBytes("ISO-8859-1"));
+		if (body != null) {
+			if (contentLength >= 0) {
+				body.writeTo(out);
+			} else {
+				final ChunkedOutputStream chunked = new ChunkedOutputStream(out);
+				body.writeTo(chunked);
+				chunked.finish();
+			}
+		}
+		out.flush();
+	}
+
+	private Response readResponse(final HostPool pool, final Connection connection, final Request request, final long connectNanos) throws IOException {
+		final InputStream in = connection.in;
+		String statusLine;
+		int status;
+		Map<String, String> headers;
+		do {
+			statusLine = readLine(in);
+			if (statusLine == null) {
+				throw new EOFException("Connection closed by " + pool.host + " before a response was received.");
+			}
+			status = parseStatus(statusLine);
+			headers = readHeaders(in);
+		} while (status / 100 == 1);
+
+		boolean keepAlive = statusLine.startsWith("HTTP/1.1")
+				? !"close".equalsIgnoreCase(headers.get("connection"))
+				: "keep-alive".equalsIgnoreCase(headers.get("connection"));
+
+		final InputStream body;
+		final String transferEncoding = headers.get("transfer-encoding");
+		final String contentLength = headers.get("content-length");
+		if ("HEAD".equals(request.getMethod()) || status == 204 || status == 304) {
+			body = new FixedLengthInputStream(in, 0);
+		} else if (transferEncoding != null && transferEncoding.toLowerCase().contains("chunked")) {
+			body = new ChunkedInputStream(in);
+		} else if (contentLength != null) {
+			body = new FixedLengthInputStream(in, Long.parseLong(contentLength.trim()));
+		} else {
+			body = in;
+			keepAlive = false;
+		}
+		return new Response(status, headers, new ReleasingInputStream(pool, connection, body, keepAlive), connectNanos);
+	}
+
+	private static int parseStatus(final String statusLine) throws IOException {
+		final String[] parts = statusLine.split(" ", 3);
+		try {
+			return Integer.parseInt(parts[1]);
+		} catch (RuntimeException e) {
+			throw new IOException("Malformed status line '" + statusLine + "'.");
+		}
+	}
+
+	private static Map<String, String> readHeaders(final InputStream in) throws IOException {
+		final Map<String, String> headers = new HashMap<String, String>();
+		String line;
+		while ((line = readLine(in)) != null && line.length() > 0) {
+			final int separator = line.indexOf(':');
+			if (separator <= 0) {
+				continue;
+			}
+			final String name = line.substring(0, separator).trim().toLowerCase();
+			final String value = line.substring(separator + 1).trim();
+			final String previous = headers.get(name);
+			headers.put(name, previous == null ? value : previous + ", " + value);
+		}
+		return headers;
+	}
+
+	private static String readLine(final InputStream in) throws IOException {
+		final StringBuilder sb = new StringBuilder(64);
+		int c;
+		while ((c = in.read()) != -1) {
+			if (c == '\n') {
+				final int length = sb.length();
+				if (length > 0 && sb.charAt(length - 1) == '\r') {
+					sb.setLength(length - 1);
+				}
+				return sb.toString();
+			}
+			sb.append((char) c);
+		}
+		return sb.length() == 0 ? null : sb.toString();
+	}
+
+	public static class Builder {
+		private int maxConnectionsPerHost = 20;
+		private long idleTimeoutMillis = TimeUnit.SECONDS.toMillis(30);
+		private long leaseTimeoutMillis = TimeUnit.SECONDS.toMillis(30);
+
+		/**
+		 * @param maxConnectionsPerHost	Maximum number of open connections to a single host
+		 * @return						Builder to add more options. If your finished create the transport with {@link #build()}.
+		 */
+		public Builder maxConnectionsPerHost(final int maxConnectionsPerHost) {
+			if (maxConnectionsPerHost < 1) {
+				throw new IllegalArgumentException("maxConnectionsPerHost has to be positive!");
+			}
+			this.maxConnectionsPerHost = maxConnectionsPerHost;
+			return this;
+		}
+
+		/**
+		 * @param timeout	Time a connection may stay unused before it gets closed
+		 * @param unit		Unit of the timeout
+		 * @return			Builder to add more options. If your finished create the transport with {@link #build()}.
+		 */
+		public Builder idleTimeout(final long timeout, final TimeUnit unit) {
+			this.idleTimeoutMillis = unit.toMillis(timeout);
+			return this;
+		}
+
+		/**
+		 * @param timeout	Time a request waits for a free connection once all connections to a host are in use
+		 * @param unit		Unit of the timeout
+		 * @return			Builder to add more options. If your finished create the transport with {@link #build()}.
+		 */
+		public Builder leaseTimeout(final long timeout, final TimeUnit unit) {
+			this.leaseTimeoutMillis = unit.toMillis(timeout);
+			return this;
+		}
+
+		/**
+		 * @return		PooledTransport based on the supplied values to this builder.
+		 */
+		public PooledTransport build() {
+			return new PooledTransport(this);
+		}
+	}
+
+	private class HostPool {
+		private final String host;
+		private final int port;
+		private final boolean secure;
+		private final Semaphore permits;
+		private final ConcurrentLinkedDeque<Connection> idle = new ConcurrentLinkedDeque<Connection>();
+
+		private HostPool(final String host, final int port, final boolean secure) {
+			this.host = host;
+			this.port = port;
+			this.secure = secure;
+			this.permits = new Semaphore(maxConnectionsPerHost, true);
+		}
+
+		/**
+		 * @param connectTimeoutMillis	Connect timeout of the request, also limiting the wait for a free connection
+		 */
+		private void acquire(final long connectTimeoutMillis) throws IOException {
+			final long timeoutMillis = connectTimeoutMillis > 0 ? Math.min(leaseTimeoutMillis, connectTimeoutMillis) : leaseTimeoutMillis;
+			try {
+				if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+					throw new ConnectionPoolTimeoutException(host + ":" + port);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for a connection to " + host + ":" + port + ".");
+			}
+		}
+
+		private void release() {
+			permits.release();
+		}
+
+		private Connection pollIdle() {
+			final long now = System.currentTimeMillis();
+			Connection connection;
+			while ((connection = idle.pollFirst()) != null) {
+				if (!connection.isExpired(now)) {
+					return connection;
+				}
+				connection.closeQuietly();
+				connectionsEvicted.incrementAndGet();
+			}
+			return null;
+		}
+
+		private Connection open(final Request request) throws IOException {
+			Socket socket = new Socket();
+			try {
+				socket.setTcpNoDelay(true);
+				socket.setSoTimeout(Request.toIntTimeout(request.getReadTimeoutMillis()));
+				socket.connect(new InetSocketAddress(host, port), Request.toIntTimeout(request.getConnectTimeoutMillis()));
+				if (secure) {
+					final SSLSocketFactory factory = (SSLSocketFactory) SSLSocketFactory.getDefault();
+					final SSLSocket sslSocket = (SSLSocket) factory.createSocket(socket, host, port, true);
+					final SSLParameters parameters = sslSocket.getSSLParameters();
+					parameters.setEndpointIdentificationAlgorithm("HTTPS");
+					sslSocket.setSSLParameters(parameters);
+					sslSocket.startHandshake();
+					socket = sslSocket;
+				}
+				return new Connection(socket);
+			} catch (IOException e) {
+				socket.close();
+				throw e;
+			}
+		}
+
+		private void recycle(final Connection connection) {
+			connection.lastUsed = System.currentTimeMillis();
+			if (closed) {
+				connection.closeQuietly();
+			} else {
+				idle.offerFirst(connection);
+			}
+			permits.release();
+		}
+
+		private void discard(final Connection connection) {
+			connection.closeQuietly();
+			permits.release();
+		}
+
+		private void evictExpired() {
+			final long now = System.currentTimeMillis();
+			for (final Iterator<Connection> it = idle.descendingIterator(); it.hasNext();) {
+				final Connection connection = it.next();
+				if (!connection.isExpired(now)) {
+					break;
+				}
+				if (idle.removeLastOccurrence(connection)) {
+					connection.closeQuietly();
+					connectionsEvicted.incrementAndGet();
+				}
+			}
+		}
+
+		private void closeIdle() {
+			Connection connection;
+			while ((connection = idle.pollFirst()) != null) {
+				connection.closeQuietly();
+			}
+		}
+	}
+
+	private class Connection {
+		private final Socket socket;
+		private final InputStream in;
+		private final OutputStream out;
+		private final CountingOutputStream socketOut;
+		private volatile long lastUsed;
+
+		private Connection(final Socket socket) throws IOException {
+			this.socket = socket;
+			this.in = new BufferedInputStream(socket.getInputStream(), 8192);
+			this.socketOut = new CountingOutputStream(socket.getOutputStream());
+			this.out = new BufferedOutputStream(socketOut, 8192);
+			this.lastUsed = System.currentTimeMillis();
+		}
+
+		private boolean isExpired(final long now) {
+			return socket.isClosed() || now - lastUsed > idleTimeoutMillis;
+		}
+
+		private void closeQuietly() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Nothing left to clean up
+			}
+		}
+	}
+
+	/**
+	 * Counts the bytes which reached the socket, a write failing before any byte was accepted
+	 * didn't send anything of the request.
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+		private long written;
+
+		private CountingOutputStream(final OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			out.write(b);
+			++written;
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			out.write(b, off, len);
+			written += len;
+		}
+	}
+
+	/**
+	 * Hands the connection back to its pool once the body was read completely, or closes it
+	 * if the caller stops reading early.
+	 */
+	private static class ReleasingInputStream extends InputStream {
+		private final HostPool pool;
+		private final Connection connection;
+		private final InputStream delegate;
+		private final boolean keepAlive;
+		private boolean released;
+
+		private ReleasingInputStream(final HostPool pool, final Connection connection, final InputStream delegate, final boolean keepAlive) {
+			this.pool = pool;
+			this.connection = connection;
+			this.delegate = delegate;
+			this.keepAlive = keepAlive;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (released) {
+				return -1;
+			}
+			final int b = delegate.read();
+			if (b == -1) {
+				release(keepAlive);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+			if (released) {
+				return -1;
+			}
+			final int count = delegate.read(buffer, offset, length);
+			if (count == -1) {
+				release(keepAlive);
+			}
+			return count;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return released ? 0 : delegate.available();
+		}
+
+		@Override
+		public void close() {
+			if (!released) {
+				release(false);
+			}
+		}
+
+		private void release(final boolean reusable) {
+			released = true;
+			if (reusable) {
+				pool.recycle(connection);
+			} else {
+				pool.discard(connection);
+			}
+		}
+	}
+
+	private static class FixedLengthInputStream extends InputStream {
+		private final InputStream in;
+		private long remaining;
+
+		private FixedLengthInputStream(final InputStream in, final long length) {
+			this.in = in;
+			this.remaining = length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			final int b = in.read();
+			if (b == -1) {
+				throw new EOFException("Connection closed before the response body was complete.");
+			}
+			--remaining;
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			final int count = in.read(buffer, offset, (int) Math.min(length, remaining));
+			if (count == -1) {
+				throw new EOFException("Connection closed before the response body was complete.");
+			}
+			remaining -= count;
+			return count;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(in.available(), remaining);
+		}
+	}
+
+	private static class ChunkedOutputStream extends OutputStream {
+		private final OutputStream out;
+		private final byte[] buffer = new byte[8192];
+		private int count;
+
+		private ChunkedOutputStream(final OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			if (count == buffer.length) {
+				writeChunk();
+			}
+			buffer[count++] = (byte) b;
+		}
+
+		@Override
+		public void write(final byte[] bytes, int offset, int length) throws IOException {
+			while (length > 0) {
+				if (count == buffer.length) {
+					writeChunk();
+				}
+				final int copied = Math.min(length, buffer.length - count);
+				System.arraycopy(bytes, offset, buffer, count, copied);
+				count += copied;
+				offset += copied;
+				length -= copied;
+			}
+		}
+
+		private void writeChunk() throws IOException {
+			if (count > 0) {
+				out.write((Integer.toHexString(count) + "\r\n").getBytes("ISO-8859-1"));
+				out.write(buffer, 0, count);
+				out.write(CRLF);
+				count = 0;
+			}
+		}
+
+		private void finish() throws IOException {
+			writeChunk();
+			out.write(LAST_CHUNK);
+		}
+	}
+
+	private static class ChunkedInputStream extends InputStream {
+		private final InputStream in;
+		private long remainingInChunk;
+		private boolean eof;
+
+		private ChunkedInputStream(final InputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!nextChunk()) {
+				return -1;
+			}
+			final int b = in.read();
+			if (b == -1) {
+				throw new EOFException("Connection closed before the response body was complete.");
+			}
+			--remainingInChunk;
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+			if (!nextChunk()) {
+				return -1;
+			}
+			final int count = in.read(buffer, offset, (int) Math.min(length, remainingInChunk));
+			if (count == -1) {
+				throw new EOFException("Connection closed before the response body was complete.");
+			}
+			remainingInChunk -= count;
+			return count;
+		}
+
+		private boolean nextChunk() throws IOException {
+			if (eof) {
+				return false;
+			}
+			if (remainingInChunk > 0) {
+				return true;
+			}
+			String line = readLine(in);
+			if (line != null && line.length() == 0) {
+				// CRLF terminating the previous chunk
+				line = readLine(in);
+			}
+			if (line == null) {
+				throw new EOFException("Connection closed before the response body was complete.");
+			}
+			final int extension = line.indexOf(';');
+			try {
+				remainingInChunk = Long.parseLong((extension < 0 ? line : line.substring(0, extension)).trim(), 16);
+			} catch (NumberFormatException e) {
+				throw new IOException("Malformed chunk size '" + line + "'.");
+			}
+			if (remainingInChunk == 0) {
+				// Skip trailers
+				while ((line = readLine(in)) != null && line.length() > 0) {
+					continue;
+				}
+				eof = true;
+				return false;
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.swiftype.api.easy.helper;
+
+/**
+ * Search or suggest query against an engine, for running many of them at once.
+ *
+ */
+public class Query {
+	private final String engineId;
+	private final String documentTypeId;
+	private final String query;
+	private final SearchOptions options;
+
+	/**
+	 * @param engineId	Slug or id of an engine
+	 * @param query		Query terms
+	 */
+	public Query(final String engineId, final String query) {
+		this(engineId, null, query, SearchOptions.DEFAULT);
+	}
+
+	/**
+	 * @param engineId	Slug or id of an engine
+	 * @param query		Query terms
+	 * @param options	Options of the query
+	 */
+	public Query(final String engineId, final String query, final SearchOptions options) {
+		this(engineId, null, query, options);
+	}
+
+	/**
+	 * @param engineId			Slug or id of an engine
+	 * @param documentTypeId	Slug or id of a DocumentType, null for all DocumentTypes of the engine
+	 * @param query				Query terms
+	 * @param options			Options of the query
+	 */
+	public Query(final String engineId, final String documentTypeId, final String query, final SearchOptions options) {
+		if (engineId == null || query == null || options == null) {
+			throw new IllegalArgumentException("Engine id, query and options must not be null!");
+		}
+		this.engineId = engineId;
+		this.documentTypeId = documentTypeId;
+		this.query = query;
+		this.options = options;
+	}
+
+	public String getEngineId() {
+		return engineId;
+	}
+
+	/**
+	 * @return	Slug or id of the DocumentType or null if the query runs against the whole engine
+	 */
+	public String getDocumentTypeId() {
+		return documentTypeId;
+	}
+
+	public String getQuery() {
+		return query;
+	}
+
+	public SearchOptions getOptions() {
+		return options;
+	}
+}
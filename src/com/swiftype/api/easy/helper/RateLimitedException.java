@@ -0,0 +1,31 @@
+package com.swiftype.api.easy.helper;
+
+/**
+ * Thrown without sending the request if the {@link RateLimiter} has no permit available in time.
+ *
+ */
+public class RateLimitedException extends SwiftypeException {
+	private static final long serialVersionUID = 1L;
+
+	private final RateLimiter.EndpointClass endpointClass;
+
+	/**
+	 * @param endpointClass	Class of the endpoint whose rate limit was reached
+	 */
+	public RateLimitedException(final RateLimiter.EndpointClass endpointClass) {
+		super("Rate limit for " + endpointClass + " requests reached, request not sent.", null);
+		this.endpointClass = endpointClass;
+	}
+
+	public RateLimiter.EndpointClass getEndpointClass() {
+		return endpointClass;
+	}
+
+	/**
+	 * @return	False, waiting for a permit is already done by the {@link RateLimiter}
+	 */
+	@Override
+	public boolean isRetryable() {
+		return false;
+	}
+}
@@ -0,0 +1,247 @@
+package com.swiftype.api.easy.helper;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the request rate per API key and class of endpoint with token buckets, so batch jobs slow
+ * themselves down before the API answers with 429 and throttles interactive requests of the same account.
+ *
+ * <pre>
+ * final RateLimiter rateLimiter = new RateLimiter.Builder()
+ * 		.limit(RateLimiter.EndpointClass.BULK_DOCUMENTS, 5, 10)
+ * 		.limit(RateLimiter.EndpointClass.SEARCH, 50, 100)
+ * 		.build();
+ * </pre>
+ *
+ * Endpoint classes without a limit are not limited. The buckets are lock free, a permit is taken with a
+ * single compare and set.
+ *
+ */
+public class RateLimiter {
+	public enum EndpointClass {
+		SEARCH, SUGGEST, BULK_DOCUMENTS, ANALYTICS, CRAWL, OTHER;
+
+		/**
+		 * @param endpoint	Endpoint template, see {@link RequestMetrics#endpointOf(String)}
+		 * @return			Class of the endpoint
+		 */
+		public static EndpointClass of(final String endpoint) {
+			if (endpoint.endsWith("/search")) {
+				return SEARCH;
+			}
+			if (endpoint.endsWith("/suggest")) {
+				return SUGGEST;
+			}
+			if (endpoint.contains("/documents/bulk_")) {
+				return BULK_DOCUMENTS;
+			}
+			if (endpoint.contains("/analytics/")) {
+				return ANALYTICS;
+			}
+			if (endpoint.endsWith("/recrawl") || endpoint.endsWith("/crawl_url")) {
+				return CRAWL;
+			}
+			return OTHER;
+		}
+	}
+
+	private final Map<String, Limit> limits;
+	private final long maxWaitNanos;
+	private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<String, Bucket>();
+
+	private final AtomicLong delayed = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+
+	private RateLimiter(final Builder builder) {
+		limits = new HashMap<String, Limit>(builder.limits);
+		maxWaitNanos = builder.maxWaitNanos;
+	}
+
+	/**
+	 * Takes a permit, waiting until one is available.
+	 *
+	 * @param apiKey		API key sending the request
+	 * @param endpointClass	Class of the endpoint
+	 * @throws RateLimitedException	If no permit is available within the maximum wait or the {@link Deadline} of the call
+	 */
+	public void acquire(final String apiKey, final EndpointClass endpointClass) {
+		final Bucket bucket = bucket(apiKey, endpointClass);
+		if (bucket == null) {
+			return;
+		}
+		long maxWait = maxWaitNanos;
+		final Deadline deadline = Deadline.current();
+		if (deadline != null) {
+			maxWait = Math.min(maxWait, TimeUnit.MILLISECONDS.toNanos(Math.max(0, deadline.remainingMillis())));
+		}
+		final long waitNanos = bucket.reserve(maxWait);
+		if (waitNanos < 0) {
+			rejected.incrementAndGet();
+			throw new RateLimitedException(endpointClass);
+		}
+		if (waitNanos > 0) {
+			delayed.incrementAndGet();
+			try {
+				TimeUnit.NANOSECONDS.sleep(waitNanos);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SwiftypeException("Interrupted while waiting for a " + endpointClass + " permit", e);
+			}
+		}
+	}
+
+	/**
+	 * Takes a permit if one is available right now.
+	 *
+	 * @param apiKey		API key sending the request
+	 * @param endpointClass	Class of the endpoint
+	 * @return				True if the request may be sent
+	 */
+	public boolean tryAcquire(final String apiKey, final EndpointClass endpointClass) {
+		final Bucket bucket = bucket(apiKey, endpointClass);
+		return bucket == null || bucket.reserve(0) == 0;
+	}
+
+	/**
+	 * @return	Number of requests which had to wait for a permit
+	 */
+	public long getDelayed() {
+		return delayed.get();
+	}
+
+	/**
+	 * @return	Number of requests not sent because no permit was available in time
+	 */
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	private Bucket bucket(final String apiKey, final EndpointClass endpointClass) {
+		final String key = key(apiKey, endpointClass);
+		Bucket bucket = buckets.get(key);
+		if (bucket == null) {
+			Limit limit = limits.get(key);
+			if (limit == null) {
+				limit = limits.get(key(null, endpointClass));
+				if (limit == null) {
+					return null;
+				}
+			}
+			final Bucket created = new Bucket(limit);
+			bucket = buckets.putIfAbsent(key, created);
+			if (bucket == null) {
+				bucket = created;
+			}
+		}
+		return bucket;
+	}
+
+	private static String key(final String apiKey, final EndpointClass endpointClass) {
+		return apiKey == null ? endpointClass.name() : apiKey + "\n" + endpointClass.name();
+	}
+
+	private static class Limit {
+		private final long intervalNanos;
+		private final long burstNanos;
+
+		private Limit(final double permitsPerSecond, final int burst) {
+			intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+			burstNanos = intervalNanos * (burst - 1);
+		}
+	}
+
+	/**
+	 * Token bucket stored as the time at which the bucket will be full again: a request may be sent once
+	 * that time is no more than the burst ahead of now, and every permit moves it one interval further.
+	 */
+	private static class Bucket {
+		private final Limit limit;
+		private final AtomicLong fullAt = new AtomicLong(System.nanoTime());
+
+		private Bucket(final Limit limit) {
+			this.limit = limit;
+		}
+
+		/**
+		 * @param maxWaitNanos	Longest acceptable wait for the permit
+		 * @return				Nanoseconds to wait before sending the request or -1 if it would take longer than
+		 * 						the maximum wait, in which case no permit was taken
+		 */
+		private long reserve(final long maxWaitNanos) {
+			while (true) {
+				final long now = System.nanoTime();
+				final long current = fullAt.get();
+				final long start = current - now > 0 ? current : now;
+				final long waitNanos = Math.max(0, start - limit.burstNanos - now);
+				if (waitNanos > maxWaitNanos) {
+					return -1;
+				}
+				if (fullAt.compareAndSet(current, start + limit.intervalNanos)) {
+					return waitNanos;
+				}
+			}
+		}
+	}
+
+	public static class Builder {
+		private final Map<String, Limit> limits = new HashMap<String, Limit>();
+		private long maxWaitNanos = Long.MAX_VALUE;
+
+		/**
+		 * @param endpointClass		Class of endpoints to limit for every API key
+		 * @param permitsPerSecond	Sustained requests per second
+		 * @param burst				Requests which may be sent at once after a quiet period
+		 * @return					Builder to add more options. If your finished create the limiter with {@link #build()}.
+		 */
+		public Builder limit(final EndpointClass endpointClass, final double permitsPerSecond, final int burst) {
+			return limit(null, endpointClass, permitsPerSecond, burst);
+		}
+
+		/**
+		 * @param apiKey			API key to limit, overriding the limit for every API key
+		 * @param endpointClass		Class of endpoints to limit
+		 * @param permitsPerSecond	Sustained requests per second
+		 * @param burst				Requests which may be sent at once after a quiet period
+		 * @return					Builder to add more options. If your finished create the limiter with {@link #build()}.
+		 */
+		public Builder limit(final String apiKey, final EndpointClass endpointClass, final double permitsPerSecond, final int burst) {
+			if (endpointClass == null) {
+				throw new IllegalArgumentException("EndpointClass must not be null!");
+			}
+			if (!(permitsPerSecond > 0)) {
+				throw new IllegalArgumentException("permitsPerSecond has to be positive!");
+			}
+			if (burst < 1) {
+				throw new IllegalArgumentException("burst has to be positive!");
+			}
+			limits.put(key(apiKey, endpointClass), new Limit(permitsPerSecond, burst));
+			return this;
+		}
+
+		/**
+		 * @param maxWait	Longest time a request waits for a permit before failing with a {@link RateLimitedException},
+		 * 					0 never waits. By default requests wait as long as needed.
+		 * @param unit		Unit of the maximum wait
+		 * @return			Builder to add more options. If your finished create the limiter with {@link #build()}.
+		 */
+		public Builder maxWait(final long maxWait, final TimeUnit unit) {
+			if (maxWait < 0) {
+				throw new IllegalArgumentException("maxWait must not be negative!");
+			}
+			this.maxWaitNanos = unit.toNanos(maxWait);
+			return this;
+		}
+
+		/**
+		 * @return		RateLimiter based on the supplied values to this builder.
+		 */
+		public RateLimiter build() {
+			return new RateLimiter(this);
+		}
+	}
+}
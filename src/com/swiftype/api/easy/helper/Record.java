@@ -1,44 +1,145 @@
 package com.swiftype.api.easy.helper;
 
+import java.io.IOException;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+/**
+ * Single hit of a search or suggest. Fields are decoded when they are accessed: a record read from
+ * a response only keeps the source text of the hit and the offsets of its fields, so reading the
+ * title of a hit doesn't decode all its other fields. {@link #getFields()} and
+ * {@link #getHighlightedFields()} decode all fields once and keep them.
+ *
+ */
 public class Record {
-	private final Map<String, String> fields;
-	private final Map<String, String> highlightedFields;
+	private static final String HIGHLIGHT = "highlight";
 
-	private Record(final Map<String, String> fields,
-				  final Map<String, String> highlightedFields) {
+	private final Fields fields;
+	private final Fields highlightedFields;
+	private volatile Map<String, String> fieldMap;
+	private volatile Map<String, String> highlightedFieldMap;
+
+	private Record(final Fields fields, final Fields highlightedFields) {
 		this.fields = fields;
 		this.highlightedFields = highlightedFields;
 	}
 
+	/**
+	 * @param name	Name of the field
+	 * @return		Value of the field as {@link JSONObject#optString(String)} returns it or null if the record has no such field
+	 */
+	public String getField(final String name) {
+		return fields.get(name);
+	}
+
+	/**
+	 * @param name	Name of the field
+	 * @return		Highlighted value of the field or null if the field has no highlights
+	 */
+	public String getHighlightedField(final String name) {
+		return highlightedFields.get(name);
+	}
+
+	/**
+	 * @param name			Name of the field
+	 * @param defaultValue	Returned if the record has no such field or it is null
+	 * @return				Value of a number field, read without converting it to a String first
+	 * @throws NumberFormatException	If the field is no number
+	 */
+	public long getLong(final String name, final long defaultValue) {
+		return fields.getLong(name, defaultValue);
+	}
+
+	/**
+	 * @param name			Name of the field
+	 * @param defaultValue	Returned if the record has no such field or it is null
+	 * @return				Value of a float field
+	 * @throws NumberFormatException	If the field is no number
+	 */
+	public double getDouble(final String name, final double defaultValue) {
+		return fields.getDouble(name, defaultValue);
+	}
+
+	/**
+	 * @param name	Name of the field
+	 * @return		Value of a date field or null if the record has no such field
+	 * @throws IllegalArgumentException	If the field is no ISO 8601 date
+	 */
+	public Instant getInstant(final String name) {
+		return FieldValues.toInstant(fields.value(name));
+	}
+
+	/**
+	 * @param name	Name of the field
+	 * @return		Elements of an array field, a single value as list of one element or null if the record has no such field
+	 */
+	public List<String> getStringList(final String name) {
+		return FieldValues.toStringList(fields.value(name));
+	}
+
+	/**
+	 * @param name	Name of the field
+	 * @return		Value of a location field or null if the record has no such field
+	 * @throws IllegalStateException	If the field is no location
+	 */
+	public GeoPoint getGeoPoint(final String name) {
+		return FieldValues.toGeoPoint(fields.value(name));
+	}
+
+	/**
+	 * @return	Names of all fields of the record
+	 */
+	public Set<String> getFieldNames() {
+		return fields.names();
+	}
+
+	/**
+	 * @return	All fields of the record, decoded on the first call. The map is shared and can't be modified.
+	 */
 	public Map<String, String> getFields() {
-		return fields;
+		Map<String, String> map = fieldMap;
+		if (map == null) {
+			map = Collections.unmodifiableMap(fields.toMap());
+			fieldMap = map;
+		}
+		return map;
 	}
 
+	/**
+	 * @return	All highlighted fields of the record, decoded on the first call. The map is shared and can't be modified.
+	 */
 	public Map<String, String> getHighlightedFields() {
-		return highlightedFields;
+		Map<String, String> map = highlightedFieldMap;
+		if (map == null) {
+			map = Collections.unmodifiableMap(highlightedFields.toMap());
+			highlightedFieldMap = map;
+		}
+		return map;
 	}
 
+	/**
+	 * @param json	Record object, which is not modified and must not be modified while the record is used
+	 * @return		Record reading its fields from the object
+	 */
 	public static Record fromJson(final JSONObject json) {
-		JSONObject highlights;
-		try {
-			highlights = json.getJSONObject("highlight");
-		} catch (JSONException e) {
+		JSONObject highlights = json.optJSONObject(HIGHLIGHT);
+		if (highlights == null) {
 			highlights = new JSONObject();
-		} finally {
-			json.remove("highlight");
 		}
-
-		return new Record(extractFields(json), extractFields(highlights));
+		return new Record(new ObjectFields(json, HIGHLIGHT), new ObjectFields(highlights, null));
 	}
 
 	public static List<Record> fromJsonArray(final JSONArray json) {
@@ -53,12 +154,378 @@ public class Record {
 		return records;
 	}
 
-	private static Map<String, String> extractFields(final JSONObject json) {
-		final Map<String, String> fields = new HashMap<String, String>(json.length());
-		for (@SuppressWarnings("unchecked")	final Iterator<String> keys = json.keys(); keys.hasNext();) {
-			final String key = keys.next();
-			fields.put(key, json.optString(key));
+	/**
+	 * @param reader	Reader positioned in front of a record object
+	 * @return			Record read from the reader, decoding its fields lazily if the reader can capture their source
+	 */
+	public static Record fromJson(final JsonReader reader) throws IOException, JSONException {
+		if (!reader.canCapture()) {
+			return fromJson(reader.readObject());
+		}
+		final SourceFields fields = new SourceFields();
+		final SourceFields highlightedFields = new SourceFields();
+		reader.beginCapture();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			final String key = reader.nextName();
+			if (!HIGHLIGHT.equals(key)) {
+				fields.add(key, reader);
+			} else if (reader.peek() == JsonReader.Token.BEGIN_OBJECT) {
+				reader.beginObject();
+				while (reader.hasNext()) {
+					highlightedFields.add(reader.nextName(), reader);
+				}
+				reader.endObject();
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		final String source = reader.endCapture();
+		fields.seal(source);
+		highlightedFields.seal(source);
+		return new Record(fields, highlightedFields);
+	}
+
+	/**
+	 * @param reader	Reader positioned in front of an array of records
+	 * @return			Records read from the reader
+	 */
+	public static List<Record> fromJsonArray(final JsonReader reader) throws IOException, JSONException {
+		final List<Record> records = new ArrayList<Record>();
+		reader.beginArray();
+		while (reader.hasNext()) {
+			records.add(Record.fromJson(reader));
+		}
+		reader.endArray();
+		return records;
+	}
+
+	private abstract static class Fields {
+		abstract String get(String name);
+
+		/**
+		 * @return	Value as org.json would have parsed it or null if there is no such field
+		 */
+		abstract Object value(String name);
+
+		long getLong(final String name, final long defaultValue) {
+			return FieldValues.toLong(value(name), defaultValue);
+		}
+
+		double getDouble(final String name, final double defaultValue) {
+			return FieldValues.toDouble(value(name), defaultValue);
+		}
+
+		abstract Set<String> names();
+
+		Map<String, String> toMap() {
+			final Set<String> names = names();
+			final Map<String, String> map = new HashMap<String, String>(Math.max(4, names.size() * 4 / 3 + 1));
+			for (final String name : names) {
+				map.put(name, get(name));
+			}
+			return map;
+		}
+	}
+
+	/**
+	 * Fields of an already parsed record object.
+	 */
+	private static class ObjectFields extends Fields {
+		private final JSONObject json;
+		private final String excluded;
+
+		private ObjectFields(final JSONObject json, final String excluded) {
+			this.json = json;
+			this.excluded = excluded;
+		}
+
+		@Override
+		String get(final String name) {
+			if (name.equals(excluded) || !json.has(name)) {
+				return null;
+			}
+			return json.optString(name);
+		}
+
+		@Override
+		Object value(final String name) {
+			return name.equals(excluded) ? null : json.opt(name);
+		}
+
+		@Override
+		Set<String> names() {
+			final Set<String> names = new LinkedHashSet<String>();
+			for (@SuppressWarnings("unchecked") final Iterator<String> keys = json.keys(); keys.hasNext();) {
+				final String key = keys.next();
+				if (!key.equals(excluded)) {
+					names.add(key);
+				}
+			}
+			return Collections.unmodifiableSet(names);
+		}
+	}
+
+	/**
+	 * Fields given by their offsets in the source text of the record. Values are only decoded when accessed
+	 * and kept afterwards, records of cached results are read by many threads.
+	 */
+	private static class SourceFields extends Fields {
+		private String source;
+		private String[] names = new String[8];
+		private int[] bounds = new int[16];
+		private int size;
+		private AtomicReferenceArray<Object> values;
+
+		private void add(final String name, final JsonReader reader) throws IOException, JSONException {
+			if (size == names.length) {
+				names = Arrays.copyOf(names, size * 2);
+				bounds = Arrays.copyOf(bounds, size * 4);
+			}
+			final int start = reader.nextValueOffset();
+			reader.skipValue();
+			names[size] = name;
+			bounds[2 * size] = start;
+			bounds[2 * size + 1] = reader.captureOffset();
+			++size;
+		}
+
+		private void seal(final String source) {
+			this.source = source;
+			this.values = new AtomicReferenceArray<Object>(size);
+		}
+
+		@Override
+		String get(final String name) {
+			final int i = indexOf(name);
+			if (i < 0) {
+				return null;
+			}
+			final Object value = value(i);
+			return value instanceof String ? (String) value : value.toString();
+		}
+
+		@Override
+		Object value(final String name) {
+			final int i = indexOf(name);
+			return i < 0 ? null : value(i);
+		}
+
+		/**
+		 * Parses integral numbers straight from the source, without a String or boxed value in between.
+		 */
+		@Override
+		long getLong(final String name, final long defaultValue) {
+			final int i = indexOf(name);
+			if (i < 0) {
+				return defaultValue;
+			}
+			final int start = bounds[2 * i];
+			final int end = bounds[2 * i + 1];
+			final boolean negative = source.charAt(start) == '-';
+			int p = negative ? start + 1 : start;
+			if (p == end || end - p > 18) {
+				return FieldValues.toLong(value(i), defaultValue);
+			}
+			long result = 0;
+			for (; p < end; ++p) {
+				final char c = source.charAt(p);
+				if (c < '0' || c > '9') {
+					return FieldValues.toLong(value(i), defaultValue);
+				}
+				result = result * 10 + (c - '0');
+			}
+			return negative ? -result : result;
+		}
+
+		private int indexOf(final String name) {
+			for (int i = size - 1; i >= 0; --i) {
+				if (names[i].equals(name)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		Set<String> names() {
+			return Collections.unmodifiableSet(new LinkedHashSet<String>(Arrays.asList(names).subList(0, size)));
+		}
+
+		/**
+		 * @return	Value as org.json would have parsed it, decoded on the first access
+		 */
+		private Object value(final int i) {
+			final Object cached = values.get(i);
+			if (cached != null) {
+				return cached;
+			}
+			final Object value = decode(bounds[2 * i], bounds[2 * i + 1]);
+			return values.compareAndSet(i, null, value) ? value : values.get(i);
+		}
+
+		/**
+		 * Strings without escapes and literals are cut from the source, everything else is decoded
+		 * straight from the source without copying it.
+		 */
+		private Object decode(final int start, final int end) {
+			final char first = source.charAt(start);
+			if (first == '"') {
+				int p = start + 1;
+				while (p < end && source.charAt(p) != '\\') {
+					++p;
+				}
+				if (p == end) {
+					return source.substring(start + 1, end - 1);
+				}
+			} else if (first != '{' && first != '[') {
+				return JSONObject.stringToValue(source.substring(start, end));
+			}
+			try {
+				return new SourceDecoder(source, start).readValue();
+			} catch (JSONException e) {
+				throw new IllegalStateException(e.getMessage());
+			} catch (RuntimeException e) {
+				throw new IllegalStateException("Malformed value at " + start + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Decodes a value of already validated JSON source text into org.json objects.
+	 */
+	private static class SourceDecoder {
+		private final String source;
+		private int pos;
+
+		private SourceDecoder(final String source, final int pos) {
+			this.source = source;
+			this.pos = pos;
+		}
+
+		private Object readValue() throws JSONException {
+			skipWhitespace();
+			switch (source.charAt(pos)) {
+			case '{':
+				return readObject();
+			case '[':
+				return readArray();
+			case '"':
+				return readString();
+			default:
+				return readLiteral();
+			}
+		}
+
+		private JSONObject readObject() throws JSONException {
+			final JSONObject object = new JSONObject();
+			++pos;
+			skipWhitespace();
+			if (source.charAt(pos) == '}') {
+				++pos;
+				return object;
+			}
+			while (true) {
+				skipWhitespace();
+				final String name = readString();
+				skipWhitespace();
+				expect(':');
+				object.put(name, readValue());
+				skipWhitespace();
+				if (source.charAt(pos) == '}') {
+					++pos;
+					return object;
+				}
+				expect(',');
+			}
+		}
+
+		private JSONArray readArray() throws JSONException {
+			final JSONArray array = new JSONArray();
+			++pos;
+			skipWhitespace();
+			if (source.charAt(pos) == ']') {
+				++pos;
+				return array;
+			}
+			while (true) {
+				array.put(readValue());
+				skipWhitespace();
+				if (source.charAt(pos) == ']') {
+					++pos;
+					return array;
+				}
+				expect(',');
+			}
+		}
+
+		private String readString() throws JSONException {
+			expect('"');
+			final int start = pos;
+			char c;
+			while ((c = source.charAt(pos)) != '"' && c != '\\') {
+				++pos;
+			}
+			if (c == '"') {
+				return source.substring(start, pos++);
+			}
+			final StringBuilder sb = new StringBuilder(pos - start + 16);
+			sb.append(source, start, pos);
+			while ((c = source.charAt(pos++)) != '"') {
+				if (c != '\\') {
+					sb.append(c);
+					continue;
+				}
+				c = source.charAt(pos++);
+				switch (c) {
+				case 'b':
+					sb.append('\b');
+					break;
+				case 'f':
+					sb.append('\f');
+					break;
+				case 'n':
+					sb.append('\n');
+					break;
+				case 'r':
+					sb.append('\r');
+					break;
+				case 't':
+					sb.append('\t');
+					break;
+				case 'u':
+					sb.append((char) Integer.parseInt(source.substring(pos, pos + 4), 16));
+					pos += 4;
+					break;
+				default:
+					sb.append(c);
+					break;
+				}
+			}
+			return sb.toString();
+		}
+
+		private Object readLiteral() {
+			final int start = pos;
+			char c;
+			while (pos < source.length() && (c = source.charAt(pos)) != ',' && c != '}' && c != ']' && c > ' ') {
+				++pos;
+			}
+			return JSONObject.stringToValue(source.substring(start, pos));
+		}
+
+		private void expect(final char expected) throws JSONException {
+			if (source.charAt(pos) != expected) {
+				throw new JSONException("Expected '" + expected + "' at " + pos + " but was '" + source.charAt(pos) + "'");
+			}
+			++pos;
+		}
+
+		private void skipWhitespace() {
+			while (source.charAt(pos) <= ' ') {
+				++pos;
+			}
 		}
-		return fields;
 	}
 }
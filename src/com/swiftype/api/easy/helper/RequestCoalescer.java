@@ -0,0 +1,114 @@
+package com.swiftype.api.easy.helper;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent identical reads share a single request. The first caller of a key sends the request,
+ * callers arriving while it is in flight wait for it and get the same result or exception. Once the
+ * request finished the next caller sends a new one, so results are never served after they arrived.
+ *
+ * Shared results must not be modified.
+ *
+ */
+public class RequestCoalescer {
+	private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<String, CompletableFuture<Object>>();
+
+	private final AtomicLong executed = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+
+	/**
+	 * @param path	Path of the request, used in exceptions
+	 * @param key	Key equal for all requests returning the same result
+	 * @param call	Sends the request
+	 * @return		Result of the call, either of this thread or of the one already running it
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T execute(final String path, final String key, final Supplier<T> call) {
+		while (true) {
+			final CompletableFuture<Object> created = new CompletableFuture<Object>();
+			final CompletableFuture<Object> running = inFlight.putIfAbsent(key, created);
+			if (running == null) {
+				return run(key, created, call);
+			}
+			coalesced.incrementAndGet();
+			try {
+				return (T) await(path, running);
+			} catch (DeadlineExceededException e) {
+				final Deadline deadline = Deadline.current();
+				if (deadline == null || deadline.isExpired()) {
+					throw e;
+				}
+				// The deadline of the other caller passed, but this caller still has time to send its own request
+			}
+		}
+	}
+
+	/**
+	 * @return	Number of requests sent
+	 */
+	public long getExecuted() {
+		return executed.get();
+	}
+
+	/**
+	 * @return	Number of calls which got the result of a request sent for another caller
+	 */
+	public long getCoalesced() {
+		return coalesced.get();
+	}
+
+	/**
+	 * @return	Number of requests currently in flight
+	 */
+	public int getInFlight() {
+		return inFlight.size();
+	}
+
+	private <T> T run(final String key, final CompletableFuture<Object> future, final Supplier<T> call) {
+		executed.incrementAndGet();
+		try {
+			final T result = call.get();
+			future.complete(result);
+			return result;
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+			throw e;
+		} catch (Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, future);
+		}
+	}
+
+	private static Object await(final String path, final CompletableFuture<Object> future) {
+		final Deadline deadline = Deadline.current();
+		try {
+			if (deadline == null) {
+				return future.get();
+			}
+			return future.get(Math.max(0, deadline.remainingMillis()), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			throw new DeadlineExceededException(path);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SwiftypeException("Interrupted while waiting for " + path, e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause.getMessage());
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package com.swiftype.api.easy.helper;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Timings of a single request attempt, handed to every {@link MetricsListener}.
+ *
+ */
+public class RequestMetrics {
+	private static final Set<String> COLLECTIONS = new HashSet<String>(Arrays.asList(
+			"engines", "document_types", "documents", "domains"));
+	private static final Set<String> ACTIONS = new HashSet<String>(Arrays.asList(
+			"search", "suggest", "create_or_update", "bulk_create", "bulk_create_or_update", "bulk_update", "bulk_destroy"));
+
+	private final String endpoint;
+	private final String method;
+	private final int status;
+	private final long connectNanos;
+	private final long timeToFirstByteNanos;
+	private final long bodyReadNanos;
+	private final long parseNanos;
+	private final long totalNanos;
+
+	/**
+	 * @param endpoint				Endpoint template, see {@link #endpointOf(String)}
+	 * @param method				HTTP method
+	 * @param status				HTTP status or {@link SwiftypeException#NO_RESPONSE}
+	 * @param connectNanos			Time to get a connection, 0 for a reused connection
+	 * @param timeToFirstByteNanos	Time from sending the request until the response headers were received
+	 * @param bodyReadNanos			Time spent waiting for the response body
+	 * @param parseNanos			Time spent parsing the response body
+	 * @param totalNanos			Time of the whole attempt
+	 */
+	public RequestMetrics(final String endpoint,
+						  final String method,
+						  final int status,
+						  final long connectNanos,
+						  final long timeToFirstByteNanos,
+						  final long bodyReadNanos,
+						  final long parseNanos,
+						  final long totalNanos) {
+		this.endpoint = endpoint;
+		this.method = method;
+		this.status = status;
+		this.connectNanos = connectNanos;
+		this.timeToFirstByteNanos = timeToFirstByteNanos;
+		this.bodyReadNanos = bodyReadNanos;
+		this.parseNanos = parseNanos;
+		this.totalNanos = totalNanos;
+	}
+
+	/**
+	 * Replaces the ids in a path by placeholders, so all requests to the same endpoint share a name,
+	 * e.g. {@code engines/{id}/document_types/{id}/search}.
+	 *
+	 * @param path	Path of the request, relative to the API base path and with or without the .json suffix
+	 * @return		Endpoint template
+	 */
+	public static String endpointOf(final String path) {
+		final String[] segments = (path.endsWith(".json") ? path.substring(0, path.length() - 5) : path).split("/");
+		final StringBuilder sb = new StringBuilder(path.length());
+		String previous = null;
+		for (final String segment : segments) {
+			if (segment.isEmpty()) {
+				continue;
+			}
+			if (sb.length() > 0) {
+				sb.append('/');
+			}
+			if (previous != null && COLLECTIONS.contains(previous) && !ACTIONS.contains(segment)) {
+				sb.append("{id}");
+			} else {
+				sb.append(segment);
+			}
+			previous = segment;
+		}
+		return sb.toString();
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public long getConnectNanos() {
+		return connectNanos;
+	}
+
+	public long getTimeToFirstByteNanos() {
+		return timeToFirstByteNanos;
+	}
+
+	public long getBodyReadNanos() {
+		return bodyReadNanos;
+	}
+
+	public long getParseNanos() {
+		return parseNanos;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+}
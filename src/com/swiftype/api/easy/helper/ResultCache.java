@@ -0,0 +1,264 @@
+package com.swiftype.api.easy.helper;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Size bounded cache for search and suggest results. Every entry expires after the configured time to live,
+ * the least recently used entries are evicted once the cache is full. The cache is split into segments
+ * with their own locks, so concurrent lookups rarely wait on each other.
+ *
+ * Cached results are shared between all callers and must not be modified.
+ *
+ */
+public class ResultCache {
+	private static final int SEGMENTS = 16;
+
+	private final long ttlMillis;
+	private final Segment[] segments = new Segment[SEGMENTS];
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	private ResultCache(final Builder builder) {
+		ttlMillis = builder.ttlMillis;
+		final int segmentSize = Math.max(1, (builder.maximumSize + SEGMENTS - 1) / SEGMENTS);
+		for (int i = 0; i < SEGMENTS; ++i) {
+			segments[i] = new Segment(segmentSize);
+		}
+	}
+
+	/**
+	 * @param path		Path of the search or suggest endpoint, identifying engine and DocumentType
+	 * @param query		Query of the request
+	 * @param options	Options of the request
+	 * @return			Key equal for all requests returning the same results
+	 */
+	public static String key(final String path, final String query, final SearchOptions options) {
+		final StringBuilder sb = new StringBuilder(path.length() + query.length() + 64);
+		sb.append(path).append('\n');
+		sb.append(normalize(query)).append('\n');
+		appendCanonical(sb, options.toJson());
+		return sb.toString();
+	}
+
+	/**
+	 * @param key		Key of the result, see {@link #key(String, String, SearchOptions)}
+	 * @param loader	Loads the result if it is not cached or expired
+	 * @return			Cached or loaded result. Null results are not cached.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(final String key, final Supplier<T> loader) {
+		final Segment segment = segmentFor(key);
+		final long now = System.currentTimeMillis();
+		synchronized (segment) {
+			final CachedResult entry = segment.get(key);
+			if (entry != null) {
+				if (entry.expiresAt > now) {
+					hits.incrementAndGet();
+					return (T) entry.value;
+				}
+				segment.remove(key);
+			}
+		}
+		misses.incrementAndGet();
+		final T value = loader.get();
+		if (value != null) {
+			synchronized (segment) {
+				segment.put(key, new CachedResult(value, System.currentTimeMillis() + ttlMillis));
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Removes all cached results.
+	 */
+	public void invalidateAll() {
+		for (final Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	/**
+	 * Removes all expired results.
+	 */
+	public void cleanUp() {
+		final long now = System.currentTimeMillis();
+		for (final Segment segment : segments) {
+			synchronized (segment) {
+				for (final Iterator<CachedResult> it = segment.values().iterator(); it.hasNext();) {
+					if (it.next().expiresAt <= now) {
+						it.remove();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return	Number of cached results, including expired ones not removed yet
+	 */
+	public int size() {
+		int size = 0;
+		for (final Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return	Number of lookups answered from the cache
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return	Number of lookups which had to load the result
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return	Number of results evicted because the cache was full
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	private Segment segmentFor(final String key) {
+		final int hash = key.hashCode();
+		return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+	}
+
+	private static String normalize(final String query) {
+		final StringBuilder sb = new StringBuilder(query.length());
+		boolean space = false;
+		for (int i = 0; i < query.length(); ++i) {
+			final char c = query.charAt(i);
+			if (Character.isWhitespace(c)) {
+				space = sb.length() > 0;
+			} else {
+				if (space) {
+					sb.append(' ');
+					space = false;
+				}
+				sb.append(Character.toLowerCase(c));
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writes the JSON with sorted keys, so equal options built in a different order get the same key.
+	 */
+	private static void appendCanonical(final StringBuilder sb, final Object value) {
+		if (value instanceof JSONObject) {
+			final JSONObject json = (JSONObject) value;
+			sb.append('{');
+			boolean first = true;
+			for (@SuppressWarnings("unchecked") final Iterator<String> keys = json.sortedKeys(); keys.hasNext();) {
+				final String key = keys.next();
+				if (!first) {
+					sb.append(',');
+				}
+				first = false;
+				sb.append(JSONObject.quote(key)).append(':');
+				appendCanonical(sb, json.opt(key));
+			}
+			sb.append('}');
+		} else if (value instanceof JSONArray) {
+			final JSONArray json = (JSONArray) value;
+			sb.append('[');
+			for (int i = 0; i < json.length(); ++i) {
+				if (i > 0) {
+					sb.append(',');
+				}
+				appendCanonical(sb, json.opt(i));
+			}
+			sb.append(']');
+		} else if (value instanceof String) {
+			sb.append(JSONObject.quote((String) value));
+		} else {
+			sb.append(value);
+		}
+	}
+
+	public static class Builder {
+		private int maximumSize = 10000;
+		private long ttlMillis = TimeUnit.SECONDS.toMillis(60);
+
+		/**
+		 * @param maximumSize	Maximum number of cached results
+		 * @return				Builder to add more options. If your finished create the cache with {@link #build()}.
+		 */
+		public Builder maximumSize(final int maximumSize) {
+			if (maximumSize < 1) {
+				throw new IllegalArgumentException("maximumSize has to be positive!");
+			}
+			this.maximumSize = maximumSize;
+			return this;
+		}
+
+		/**
+		 * @param ttl	Time a result is served from the cache
+		 * @param unit	Unit of the time to live
+		 * @return		Builder to add more options. If your finished create the cache with {@link #build()}.
+		 */
+		public Builder ttl(final long ttl, final TimeUnit unit) {
+			this.ttlMillis = unit.toMillis(ttl);
+			return this;
+		}
+
+		/**
+		 * @return		ResultCache based on the supplied values to this builder.
+		 */
+		public ResultCache build() {
+			return new ResultCache(this);
+		}
+	}
+
+	private static class CachedResult {
+		private final Object value;
+		private final long expiresAt;
+
+		private CachedResult(final Object value, final long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private class Segment extends LinkedHashMap<String, CachedResult> {
+		private static final long serialVersionUID = 1L;
+
+		private final int maximumSize;
+
+		private Segment(final int maximumSize) {
+			super(16, 0.75f, true);
+			this.maximumSize = maximumSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, CachedResult> eldest) {
+			if (size() > maximumSize) {
+				evictions.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.swiftype.api.easy.helper;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how often and after which delay {@link Client} repeats idempotent requests which failed with
+ * 429, a 5xx status or a connection failure. Delays grow exponentially and are randomized
+ * ("full jitter"), so clients failing at the same time don't retry at the same time. A delay requested
+ * by the server through Retry-After is waited for in full, if the server asks for more than the max backoff
+ * the request is not retried.
+ *
+ */
+public class RetryPolicy {
+	/**
+	 * Policy which never retries
+	 */
+	public static final RetryPolicy NONE = new Builder().maxRetries(0).build();
+
+	private final int maxRetries;
+	private final long initialBackoffMillis;
+	private final long maxBackoffMillis;
+
+	private RetryPolicy(final Builder builder) {
+		maxRetries = builder.maxRetries;
+		initialBackoffMillis = builder.initialBackoffMillis;
+		maxBackoffMillis = builder.maxBackoffMillis;
+	}
+
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	/**
+	 * @param retry				Number of the retry, starting at 1
+	 * @param retryAfterMillis	Delay requested by the server through Retry-After or -1
+	 * @return					Milliseconds to wait before the retry or -1 if the server asked to wait longer than the max backoff
+	 */
+	public long backoffMillis(final int retry, final long retryAfterMillis) {
+		if (retryAfterMillis > maxBackoffMillis) {
+			return -1;
+		}
+		final long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(retry - 1, 30));
+		final long backoff = ThreadLocalRandom.current().nextLong(ceiling + 1);
+		return Math.max(backoff, retryAfterMillis);
+	}
+
+	public static class Builder {
+		private int maxRetries = 2;
+		private long initialBackoffMillis = 100;
+		private long maxBackoffMillis = TimeUnit.SECONDS.toMillis(2);
+
+		/**
+		 * @param maxRetries	Retries after the first attempt, 0 disables retries
+		 * @return				Builder to add more options. If your finished create the policy with {@link #build()}.
+		 */
+		public Builder maxRetries(final int maxRetries) {
+			if (maxRetries < 0) {
+				throw new IllegalArgumentException("maxRetries must not be negative!");
+			}
+			this.maxRetries = maxRetries;
+			return this;
+		}
+
+		/**
+		 * @param backoff	Upper bound of the delay before the first retry, doubled for every further retry
+		 * @param unit		Unit of the backoff
+		 * @return			Builder to add more options. If your finished create the policy with {@link #build()}.
+		 */
+		public Builder initialBackoff(final long backoff, final TimeUnit unit) {
+			this.initialBackoffMillis = unit.toMillis(backoff);
+			return this;
+		}
+
+		/**
+		 * @param backoff	Upper bound of any delay, requests for which the server asks for a longer delay are not retried
+		 * @param unit		Unit of the backoff
+		 * @return			Builder to add more options. If your finished create the policy with {@link #build()}.
+		 */
+		public Builder maxBackoff(final long backoff, final TimeUnit unit) {
+			this.maxBackoffMillis = unit.toMillis(backoff);
+			return this;
+		}
+
+		/**
+		 * @return		RetryPolicy based on the supplied values to this builder.
+		 */
+		public RetryPolicy build() {
+			return new RetryPolicy(this);
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package com.swiftype.api.easy.helper;
 
+import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -8,14 +10,18 @@ import java.util.Map;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-
+/**
+ * Results of a search for one DocumentType. Cached and coalesced searches hand the same results to
+ * several callers, so the results and their records can't be modified.
+ *
+ */
 public class SearchResult {
 	private final Info info;
 	private final List<Record> results;
 
 	private SearchResult(final Info info, final List<Record> results) {
 		this.info = info;
-		this.results = results;
+		this.results = Collections.unmodifiableList(results);
 	}
 
 	public Info getInfo() {
@@ -26,6 +32,10 @@ public class SearchResult {
 		return results;
 	}
 
+	/**
+	 * @param json	Search response
+	 * @return		Search results per DocumentType or null if the response is malformed
+	 */
 	public static Map<String, SearchResult> fromJson(final JSONObject json) {
 		final Map<String, SearchResult> searchResultsPerDocumentType = new HashMap<String, SearchResult>();
 		try {
@@ -41,7 +51,53 @@ public class SearchResult {
 		} catch (JSONException e) {
 			return null;
 		}
-		return searchResultsPerDocumentType;
+		return Collections.unmodifiableMap(searchResultsPerDocumentType);
+	}
+
+	/**
+	 * @param reader	Reader positioned in front of a search response
+	 * @return			Search results per DocumentType
+	 */
+	public static Map<String, SearchResult> fromJson(final JsonReader reader) throws IOException, JSONException {
+		Map<String, Info> infos = null;
+		Map<String, List<Record>> records = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			final String name = reader.nextName();
+			if ("info".equals(name)) {
+				infos = new HashMap<String, Info>();
+				reader.beginObject();
+				while (reader.hasNext()) {
+					final String documentTypeName = reader.nextName();
+					infos.put(documentTypeName, Info.fromJson(reader.readObject()));
+				}
+				reader.endObject();
+			} else if ("records".equals(name)) {
+				records = new HashMap<String, List<Record>>();
+				reader.beginObject();
+				while (reader.hasNext()) {
+					final String documentTypeName = reader.nextName();
+					records.put(documentTypeName, Record.fromJsonArray(reader));
+				}
+				reader.endObject();
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		if (infos == null || records == null) {
+			return null;
+		}
+		final Map<String, SearchResult> searchResultsPerDocumentType = new HashMap<String, SearchResult>();
+		for (final Map.Entry<String, Info> info : infos.entrySet()) {
+			final List<Record> documentTypeRecords = records.get(info.getKey());
+			if (documentTypeRecords == null) {
+				return null;
+			}
+			searchResultsPerDocumentType.put(info.getKey(), new SearchResult(info.getValue(), documentTypeRecords));
+		}
+		return Collections.unmodifiableMap(searchResultsPerDocumentType);
 	}
 
 	public static class Info {
@@ -50,6 +106,9 @@ public class SearchResult {
 		public final int pageCount;
 		public final int page;
 		public final int perPage;
+		/**
+		 * Facets of the search, shared by all callers getting the same results. Don't modify them.
+		 */
 		public final JSONObject facets;
 
 		private Info(final String query,
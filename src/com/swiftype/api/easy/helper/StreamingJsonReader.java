@@ -0,0 +1,502 @@
+package com.swiftype.api.easy.helper;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.json.JSONException;
+
+/**
+ * Default {@link JsonReader}, reading JSON tokens straight from a {@link Reader}, e.g. the body of a response.
+ * It can record the source text of objects, so {@link Record}s decode their fields only when accessed.
+ *
+ */
+public class StreamingJsonReader extends JsonReader {
+	private static final int EMPTY_DOCUMENT = 0;
+	private static final int NONEMPTY_DOCUMENT = 1;
+	private static final int EMPTY_OBJECT = 2;
+	private static final int DANGLING_NAME = 3;
+	private static final int NONEMPTY_OBJECT = 4;
+	private static final int EMPTY_ARRAY = 5;
+	private static final int NONEMPTY_ARRAY = 6;
+
+	private final Reader in;
+	private final char[] buffer = new char[8192];
+	private int pos;
+	private int limit;
+	private long consumed;
+
+	private int[] stack = new int[32];
+	private int stackSize;
+
+	private Token peeked;
+	private String peekedLiteral;
+
+	private StringBuilder capture;
+	private int captureStart;
+
+	public StreamingJsonReader(final Reader in) {
+		this.in = in;
+		stack[stackSize++] = EMPTY_DOCUMENT;
+	}
+
+	@Override
+	public Token peek() throws IOException, JSONException {
+		if (peeked != null) {
+			return peeked;
+		}
+		final int scope = stack[stackSize - 1];
+		int c;
+		switch (scope) {
+		case EMPTY_ARRAY:
+			stack[stackSize - 1] = NONEMPTY_ARRAY;
+			c = nextNonWhitespace();
+			if (c == ']') {
+				return peeked = Token.END_ARRAY;
+			}
+			--pos;
+			return peeked = readValueToken();
+		case NONEMPTY_ARRAY:
+			c = nextNonWhitespace();
+			if (c == ']') {
+				return peeked = Token.END_ARRAY;
+			}
+			if (c != ',') {
+				throw syntaxError("Expected ',' or ']'");
+			}
+			return peeked = readValueToken();
+		case EMPTY_OBJECT:
+		case NONEMPTY_OBJECT:
+			c = nextNonWhitespace();
+			if (c == '}') {
+				return peeked = Token.END_OBJECT;
+			}
+			if (scope == NONEMPTY_OBJECT) {
+				if (c != ',') {
+					throw syntaxError("Expected ',' or '}'");
+				}
+				c = nextNonWhitespace();
+			}
+			if (c != '"') {
+				throw syntaxError("Expected a name");
+			}
+			stack[stackSize - 1] = DANGLING_NAME;
+			return peeked = Token.NAME;
+		case DANGLING_NAME:
+			if (nextNonWhitespace() != ':') {
+				throw syntaxError("Expected ':'");
+			}
+			stack[stackSize - 1] = NONEMPTY_OBJECT;
+			return peeked = readValueToken();
+		case EMPTY_DOCUMENT:
+			stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+			return peeked = readValueToken();
+		default:
+			if (skipWhitespace() != -1) {
+				throw syntaxError("Expected end of document");
+			}
+			return peeked = Token.END_DOCUMENT;
+		}
+	}
+
+	@Override
+	public void beginObject() throws IOException, JSONException {
+		expect(Token.BEGIN_OBJECT);
+		push(EMPTY_OBJECT);
+	}
+
+	@Override
+	public void endObject() throws IOException, JSONException {
+		expect(Token.END_OBJECT);
+		--stackSize;
+	}
+
+	@Override
+	public void beginArray() throws IOException, JSONException {
+		expect(Token.BEGIN_ARRAY);
+		push(EMPTY_ARRAY);
+	}
+
+	@Override
+	public void endArray() throws IOException, JSONException {
+		expect(Token.END_ARRAY);
+		--stackSize;
+	}
+
+	@Override
+	public String nextName() throws IOException, JSONException {
+		expect(Token.NAME);
+		return readString();
+	}
+
+	@Override
+	public String nextString() throws IOException, JSONException {
+		final Token token = peek();
+		if (token == Token.STRING) {
+			peeked = null;
+			return readString();
+		}
+		if (token == Token.NUMBER || token == Token.BOOLEAN) {
+			peeked = null;
+			return peekedLiteral;
+		}
+		throw syntaxError("Expected a string but was " + token);
+	}
+
+	@Override
+	public boolean nextBoolean() throws IOException, JSONException {
+		expect(Token.BOOLEAN);
+		return "true".equals(peekedLiteral);
+	}
+
+	@Override
+	public void nextNull() throws IOException, JSONException {
+		expect(Token.NULL);
+	}
+
+	@Override
+	public long nextLong() throws IOException, JSONException {
+		final String literal = nextNumberLiteral();
+		try {
+			return Long.parseLong(literal);
+		} catch (NumberFormatException e) {
+			final double value = Double.parseDouble(literal);
+			if (value != (long) value) {
+				throw syntaxError("Expected a long but was " + literal);
+			}
+			return (long) value;
+		}
+	}
+
+	@Override
+	public double nextDouble() throws IOException, JSONException {
+		try {
+			return Double.parseDouble(nextNumberLiteral());
+		} catch (NumberFormatException e) {
+			throw syntaxError(e.getMessage());
+		}
+	}
+
+	@Override
+	public void skipValue() throws IOException, JSONException {
+		int depth = 0;
+		do {
+			switch (peek()) {
+			case BEGIN_OBJECT:
+				beginObject();
+				++depth;
+				break;
+			case BEGIN_ARRAY:
+				beginArray();
+				++depth;
+				break;
+			case END_OBJECT:
+				endObject();
+				--depth;
+				break;
+			case END_ARRAY:
+				endArray();
+				--depth;
+				break;
+			case NAME:
+				peeked = null;
+				skipString();
+				break;
+			case STRING:
+				peeked = null;
+				skipString();
+				break;
+			case END_DOCUMENT:
+				throw syntaxError("Unexpected end of document");
+			default:
+				peeked = null;
+				break;
+			}
+		} while (depth > 0);
+	}
+
+	@Override
+	public boolean canCapture() {
+		return true;
+	}
+
+	@Override
+	public void beginCapture() throws IOException, JSONException {
+		final Token token = peek();
+		if (token != Token.BEGIN_OBJECT && token != Token.BEGIN_ARRAY) {
+			throw syntaxError("Expected an object or array to capture but was " + token);
+		}
+		capture = new StringBuilder(256).append(buffer[pos - 1]);
+		captureStart = pos;
+	}
+
+	@Override
+	public int nextValueOffset() throws IOException, JSONException {
+		final Token token = peek();
+		final int offset = captureOffset();
+		if (token == Token.NUMBER || token == Token.BOOLEAN || token == Token.NULL) {
+			return offset - peekedLiteral.length();
+		}
+		return offset - 1;
+	}
+
+	@Override
+	public int captureOffset() {
+		if (capture == null) {
+			throw new IllegalStateException("No capture in progress.");
+		}
+		return capture.length() + pos - captureStart;
+	}
+
+	@Override
+	public String endCapture() {
+		if (capture == null) {
+			throw new IllegalStateException("No capture in progress.");
+		}
+		final String text = capture.append(buffer, captureStart, pos - captureStart).toString();
+		capture = null;
+		return text;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private void expect(final Token token) throws IOException, JSONException {
+		final Token actual = peek();
+		if (actual != token) {
+			throw syntaxError("Expected " + token + " but was " + actual);
+		}
+		peeked = null;
+	}
+
+	private String nextNumberLiteral() throws IOException, JSONException {
+		final Token token = peek();
+		if (token == Token.NUMBER) {
+			peeked = null;
+			return peekedLiteral;
+		}
+		if (token == Token.STRING) {
+			peeked = null;
+			return readString();
+		}
+		throw syntaxError("Expected a number but was " + token);
+	}
+
+	private void push(final int scope) {
+		if (stackSize == stack.length) {
+			final int[] newStack = new int[stackSize * 2];
+			System.arraycopy(stack, 0, newStack, 0, stackSize);
+			stack = newStack;
+		}
+		stack[stackSize++] = scope;
+	}
+
+	private Token readValueToken() throws IOException, JSONException {
+		final int c = nextNonWhitespace();
+		switch (c) {
+		case '{':
+			return Token.BEGIN_OBJECT;
+		case '[':
+			return Token.BEGIN_ARRAY;
+		case '"':
+			return Token.STRING;
+		default:
+			--pos;
+			peekedLiteral = readLiteral();
+			if ("true".equals(peekedLiteral) || "false".equals(peekedLiteral)) {
+				return Token.BOOLEAN;
+			}
+			if ("null".equals(peekedLiteral)) {
+				return Token.NULL;
+			}
+			final char first = peekedLiteral.charAt(0);
+			if (first == '-' || (first >= '0' && first <= '9')) {
+				return Token.NUMBER;
+			}
+			throw syntaxError("Unexpected value '" + peekedLiteral + "'");
+		}
+	}
+
+	private String readLiteral() throws IOException, JSONException {
+		StringBuilder sb = null;
+		while (true) {
+			int p = pos;
+			while (p < limit) {
+				final char c = buffer[p];
+				if (isDelimiter(c)) {
+					final String literal = sb == null ? new String(buffer, pos, p - pos) : sb.append(buffer, pos, p - pos).toString();
+					pos = p;
+					if (literal.length() == 0) {
+						throw syntaxError("Expected a value");
+					}
+					return literal;
+				}
+				++p;
+			}
+			if (sb == null) {
+				sb = new StringBuilder();
+			}
+			sb.append(buffer, pos, p - pos);
+			pos = p;
+			if (!fill()) {
+				if (sb.length() == 0) {
+					throw syntaxError("Unexpected end of document");
+				}
+				return sb.toString();
+			}
+		}
+	}
+
+	private String readString() throws IOException, JSONException {
+		StringBuilder sb = null;
+		while (true) {
+			int p = pos;
+			while (p < limit) {
+				final char c = buffer[p++];
+				if (c == '"') {
+					final String value = sb == null ? new String(buffer, pos, p - pos - 1) : sb.append(buffer, pos, p - pos - 1).toString();
+					pos = p;
+					return value;
+				}
+				if (c == '\\') {
+					if (sb == null) {
+						sb = new StringBuilder(Math.max(16, (p - pos) * 2));
+					}
+					sb.append(buffer, pos, p - pos - 1);
+					pos = p;
+					sb.append(readEscape());
+					p = pos;
+				}
+			}
+			if (sb == null) {
+				sb = new StringBuilder(Math.max(16, (p - pos) * 2));
+			}
+			sb.append(buffer, pos, p - pos);
+			pos = p;
+			if (!fill()) {
+				throw syntaxError("Unterminated string");
+			}
+		}
+	}
+
+	private void skipString() throws IOException, JSONException {
+		while (true) {
+			while (pos < limit) {
+				final char c = buffer[pos++];
+				if (c == '"') {
+					return;
+				}
+				if (c == '\\') {
+					readEscape();
+				}
+			}
+			if (!fill()) {
+				throw syntaxError("Unterminated string");
+			}
+		}
+	}
+
+	private char readEscape() throws IOException, JSONException {
+		final char escaped = (char) read();
+		switch (escaped) {
+		case 'b':
+			return '\b';
+		case 'f':
+			return '\f';
+		case 'n':
+			return '\n';
+		case 'r':
+			return '\r';
+		case 't':
+			return '\t';
+		case 'u':
+			int value = 0;
+			for (int i = 0; i < 4; ++i) {
+				final int digit = Character.digit(read(), 16);
+				if (digit < 0) {
+					throw syntaxError("Malformed unicode escape");
+				}
+				value = (value << 4) | digit;
+			}
+			return (char) value;
+		case '"':
+		case '\\':
+		case '/':
+			return escaped;
+		default:
+			throw syntaxError("Illegal escape '\\" + escaped + "'");
+		}
+	}
+
+	private int read() throws IOException, JSONException {
+		if (pos == limit && !fill()) {
+			throw syntaxError("Unexpected end of document");
+		}
+		return buffer[pos++];
+	}
+
+	private int nextNonWhitespace() throws IOException, JSONException {
+		final int c = skipWhitespace();
+		if (c == -1) {
+			throw syntaxError("Unexpected end of document");
+		}
+		return c;
+	}
+
+	private int skipWhitespace() throws IOException {
+		while (true) {
+			while (pos < limit) {
+				final char c = buffer[pos++];
+				if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+					return c;
+				}
+			}
+			if (!fill()) {
+				return -1;
+			}
+		}
+	}
+
+	private boolean fill() throws IOException {
+		if (capture != null) {
+			capture.append(buffer, captureStart, limit - captureStart);
+			captureStart = 0;
+		}
+		consumed += limit;
+		pos = 0;
+		limit = 0;
+		int count;
+		while ((count = in.read(buffer, 0, buffer.length)) == 0) {
+			continue;
+		}
+		if (count == -1) {
+			return false;
+		}
+		limit = count;
+		return true;
+	}
+
+	private static boolean isDelimiter(final char c) {
+		switch (c) {
+		case ',':
+		case ':':
+		case ']':
+		case '}':
+		case '[':
+		case '{':
+		case '"':
+		case ' ':
+		case '\t':
+		case '\r':
+		case '\n':
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private JSONException syntaxError(final String message) {
+		return new JSONException(message + " at character " + (consumed + pos));
+	}
+}
@@ -0,0 +1,234 @@
+package com.swiftype.api.easy.helper;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Default {@link JsonWriter}, writing compact JSON straight to a {@link Writer} in the format of org.json.
+ * Closing the writer doesn't close the underlying writer.
+ *
+ */
+public class StreamingJsonWriter extends JsonWriter {
+	private static final int EMPTY_DOCUMENT = 0;
+	private static final int NONEMPTY_DOCUMENT = 1;
+	private static final int EMPTY_OBJECT = 2;
+	private static final int DANGLING_NAME = 3;
+	private static final int NONEMPTY_OBJECT = 4;
+	private static final int EMPTY_ARRAY = 5;
+	private static final int NONEMPTY_ARRAY = 6;
+
+	private final Writer out;
+	private int[] stack = new int[32];
+	private int stackSize;
+
+	public StreamingJsonWriter(final Writer out) {
+		this.out = out;
+		stack[stackSize++] = EMPTY_DOCUMENT;
+	}
+
+	@Override
+	public JsonWriter beginObject() throws IOException {
+		beforeValue();
+		push(EMPTY_OBJECT);
+		out.write('{');
+		return this;
+	}
+
+	@Override
+	public JsonWriter endObject() throws IOException {
+		pop(EMPTY_OBJECT, NONEMPTY_OBJECT);
+		out.write('}');
+		return this;
+	}
+
+	@Override
+	public JsonWriter beginArray() throws IOException {
+		beforeValue();
+		push(EMPTY_ARRAY);
+		out.write('[');
+		return this;
+	}
+
+	@Override
+	public JsonWriter endArray() throws IOException {
+		pop(EMPTY_ARRAY, NONEMPTY_ARRAY);
+		out.write(']');
+		return this;
+	}
+
+	@Override
+	public JsonWriter name(final String name) throws IOException {
+		final int scope = stack[stackSize - 1];
+		if (scope == NONEMPTY_OBJECT) {
+			out.write(',');
+		} else if (scope != EMPTY_OBJECT) {
+			throw new IllegalStateException("Names are only allowed within objects.");
+		}
+		stack[stackSize - 1] = DANGLING_NAME;
+		writeString(name);
+		out.write(':');
+		return this;
+	}
+
+	@Override
+	public JsonWriter value(final String value) throws IOException {
+		if (value == null) {
+			return nullValue();
+		}
+		beforeValue();
+		writeString(value);
+		return this;
+	}
+
+	@Override
+	public JsonWriter value(final Number value) throws IOException {
+		if (value == null) {
+			return nullValue();
+		}
+		final String literal;
+		try {
+			literal = JSONObject.numberToString(value);
+		} catch (JSONException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		}
+		beforeValue();
+		out.write(literal);
+		return this;
+	}
+
+	@Override
+	public JsonWriter value(final boolean value) throws IOException {
+		beforeValue();
+		out.write(value ? "true" : "false");
+		return this;
+	}
+
+	/**
+	 * Copies the JSON text as it is, like org.json does.
+	 */
+	@Override
+	public JsonWriter jsonValue(final String json) throws IOException {
+		beforeValue();
+		out.write(json);
+		return this;
+	}
+
+	@Override
+	public JsonWriter nullValue() throws IOException {
+		beforeValue();
+		out.write("null");
+		return this;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (stackSize != 1 || stack[0] != NONEMPTY_DOCUMENT) {
+			throw new IllegalStateException("Incomplete JSON document.");
+		}
+		out.flush();
+	}
+
+	private void beforeValue() throws IOException {
+		final int scope = stack[stackSize - 1];
+		switch (scope) {
+		case EMPTY_DOCUMENT:
+			stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+			break;
+		case EMPTY_ARRAY:
+			stack[stackSize - 1] = NONEMPTY_ARRAY;
+			break;
+		case NONEMPTY_ARRAY:
+			out.write(',');
+			break;
+		case DANGLING_NAME:
+			stack[stackSize - 1] = NONEMPTY_OBJECT;
+			break;
+		default:
+			throw new IllegalStateException(scope == NONEMPTY_DOCUMENT ? "JSON document is already complete." : "Expected a name.");
+		}
+	}
+
+	private void push(final int scope) {
+		if (stackSize == stack.length) {
+			final int[] newStack = new int[stackSize * 2];
+			System.arraycopy(stack, 0, newStack, 0, stackSize);
+			stack = newStack;
+		}
+		stack[stackSize++] = scope;
+	}
+
+	private void pop(final int empty, final int nonempty) {
+		final int scope = stack[stackSize - 1];
+		if (scope != empty && scope != nonempty) {
+			throw new IllegalStateException("Nesting problem.");
+		}
+		--stackSize;
+	}
+
+	/**
+	 * Writes the string quoted and escaped like {@link JSONObject#quote(String)}, copying runs of
+	 * characters which need no escaping at once.
+	 */
+	private void writeString(final String value) throws IOException {
+		out.write('"');
+		int last = 0;
+		final int length = value.length();
+		for (int i = 0; i < length; ++i) {
+			final char c = value.charAt(i);
+			final String replacement;
+			switch (c) {
+			case '"':
+				replacement = "\\\"";
+				break;
+			case '\\':
+				replacement = "\\\\";
+				break;
+			case '/':
+				if (i == 0 || value.charAt(i - 1) != '<') {
+					continue;
+				}
+				replacement = "\\/";
+				break;
+			case '\b':
+				replacement = "\\b";
+				break;
+			case '\t':
+				replacement = "\\t";
+				break;
+			case '\n':
+				replacement = "\\n";
+				break;
+			case '\f':
+				replacement = "\\f";
+				break;
+			case '\r':
+				replacement = "\\r";
+				break;
+			default:
+				if (c >= ' ' && !(c >= '\u0080' && c < '\u00a0') && !(c >= '\u2000' && c < '\u2100')) {
+					continue;
+				}
+				final String hex = Integer.toHexString(c);
+				replacement = "\\u0000".substring(0, 6 - hex.length()) + hex;
+				break;
+			}
+			if (last < i) {
+				out.write(value, last, i - last);
+			}
+			out.write(replacement);
+			last = i + 1;
+		}
+		if (last < length) {
+			out.write(value, last, length - last);
+		}
+		out.write('"');
+	}
+}
@@ -1,20 +1,27 @@
 package com.swiftype.api.easy.helper;
 
+import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
-
+/**
+ * Suggestions for one DocumentType. Cached and coalesced suggests hand the same results to several
+ * callers, so the results and their records can't be modified.
+ *
+ */
 public class SuggestResult {
 	private final List<Record> results;
 	private final int resultCount;
 
 	private SuggestResult(final List<Record> results, final int resultCount) {
-		this.results = results;
+		this.results = Collections.unmodifiableList(results);
 		this.resultCount = resultCount;
 	}
 
@@ -30,7 +37,7 @@ public class SuggestResult {
 		final Map<String, SuggestResult> results = new HashMap<String, SuggestResult>();
 		final JSONObject records = json.optJSONObject("records");
 		if (records == null) {
-			return results;
+			return Collections.emptyMap();
 		}
 		final int resultCount = json.optInt("record_count");
 		for (@SuppressWarnings("unchecked") final Iterator<String> names = records.keys(); names.hasNext();) {
@@ -40,6 +47,43 @@ public class SuggestResult {
 				results.put(documentTypeName, new SuggestResult(Record.fromJsonArray(documentTypeRecords), resultCount));
 			}
 		}
-		return results;
+		return Collections.unmodifiableMap(results);
+	}
+
+	/**
+	 * @param reader	Reader positioned in front of a suggest response
+	 * @return			Suggest results per DocumentType
+	 */
+	public static Map<String, SuggestResult> fromJson(final JsonReader reader) throws IOException, JSONException {
+		final Map<String, List<Record>> records = new HashMap<String, List<Record>>();
+		int resultCount = 0;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			final String name = reader.nextName();
+			if ("record_count".equals(name)) {
+				final Object count = reader.readValue();
+				resultCount = count instanceof Number ? ((Number) count).intValue() : 0;
+			} else if ("records".equals(name) && reader.peek() == JsonReader.Token.BEGIN_OBJECT) {
+				reader.beginObject();
+				while (reader.hasNext()) {
+					final String documentTypeName = reader.nextName();
+					if (reader.peek() == JsonReader.Token.BEGIN_ARRAY) {
+						records.put(documentTypeName, Record.fromJsonArray(reader));
+					} else {
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		final Map<String, SuggestResult> results = new HashMap<String, SuggestResult>();
+		for (final Map.Entry<String, List<Record>> documentTypeRecords : records.entrySet()) {
+			results.put(documentTypeRecords.getKey(), new SuggestResult(documentTypeRecords.getValue(), resultCount));
+		}
+		return Collections.unmodifiableMap(results);
 	}
 }
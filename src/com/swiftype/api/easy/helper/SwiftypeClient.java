@@ -0,0 +1,1216 @@
+package com.swiftype.api.easy.helper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.json.JSONException;
+
+import com.swiftype.api.easy.helper.Client.ResponseParser;
+
+/**
+ * Sends requests to the Swiftype API with its own API key, host, connection pool, cache, limits and metrics.
+ * A client never changes after it was built, so it can be shared between threads, and several clients
+ * for different accounts or hosts can be used side by side:
+ *
+ * <pre>
+ * final SwiftypeClient client = new SwiftypeClient.Builder("TENANT_API_KEY")
+ * 		.transport(new PooledTransport.Builder().maxConnectionsPerHost(5).build())
+ * 		.build();
+ * final EnginesApi enginesApi = new EnginesApi(client);
+ * </pre>
+ *
+ * API classes created without a client use the one configured in {@link SwiftypeConfig}.
+ *
+ */
+public final class SwiftypeClient implements Closeable {
+	public static final String VERSION = "0.1.0";
+	public static final String API_BASE_PATH = "/api/v1/";
+
+	private static final String USER_AGENT = "Swiftype/Java-" + VERSION;
+	private static final String ACCEPT_ENCODING = "gzip, deflate";
+
+	private final String protocol;
+	private final String apiHost;
+	private final String apiKey;
+	private final String baseUrl;
+	private final Transport transport;
+	private final Executor executor;
+	private final ResultCache resultCache;
+	private final RequestCoalescer requestCoalescer;
+	private final RateLimiter rateLimiter;
+	private final Bulkhead bulkhead;
+	private final AdaptiveConcurrencyLimit concurrencyLimit;
+	private final HedgingPolicy hedgingPolicy;
+	private final boolean acceptCompression;
+	private final long requestCompressionThreshold;
+	private final JsonCodec jsonCodec;
+	private final RetryPolicy retryPolicy;
+	private final CircuitBreaker circuitBreaker;
+	private final long connectTimeoutMillis;
+	private final long readTimeoutMillis;
+	private final ClientMetrics metrics;
+	private final List<MetricsListener> addedMetricsListeners;
+	private final List<MetricsListener> metricsListeners;
+	private final boolean ownsTransport;
+	private final boolean ownsExecutor;
+	private final boolean ownsMetrics;
+
+	private SwiftypeClient(final Builder builder) {
+		protocol = builder.protocol;
+		apiHost = builder.apiHost;
+		apiKey = builder.apiKey;
+		baseUrl = protocol + "://" + apiHost + API_BASE_PATH;
+		ownsTransport = builder.transport == null;
+		transport = ownsTransport ? new PooledTransport.Builder().build() : builder.transport;
+		ownsExecutor = builder.executor == null;
+		if (!ownsExecutor) {
+			executor = builder.executor;
+		} else if (builder.virtualThreads) {
+			executor = VirtualThreads.newExecutor();
+		} else {
+			executor = Executors.newCachedThreadPool(new DaemonThreadFactory("swiftype-async"));
+		}
+		resultCache = builder.resultCache;
+		requestCoalescer = builder.requestCoalescer;
+		rateLimiter = builder.rateLimiter;
+		bulkhead = builder.bulkhead;
+		concurrencyLimit = builder.concurrencyLimit;
+		hedgingPolicy = builder.hedgingPolicy;
+		acceptCompression = builder.acceptCompression;
+		requestCompressionThreshold = builder.requestCompressionThreshold;
+		jsonCodec = builder.jsonCodec;
+		retryPolicy = builder.retryPolicy;
+		circuitBreaker = builder.circuitBreaker;
+		connectTimeoutMillis = builder.connectTimeoutMillis;
+		readTimeoutMillis = builder.readTimeoutMillis;
+		ownsMetrics = builder.metrics == null;
+		metrics = ownsMetrics ? new ClientMetrics() : builder.metrics;
+		addedMetricsListeners = Collections.unmodifiableList(new ArrayList<MetricsListener>(builder.metricsListeners));
+		final List<MetricsListener> listeners = new ArrayList<MetricsListener>(addedMetricsListeners.size() + 1);
+		if (builder.collectMetrics) {
+			listeners.add(metrics);
+		}
+		listeners.addAll(addedMetricsListeners);
+		metricsListeners = Collections.unmodifiableList(listeners);
+	}
+
+	/**
+	 * @return	Builder with all settings of this client. Clients built from it share transport, executor,
+	 * 			cache, coalescer, rate limiter, bulkhead, concurrency limit, hedging policy,
+	 * 			circuit breaker and metrics with this client.
+	 */
+	public Builder toBuilder() {
+		final Builder builder = new Builder(apiKey)
+				.protocol(protocol)
+				.apiHost(apiHost)
+				.transport(transport)
+				.executor(executor)
+				.resultCache(resultCache)
+				.requestCoalescer(requestCoalescer)
+				.rateLimiter(rateLimiter)
+				.bulkhead(bulkhead)
+				.concurrencyLimit(concurrencyLimit)
+				.hedgingPolicy(hedgingPolicy)
+				.acceptCompression(acceptCompression)
+				.compressRequests(requestCompressionThreshold)
+				.jsonCodec(jsonCodec)
+				.retryPolicy(retryPolicy)
+				.circuitBreaker(circuitBreaker)
+				.connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+				.readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+				.metrics(metrics, metricsListeners.contains(metrics));
+		for (final MetricsListener listener : addedMetricsListeners) {
+			builder.addMetricsListener(listener);
+		}
+		return builder;
+	}
+
+	public String getApiKey() {
+		return apiKey;
+	}
+
+	public String getProtocol() {
+		return protocol;
+	}
+
+	public String getApiHost() {
+		return apiHost;
+	}
+
+	public String getBaseUrl() {
+		return baseUrl;
+	}
+
+	public Transport getTransport() {
+		return transport;
+	}
+
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @return	Cache for search and suggest results or null if results are not cached
+	 */
+	public ResultCache getResultCache() {
+		return resultCache;
+	}
+
+	/**
+	 * @return	Coalescer sharing identical reads in flight or null if every call sends its own request
+	 */
+	public RequestCoalescer getRequestCoalescer() {
+		return requestCoalescer;
+	}
+
+	/**
+	 * @return	Rate limiter of the requests or null if they are not limited
+	 */
+	public RateLimiter getRateLimiter() {
+		return rateLimiter;
+	}
+
+	/**
+	 * @return	Bulkhead bounding the concurrent requests or null if they are not bounded
+	 */
+	public Bulkhead getBulkhead() {
+		return bulkhead;
+	}
+
+	/**
+	 * @return	Adaptive limit of the concurrent requests or null if it is not adapted
+	 */
+	public AdaptiveConcurrencyLimit getConcurrencyLimit() {
+		return concurrencyLimit;
+	}
+
+	/**
+	 * @return	Policy for hedging searches and suggests or null if they are not hedged
+	 */
+	public HedgingPolicy getHedgingPolicy() {
+		return hedgingPolicy;
+	}
+
+	/**
+	 * @return	True if the API may answer with gzip or deflate compressed responses
+	 */
+	public boolean isAcceptCompression() {
+		return acceptCompression;
+	}
+
+	/**
+	 * @return	Size in bytes from which request bodies are sent gzip compressed, -1 if they are never compressed
+	 */
+	public long getRequestCompressionThreshold() {
+		return requestCompressionThreshold;
+	}
+
+	/**
+	 * @return	Codec reading the responses and writing the request bodies
+	 */
+	public JsonCodec getJsonCodec() {
+		return jsonCodec;
+	}
+
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * @return	Circuit breaker guarding the API hosts or null if disabled
+	 */
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	public long getConnectTimeoutMillis() {
+		return connectTimeoutMillis;
+	}
+
+	public long getReadTimeoutMillis() {
+		return readTimeoutMillis;
+	}
+
+	/**
+	 * @return	Latency histograms of the requests of this client
+	 */
+	public ClientMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @return	Listeners receiving the timings of every request, including {@link #getMetrics()} if it collects
+	 */
+	public List<MetricsListener> getMetricsListeners() {
+		return metricsListeners;
+	}
+
+	/**
+	 * Closes the transport, stops the executor and unregisters the MBean of the metrics, unless they were passed to the builder.
+	 */
+	@Override
+	public void close() {
+		if (ownsTransport) {
+			transport.close();
+		}
+		if (ownsExecutor) {
+			((ExecutorService) executor).shutdown();
+		}
+		if (ownsMetrics) {
+			metrics.unregisterMBean();
+		}
+	}
+
+	public String get(final String path, final String[] ... params) {
+		return requestWithoutBody("GET", path, STRING_BODY, params);
+	}
+
+	/**
+	 * @param path		Path of the resource
+	 * @param parser	Parser reading the response body while it is received
+	 * @param params	Query parameters as name value pairs
+	 * @return			Result of the parser
+	 */
+	public <T> T get(final String path, final ResponseParser<T> parser, final String[] ... params) {
+		return requestWithoutBody("GET", path, jsonBody(parser), params);
+	}
+
+	public String post(final String path, final String data) {
+		return requestWithBody("POST", path, data, STRING_BODY, false);
+	}
+
+	/**
+	 * @param path	Path of the resource
+	 * @param body	Request body written while the request is sent
+	 * @return		Response body
+	 */
+	public String post(final String path, final Transport.RequestBody body) {
+		return requestWithBody("POST", path, body, STRING_BODY, false);
+	}
+
+	/**
+	 * @param path		Path of the resource
+	 * @param data		JSON request body
+	 * @param parser	Parser reading the response body while it is received
+	 * @return			Result of the parser
+	 */
+	public <T> T post(final String path, final String data, final ResponseParser<T> parser) {
+		return requestWithBody("POST", path, data, jsonBody(parser), false);
+	}
+
+	/**
+	 * Sends a POST request which only reads data, like a search. Unlike other POST requests it is
+	 * repeated on failures like a GET request.
+	 *
+	 * @param path		Path of the resource
+	 * @param data		JSON request body
+	 * @param parser	Parser reading the response body while it is received
+	 * @return			Result of the parser
+	 */
+	public <T> T query(final String path, final String data, final ResponseParser<T> parser) {
+		return requestWithBody("POST", path, data, jsonBody(parser), true);
+	}
+
+	public String put(final String path, final String data) {
+		return requestWithBody("PUT", path, data, STRING_BODY, true);
+	}
+
+	/**
+	 * @param path	Path of the resource
+	 * @param body	Request body written while the request is sent
+	 * @return		Response body
+	 */
+	public String put(final String path, final Transport.RequestBody body) {
+		return requestWithBody("PUT", path, body, STRING_BODY, true);
+	}
+
+	/**
+	 * @param path		Path of the resource
+	 * @param data		JSON request body
+	 * @param parser	Parser reading the response body while it is received
+	 * @return			Result of the parser
+	 */
+	public <T> T put(final String path, final String data, final ResponseParser<T> parser) {
+		return requestWithBody("PUT", path, data, jsonBody(parser), true);
+	}
+
+	public String delete(final String path, final String[] ... params) {
+		return requestWithoutBody("DELETE", path, STRING_BODY, params);
+	}
+
+	/**
+	 * @param call	Blocking API call
+	 * @return		Future completed with the result of the call, which runs on the configured executor
+	 * 				within the {@link Deadline} of the calling thread
+	 */
+	public <T> CompletableFuture<T> async(final Supplier<T> call) {
+		final Deadline deadline = Deadline.current();
+		if (deadline != null) {
+			return CompletableFuture.supplyAsync(() -> deadline.call(call), executor);
+		}
+		return CompletableFuture.supplyAsync(call, executor);
+	}
+
+	/**
+	 * Runs the calls at the same time on the configured executor and waits for all of them. The calls share
+	 * a {@link Deadline} within the deadline of the calling thread, which the first failure lets pass, so the
+	 * remaining calls don't send requests whose results would be thrown away.
+	 *
+	 * @param calls	Blocking API calls
+	 * @return		Results of the calls in their order
+	 * @throws RuntimeException	Failure of the call which failed first, thrown as soon as it happened
+	 */
+	public <T> List<T> asyncAll(final List<Supplier<T>> calls) {
+		final Deadline batch = Deadline.cancellable(Deadline.current());
+		final CompletableFuture<Void> failure = new CompletableFuture<Void>();
+		final List<CompletableFuture<T>> futures = new ArrayList<CompletableFuture<T>>(calls.size());
+		try {
+			for (final Supplier<T> call : calls) {
+				final CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> batch.call(call), executor);
+				future.whenComplete((result, e) -> {
+					if (e != null) {
+						batch.cancel();
+						failure.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+					}
+				});
+				futures.add(future);
+			}
+			CompletableFuture.anyOf(CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])), failure).get();
+		} catch (InterruptedException e) {
+			batch.cancel();
+			Thread.currentThread().interrupt();
+			throw new SwiftypeException("Interrupted while waiting for " + calls.size() + " calls", e);
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		} catch (RuntimeException e) {
+			batch.cancel();
+			throw e;
+		}
+		final List<T> results = new ArrayList<T>(futures.size());
+		for (final CompletableFuture<T> future : futures) {
+			results.add(future.join());
+		}
+		return results;
+	}
+
+	/**
+	 * @param path		Path of the search or suggest endpoint
+	 * @param query		Query of the request
+	 * @param options	Options of the request
+	 * @param call		Blocking API call sending the request
+	 * @return			Result from the configured {@link ResultCache} or of the call if it is not cached.
+	 * 					Calls in flight with the same request body share one request, which is hedged
+	 * 					according to the configured {@link HedgingPolicy}. The result is handed to all
+	 * 					these callers, so it should be immutable like {@link SearchResult}.
+	 */
+	public <T> T cached(final String path, final String query, final SearchOptions options, final Supplier<T> call) {
+		// Queries differing only in case or whitespace share a cached result but are sent as they are
+		final String requestKey = accountKey(path + '\n' + options.withQuery(query));
+		final Supplier<T> hedgedCall = () -> hedged(path, call);
+		if (resultCache == null) {
+			return coalesced(path, requestKey, hedgedCall);
+		}
+		return resultCache.get(accountKey(ResultCache.key(path, query, options)), () -> coalesced(path, requestKey, hedgedCall));
+	}
+
+	/**
+	 * @param path	Path of the resource read by the call
+	 * @param call	Blocking API call reading the resource without changing it. Its result is handed to all
+	 * 				callers, so it should be immutable like the response body.
+	 * @return		Result of the call, shared with all identical calls in flight
+	 */
+	public <T> T coalesced(final String path, final Supplier<T> call) {
+		return coalesced(path, accountKey(path), call);
+	}
+
+	private <T> T coalesced(final String path, final String key, final Supplier<T> call) {
+		if (requestCoalescer == null) {
+			return call.get();
+		}
+		return requestCoalescer.execute(path, key, call);
+	}
+
+	/**
+	 * Clients sharing a cache or coalescer may use other accounts or hosts, and {@link #toBuilder()} keeps
+	 * both when the API key or host changes, so their keys are scoped to the account and host.
+	 */
+	private String accountKey(final String key) {
+		return baseUrl + '\n' + apiKey + '\n' + key;
+	}
+
+	private <T> T hedged(final String path, final Supplier<T> call) {
+		if (hedgingPolicy == null) {
+			return call.get();
+		}
+		final String endpoint = RequestMetrics.endpointOf(path);
+		final long delayNanos = hedgingPolicy.onRequest(endpoint);
+		if (delayNanos < 0) {
+			final long start = System.nanoTime();
+			final T result = call.get();
+			hedgingPolicy.record(endpoint, System.nanoTime() - start);
+			return result;
+		}
+		return new Hedge<T>(path, endpoint, call).run(delayNanos);
+	}
+
+	private static RuntimeException unwrap(final ExecutionException e) {
+		final Throwable cause = e.getCause();
+		if (cause instanceof RuntimeException) {
+			return (RuntimeException) cause;
+		}
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		return new IllegalStateException(cause.getMessage());
+	}
+
+	private interface BodyReader<T> {
+		T read(InputStream in) throws IOException, JSONException;
+	}
+
+	private static final BodyReader<String> STRING_BODY = new BodyReader<String>() {
+		@Override
+		public String read(final InputStream in) throws IOException {
+			return readBody(in);
+		}
+	};
+
+	private <T> BodyReader<T> jsonBody(final ResponseParser<T> parser) {
+		return new BodyReader<T>() {
+			@Override
+			public T read(final InputStream in) throws IOException, JSONException {
+				if (in == null) {
+					throw new JSONException("Response has no body.");
+				}
+				return parser.parse(jsonCodec.newReader(new InputStreamReader(in, "UTF-8")));
+			}
+		};
+	}
+
+	private <T> T requestWithoutBody(final String method, final String path, final BodyReader<T> bodyReader, final String[] ... params) {
+		final Map<String, String> headers = new LinkedHashMap<String, String>();
+		headers.put("User-Agent", USER_AGENT);
+		if (acceptCompression) {
+			headers.put("Accept-Encoding", ACCEPT_ENCODING);
+		}
+		return execute(new Transport.Request(method, buildUrl(path, params), headers, (Transport.RequestBody) null, true), bodyReader);
+	}
+
+	private <T> T requestWithBody(final String method, final String path, final String data, final BodyReader<T> bodyReader, final boolean idempotent) {
+		try {
+			return requestWithBody(method, path, new Transport.ByteArrayBody(data.getBytes("UTF-8")), bodyReader, idempotent);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e.getMessage());
+		}
+	}
+
+	private <T> T requestWithBody(final String method, final String path, final Transport.RequestBody body, final BodyReader<T> bodyReader, final boolean idempotent) {
+		final Map<String, String> headers = new LinkedHashMap<String, String>();
+		headers.put("User-Agent", USER_AGENT);
+		headers.put("Content-Type", "application/json");
+		headers.put("Accept", "application/json");
+		if (acceptCompression) {
+			headers.put("Accept-Encoding", ACCEPT_ENCODING);
+		}
+		if (requestCompressionThreshold >= 0 && (body.contentLength() < 0 || body.contentLength() >= requestCompressionThreshold)) {
+			headers.put("Content-Encoding", "gzip");
+			return execute(new Transport.Request(method, buildUrl(path), headers, new Transport.GzipBody(body), idempotent), bodyReader);
+		}
+		return execute(new Transport.Request(method, buildUrl(path), headers, body, idempotent), bodyReader);
+	}
+
+	/**
+	 * Sends the request and repeats it according to the configured {@link RetryPolicy} if it is idempotent.
+	 * All attempts share the {@link Deadline} of the call, if there is one, take a permit of the
+	 * configured {@link RateLimiter} and a slot of the configured {@link Bulkhead} and {@link AdaptiveConcurrencyLimit}.
+	 */
+	private <T> T execute(final Transport.Request request, final BodyReader<T> bodyReader) {
+		final RetryPolicy policy = request.isIdempotent() ? retryPolicy : RetryPolicy.NONE;
+		final Deadline deadline = Deadline.current();
+		final String endpoint = rateLimiter == null && bulkhead == null ? null : endpointOf(request.getUrl());
+		final RateLimiter.EndpointClass endpointClass = rateLimiter == null ? null : RateLimiter.EndpointClass.of(endpoint);
+		final Bulkhead.Priority priority = bulkhead == null ? null : Bulkhead.Priority.of(request.getMethod(), endpoint);
+		for (int retry = 1; ; ++retry) {
+			try {
+				if (rateLimiter != null) {
+					rateLimiter.acquire(apiKey, endpointClass);
+				}
+				if (bulkhead == null) {
+					return limitedAttempt(request, bodyReader, deadline);
+				}
+				bulkhead.acquire(priority);
+				try {
+					return limitedAttempt(request, bodyReader, deadline);
+				} finally {
+					bulkhead.release(priority);
+				}
+			} catch (SwiftypeException e) {
+				if (!e.isRetryable() || retry > policy.getMaxRetries()) {
+					throw e;
+				}
+				final long backoffMillis = policy.backoffMillis(retry, e.getRetryAfterMillis());
+				if (backoffMillis < 0 || deadline != null && backoffMillis >= deadline.remainingMillis()) {
+					// Retrying earlier than the server asked for or after the deadline is pointless
+					throw e;
+				}
+				try {
+					Thread.sleep(backoffMillis);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sends the request within the configured {@link AdaptiveConcurrencyLimit}, which learns from its outcome.
+	 */
+	private <T> T limitedAttempt(final Transport.Request request, final BodyReader<T> bodyReader, final Deadline deadline) {
+		if (concurrencyLimit == null) {
+			return attempt(withTimeouts(request, deadline), bodyReader);
+		}
+		final long start = concurrencyLimit.acquire();
+		boolean answered = false;
+		boolean dropped = false;
+		try {
+			final T result = attempt(withTimeouts(request, deadline), bodyReader);
+			answered = true;
+			return result;
+		} catch (SwiftypeException e) {
+			// Requests which were not sent or ran out of time say nothing about the load of the API
+			if (!(e instanceof CircuitOpenException) && !(e instanceof DeadlineExceededException)) {
+				dropped = e.isRetryable();
+				answered = !dropped;
+			}
+			throw e;
+		} finally {
+			if (answered) {
+				concurrencyLimit.onSuccess(start);
+			} else if (dropped) {
+				concurrencyLimit.onDropped();
+			} else {
+				concurrencyLimit.onIgnore();
+			}
+		}
+	}
+
+	/**
+	 * @return	Request with the configured timeouts, shortened to the time left until the deadline
+	 * @throws DeadlineExceededException	If the deadline already passed
+	 */
+	private Transport.Request withTimeouts(final Transport.Request request, final Deadline deadline) {
+		if (deadline == null) {
+			return request.withTimeouts(connectTimeoutMillis, readTimeoutMillis);
+		}
+		final long remainingMillis = deadline.remainingMillis();
+		if (remainingMillis <= 0) {
+			throw new DeadlineExceededException(request.getUrl().getPath());
+		}
+		return request.withTimeouts(connectTimeoutMillis == 0 ? remainingMillis : Math.min(connectTimeoutMillis, remainingMillis),
+				readTimeoutMillis == 0 ? remainingMillis : Math.min(readTimeoutMillis, remainingMillis));
+	}
+
+	private <T> T attempt(final Transport.Request request, final BodyReader<T> bodyReader) {
+		final String host = request.getUrl().getAuthority();
+		// A timeout shortened to the time left until the deadline says nothing about the host
+		final boolean deadlineBound = request.getConnectTimeoutMillis() != connectTimeoutMillis
+				|| request.getReadTimeoutMillis() != readTimeoutMillis;
+		if (circuitBreaker != null) {
+			circuitBreaker.acquire(host);
+		}
+		final long start = System.nanoTime();
+		int status = SwiftypeException.NO_RESPONSE;
+		long connectNanos = 0;
+		long timeToFirstByteNanos = 0;
+		long bodyStart = 0;
+		TimingInputStream body = null;
+		// Only failures of the host count against its circuit, a request which never reached it or which
+		// failed while its response was read or parsed tells nothing about the host's health
+		boolean hostFailed = false;
+		boolean hostAnswered = false;
+		try {
+			final Transport.Response response;
+			try {
+				response = transport.execute(request);
+			} catch (IOException e) {
+				hostFailed = isHostFailure(e);
+				throw e;
+			}
+			status = response.getStatus();
+			connectNanos = response.getConnectNanos();
+			bodyStart = System.nanoTime();
+			timeToFirstByteNanos = bodyStart - start - connectNanos;
+			body = response.getBody() == null ? null : new TimingInputStream(response.getBody());
+			InputStream decoded = null;
+			try {
+				decoded = decode(body, response.getHeader("Content-Encoding"));
+				if (!response.isSuccess()) {
+					final String error = readBody(decoded);
+					drain(body);
+					final SwiftypeException e = errorResponse(status, error, response.getHeader("Retry-After"));
+					hostFailed = status / 100 == 5;
+					hostAnswered = !hostFailed;
+					throw e;
+				}
+				final T result = bodyReader.read(decoded);
+				hostAnswered = true;
+				drain(body);
+				return result;
+			} finally {
+				if (decoded != null && decoded != body) {
+					decoded.close();
+				}
+				response.close();
+			}
+		} catch (IOException e) {
+			if (deadlineBound && e instanceof SocketTimeoutException) {
+				hostFailed = false;
+				throw new DeadlineExceededException(request.getUrl().getPath(), (SocketTimeoutException) e);
+			}
+			throw new SwiftypeException(e.getMessage(), e);
+		} catch (JSONException e) {
+			hostAnswered = true;
+			throw new IllegalStateException(e.getMessage());
+		} finally {
+			if (circuitBreaker != null) {
+				if (hostFailed) {
+					circuitBreaker.onFailure(host);
+				} else if (hostAnswered) {
+					circuitBreaker.onSuccess(host);
+				} else {
+					circuitBreaker.onIgnore(host);
+				}
+			}
+			if (!metricsListeners.isEmpty()) {
+				final long end = System.nanoTime();
+				final long bodyReadNanos = body == null ? 0 : body.nanos;
+				final long parseNanos = bodyStart == 0 ? 0 : end - bodyStart - bodyReadNanos;
+				publish(metricsListeners, new RequestMetrics(endpointOf(request.getUrl()), request.getMethod(), status,
+						connectNanos, timeToFirstByteNanos, bodyReadNanos, parseNanos, end - start));
+			}
+		}
+	}
+
+	/**
+	 * @param e	Failure of the transport before a response was received
+	 * @return	True if the host could not be reached or did not answer in time, false if the request
+	 * 			failed locally, e.g. waiting for a pooled connection or because the thread was interrupted
+	 */
+	private static boolean isHostFailure(final IOException e) {
+		if (e instanceof ConnectionPoolTimeoutException) {
+			return false;
+		}
+		return !(e instanceof InterruptedIOException) || e instanceof SocketTimeoutException;
+	}
+
+	private static void publish(final List<MetricsListener> listeners, final RequestMetrics metrics) {
+		for (final MetricsListener listener : listeners) {
+			try {
+				listener.onRequest(metrics);
+			} catch (RuntimeException e) {
+				// A failing listener must not fail the request
+			}
+		}
+	}
+
+	private String endpointOf(final URL url) {
+		final String path = url.getPath();
+		return RequestMetrics.endpointOf(path.startsWith(API_BASE_PATH) ? path.substring(API_BASE_PATH.length()) : path);
+	}
+
+	/**
+	 * @param body				Response body as received
+	 * @param contentEncoding	Content-Encoding of the response
+	 * @return					Body decompressed while it is read
+	 */
+	private static InputStream decode(final InputStream body, final String contentEncoding) throws IOException {
+		if (body == null || contentEncoding == null) {
+			return body;
+		}
+		final String encoding = contentEncoding.trim().toLowerCase();
+		if (encoding.equals("gzip") || encoding.equals("x-gzip")) {
+			return new GZIPInputStream(body, 8192);
+		}
+		if (encoding.equals("deflate")) {
+			return new InflaterInputStream(body, new Inflater(), 8192);
+		}
+		if (encoding.isEmpty() || encoding.equals("identity")) {
+			return body;
+		}
+		throw new IOException("Unsupported Content-Encoding '" + contentEncoding + "'.");
+	}
+
+	/**
+	 * Reads what is left of a small response body after parsing, e.g. the end of a compressed stream
+	 * or trailing whitespace, so the connection can be reused.
+	 */
+	private static void drain(final InputStream body) throws IOException {
+		if (body == null) {
+			return;
+		}
+		final byte[] buffer = new byte[512];
+		for (int i = 0; i < 16; ++i) {
+			if (body.read(buffer) == -1) {
+				return;
+			}
+		}
+	}
+
+	private static String readBody(final InputStream in) throws IOException {
+		final StringBuilder sb = new StringBuilder();
+		if (in != null) {
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				sb.append(line);
+				sb.append("\n");
+			}
+		}
+		return sb.toString();
+	}
+
+	private URL buildUrl(final String path, final String[] ... params) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(getBaseUrl() + path + ".json?auth_token=" + apiKey);
+		try {
+			for (String[] param : params) {
+				sb.append("&");
+				sb.append(URLEncoder.encode(param[0], "UTF-8"));
+				sb.append("=");
+				sb.append(URLEncoder.encode(param[1], "UTF-8"));
+			}
+			return new URL(sb.toString());
+		} catch (MalformedURLException e) {
+			throw new IllegalArgumentException("'" + sb.toString() + "' is not a valid URL.");
+		} catch (UnsupportedEncodingException e) {
+			final StringBuilder paramsSb = new StringBuilder();
+			for (final String[] param : params) {
+				paramsSb.append(Arrays.toString(param));
+				paramsSb.append(", ");
+			}
+			if (params.length > 0) {
+				sb.deleteCharAt(sb.length() - 1);
+			}
+			throw new IllegalArgumentException("'" + paramsSb.toString() + "' is no valid parameter set.");
+		}
+	}
+
+	private static SwiftypeException errorResponse(final int status, final String body, final String retryAfter) {
+		long retryAfterMillis = -1;
+		if (retryAfter != null) {
+			try {
+				retryAfterMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+			} catch (NumberFormatException e) {
+				// HTTP dates are not supported, fall back to the backoff of the RetryPolicy
+			}
+		}
+		return new SwiftypeException(status, body, retryAfterMillis);
+	}
+
+	public static class Builder {
+		private String apiKey;
+		private String protocol = "http";
+		private String apiHost = "api.swiftype.com";
+		private Transport transport;
+		private Executor executor;
+		private boolean virtualThreads;
+		private ResultCache resultCache;
+		private RequestCoalescer requestCoalescer = new RequestCoalescer();
+		private RateLimiter rateLimiter;
+		private Bulkhead bulkhead;
+		private AdaptiveConcurrencyLimit concurrencyLimit;
+		private HedgingPolicy hedgingPolicy;
+		private boolean acceptCompression = true;
+		private long requestCompressionThreshold = -1;
+		private JsonCodec jsonCodec = JsonCodec.DEFAULT;
+		private RetryPolicy retryPolicy = new RetryPolicy.Builder().build();
+		private CircuitBreaker circuitBreaker = new CircuitBreaker.Builder().build();
+		private long connectTimeoutMillis = TimeUnit.SECONDS.toMillis(10);
+		private long readTimeoutMillis = TimeUnit.SECONDS.toMillis(30);
+		private ClientMetrics metrics;
+		private boolean collectMetrics = true;
+		private final List<MetricsListener> metricsListeners = new ArrayList<MetricsListener>();
+
+		/**
+		 * @param apiKey	API key of the account, see your <a href="https://swiftype.com/user/edit">Account Settings</a>
+		 */
+		public Builder(final String apiKey) {
+			apiKey(apiKey);
+		}
+
+		/**
+		 * @param apiKey	API key of the account
+		 * @return			Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder apiKey(final String apiKey) {
+			if (apiKey == null) {
+				throw new IllegalArgumentException("API key must not be null!");
+			}
+			this.apiKey = apiKey;
+			return this;
+		}
+
+		/**
+		 * @param protocol	Protocol of the API, http or https
+		 * @return			Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder protocol(final String protocol) {
+			this.protocol = protocol;
+			return this;
+		}
+
+		/**
+		 * @param apiHost	Host and optionally port of the API
+		 * @return			Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder apiHost(final String apiHost) {
+			this.apiHost = apiHost;
+			return this;
+		}
+
+		/**
+		 * @param transport	Transport sending the requests. If not set the client creates its own {@link PooledTransport}.
+		 * @return			Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder transport(final Transport transport) {
+			this.transport = transport;
+			return this;
+		}
+
+		/**
+		 * @param executor	Executor running the calls of the asynchronous API methods. If not set the client creates its own.
+		 * @return			Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder executor(final Executor executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * @param virtualThreads	True to run the asynchronous API calls on virtual threads, if no executor is set.
+		 * 							Needs Java 21 or later, see {@link VirtualThreads#isAvailable()}.
+		 * @return					Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder virtualThreads(final boolean virtualThreads) {
+			this.virtualThreads = virtualThreads;
+			return this;
+		}
+
+		/**
+		 * @param resultCache	Cache for search and suggest results, null disables caching
+		 * @return				Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder resultCache(final ResultCache resultCache) {
+			this.resultCache = resultCache;
+			return this;
+		}
+
+		/**
+		 * @param requestCoalescer	Coalescer sharing identical reads in flight, null sends a request for every call
+		 * @return					Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder requestCoalescer(final RequestCoalescer requestCoalescer) {
+			this.requestCoalescer = requestCoalescer;
+			return this;
+		}
+
+		/**
+		 * @param rateLimiter	Rate limiter of the requests, null does not limit them
+		 * @return				Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder rateLimiter(final RateLimiter rateLimiter) {
+			this.rateLimiter = rateLimiter;
+			return this;
+		}
+
+		/**
+		 * @param bulkhead	Bulkhead bounding the concurrent requests and preferring interactive ones, null does not bound them
+		 * @return			Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder bulkhead(final Bulkhead bulkhead) {
+			this.bulkhead = bulkhead;
+			return this;
+		}
+
+		/**
+		 * @param concurrencyLimit	Limit of the concurrent requests adapting to the latency of the API, null does not limit them
+		 * @return					Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder concurrencyLimit(final AdaptiveConcurrencyLimit concurrencyLimit) {
+			this.concurrencyLimit = concurrencyLimit;
+			return this;
+		}
+
+		/**
+		 * @param hedgingPolicy	Policy for hedging slow searches and suggests, null does not hedge them
+		 * @return				Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder hedgingPolicy(final HedgingPolicy hedgingPolicy) {
+			this.hedgingPolicy = hedgingPolicy;
+			return this;
+		}
+
+		/**
+		 * @param acceptCompression	False to ask the API for uncompressed responses
+		 * @return					Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder acceptCompression(final boolean acceptCompression) {
+			this.acceptCompression = acceptCompression;
+			return this;
+		}
+
+		/**
+		 * @param threshold	Size in bytes from which request bodies are sent gzip compressed, -1 never compresses them.
+		 * 					Streamed bodies of unknown size are always compressed.
+		 * @return			Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder compressRequests(final long threshold) {
+			if (threshold < -1) {
+				throw new IllegalArgumentException("Threshold has to be -1 or more!");
+			}
+			this.requestCompressionThreshold = threshold;
+			return this;
+		}
+
+		/**
+		 * @param jsonCodec	Codec reading the responses and writing the request bodies, {@link JsonCodec#DEFAULT} by default
+		 * @return			Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder jsonCodec(final JsonCodec jsonCodec) {
+			if (jsonCodec == null) {
+				throw new IllegalArgumentException("JsonCodec must not be null!");
+			}
+			this.jsonCodec = jsonCodec;
+			return this;
+		}
+
+		/**
+		 * @param retryPolicy	Policy for repeating failed idempotent requests, {@link RetryPolicy#NONE} disables retries
+		 * @return				Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder retryPolicy(final RetryPolicy retryPolicy) {
+			if (retryPolicy == null) {
+				throw new IllegalArgumentException("RetryPolicy must not be null!");
+			}
+			this.retryPolicy = retryPolicy;
+			return this;
+		}
+
+		/**
+		 * @param circuitBreaker	Circuit breaker guarding the API hosts, null disables it
+		 * @return					Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder circuitBreaker(final CircuitBreaker circuitBreaker) {
+			this.circuitBreaker = circuitBreaker;
+			return this;
+		}
+
+		/**
+		 * @param timeout	Maximum time to get a connection to the API, 0 waits forever
+		 * @param unit		Unit of the timeout
+		 * @return			Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder connectTimeout(final long timeout, final TimeUnit unit) {
+			if (timeout < 0) {
+				throw new IllegalArgumentException("Timeout must not be negative!");
+			}
+			this.connectTimeoutMillis = unit.toMillis(timeout);
+			return this;
+		}
+
+		/**
+		 * @param timeout	Maximum time to wait for data from the API, 0 waits forever
+		 * @param unit		Unit of the timeout
+		 * @return			Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder readTimeout(final long timeout, final TimeUnit unit) {
+			if (timeout < 0) {
+				throw new IllegalArgumentException("Timeout must not be negative!");
+			}
+			this.readTimeoutMillis = unit.toMillis(timeout);
+			return this;
+		}
+
+		/**
+		 * @param metrics	Histograms collecting the latencies, e.g. to share them between clients
+		 * @param collect	False to not record any latencies into the histograms
+		 * @return			Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder metrics(final ClientMetrics metrics, final boolean collect) {
+			this.metrics = metrics;
+			this.collectMetrics = collect;
+			return this;
+		}
+
+		/**
+		 * @param listener	Listener receiving the timings of every request
+		 * @return			Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder addMetricsListener(final MetricsListener listener) {
+			if (listener == null) {
+				throw new IllegalArgumentException("MetricsListener must not be null!");
+			}
+			metricsListeners.add(listener);
+			return this;
+		}
+
+		/**
+		 * @param listener	Listener to remove
+		 * @return			Builder to add more options. If your finished create the client with {@link #build()}.
+		 */
+		public Builder removeMetricsListener(final MetricsListener listener) {
+			metricsListeners.remove(listener);
+			return this;
+		}
+
+		/**
+		 * @return		SwiftypeClient based on the supplied values to this builder.
+		 */
+		public SwiftypeClient build() {
+			return new SwiftypeClient(this);
+		}
+	}
+
+	/**
+	 * Runs a call on the executor and, if it isn't answered within the hedging delay, a duplicate of it.
+	 * The first successful copy wins, the other one is cancelled through its {@link Deadline}, so it stops
+	 * before its next attempt. The result of a request it already sent is discarded.
+	 */
+	private class Hedge<T> {
+		private final String path;
+		private final String endpoint;
+		private final Supplier<T> call;
+		private final Deadline parent = Deadline.current();
+		private final CompletableFuture<T> result = new CompletableFuture<T>();
+		private final List<Deadline> copies = new ArrayList<Deadline>(2);
+		private final AtomicInteger started = new AtomicInteger();
+		private final AtomicInteger failed = new AtomicInteger();
+
+		private Hedge(final String path, final String endpoint, final Supplier<T> call) {
+			this.path = path;
+			this.endpoint = endpoint;
+			this.call = call;
+		}
+
+		private T run(final long delayNanos) {
+			try {
+				start(false);
+				try {
+					return result.get(delayNanos, TimeUnit.NANOSECONDS);
+				} catch (TimeoutException e) {
+					if (hedgingPolicy.tryHedge()) {
+						start(true);
+					}
+				}
+				return result.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SwiftypeException("Interrupted while waiting for " + path, e);
+			} catch (ExecutionException e) {
+				throw unwrap(e);
+			} finally {
+				for (final Deadline copy : copies) {
+					copy.cancel();
+				}
+			}
+		}
+
+		private void start(final boolean hedge) {
+			final Deadline deadline = Deadline.cancellable(parent);
+			copies.add(deadline);
+			started.incrementAndGet();
+			executor.execute(() -> {
+				final long start = System.nanoTime();
+				try {
+					final T value = deadline.call(call);
+					hedgingPolicy.record(endpoint, System.nanoTime() - start);
+					if (result.complete(value) && hedge) {
+						hedgingPolicy.onHedgeWon();
+					}
+				} catch (RuntimeException e) {
+					fail(e);
+				} catch (Error e) {
+					fail(e);
+				}
+			});
+		}
+
+		private void fail(final Throwable e) {
+			// The error is only reported once no copy can succeed anymore
+			if (failed.incrementAndGet() == started.get()) {
+				result.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * Measures the time spent waiting for the response body, to tell it apart from the time spent parsing.
+	 */
+	private static class TimingInputStream extends FilterInputStream {
+		private long nanos;
+
+		private TimingInputStream(final InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			final long start = System.nanoTime();
+			try {
+				return super.read();
+			} finally {
+				nanos += System.nanoTime() - start;
+			}
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			final long start = System.nanoTime();
+			try {
+				return super.read(b, off, len);
+			} finally {
+				nanos += System.nanoTime() - start;
+			}
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			final long start = System.nanoTime();
+			try {
+				return super.skip(n);
+			} finally {
+				nanos += System.nanoTime() - start;
+			}
+		}
+	}
+}
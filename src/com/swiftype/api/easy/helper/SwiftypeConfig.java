@@ -1,41 +1,329 @@
 package com.swiftype.api.easy.helper;
 
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process wide configuration of the {@link SwiftypeClient} used by API classes created without a client.
+ * Every setter replaces the client by a new one with the changed setting, so requests already running
+ * keep a consistent configuration.
+ *
+ */
 public enum SwiftypeConfig {
 	INSTANCE;
 
-	public final String version = "0.1.0";
-
-	private final String apiBasePath = "/api/v1/";
+	public final String version = SwiftypeClient.VERSION;
 
-	private String protocol;
-	private String apiHost;
-	private String apiKey;
+	private volatile SwiftypeClient client;
 
 	private SwiftypeConfig() {
-		protocol = "http";
-		apiHost = "api.swiftype.com";
-		apiKey = "PLEASE_SET_YOUR_KEY";
+		client = new SwiftypeClient.Builder("PLEASE_SET_YOUR_KEY").build();
+	}
+
+	/**
+	 * @return	Client currently used by API classes created without a client
+	 */
+	public SwiftypeClient getClient() {
+		return client;
+	}
+
+	/**
+	 * @param client	Client to use for API classes created without a client. The previous client is not closed.
+	 * @return			This config
+	 */
+	public synchronized SwiftypeConfig setClient(final SwiftypeClient client) {
+		if (client == null) {
+			throw new IllegalArgumentException("SwiftypeClient must not be null!");
+		}
+		this.client = client;
+		return this;
 	}
 
 	public String getApiKey() {
-		return apiKey;
+		return client.getApiKey();
 	}
 
-	public SwiftypeConfig setApiKey(final String apiKey) {
-		this.apiKey = apiKey;
+	public synchronized SwiftypeConfig setApiKey(final String apiKey) {
+		client = client.toBuilder().apiKey(apiKey).build();
 		return this;
 	}
 
 	public String getApiHost() {
-		return apiHost;
+		return client.getApiHost();
+	}
+
+	public synchronized SwiftypeConfig setApiHost(final String apiHost) {
+		client = client.toBuilder().apiHost(apiHost).build();
+		return this;
+	}
+
+	public Transport getTransport() {
+		return client.getTransport();
+	}
+
+	/**
+	 * @param transport	Transport used for all following requests. The previous transport is not closed.
+	 * @return			This config
+	 */
+	public synchronized SwiftypeConfig setTransport(final Transport transport) {
+		if (transport == null) {
+			throw new IllegalArgumentException("Transport must not be null!");
+		}
+		client = client.toBuilder().transport(transport).build();
+		return this;
+	}
+
+	public Executor getExecutor() {
+		return client.getExecutor();
+	}
+
+	/**
+	 * @param executor	Executor running the calls of the asynchronous API methods
+	 * @return			This config
+	 */
+	public synchronized SwiftypeConfig setExecutor(final Executor executor) {
+		if (executor == null) {
+			throw new IllegalArgumentException("Executor must not be null!");
+		}
+		client = client.toBuilder().executor(executor).build();
+		return this;
+	}
+
+	/**
+	 * @return	Cache for search and suggest results or null if results are not cached
+	 */
+	public ResultCache getResultCache() {
+		return client.getResultCache();
+	}
+
+	/**
+	 * @param resultCache	Cache for search and suggest results, null disables caching
+	 * @return				This config
+	 */
+	public synchronized SwiftypeConfig setResultCache(final ResultCache resultCache) {
+		client = client.toBuilder().resultCache(resultCache).build();
+		return this;
+	}
+
+	/**
+	 * @return	Coalescer sharing identical reads in flight or null if every call sends its own request
+	 */
+	public RequestCoalescer getRequestCoalescer() {
+		return client.getRequestCoalescer();
+	}
+
+	/**
+	 * @param requestCoalescer	Coalescer sharing identical reads in flight, null sends a request for every call
+	 * @return					This config
+	 */
+	public synchronized SwiftypeConfig setRequestCoalescer(final RequestCoalescer requestCoalescer) {
+		client = client.toBuilder().requestCoalescer(requestCoalescer).build();
+		return this;
+	}
+
+	/**
+	 * @return	Rate limiter of the requests or null if they are not limited
+	 */
+	public RateLimiter getRateLimiter() {
+		return client.getRateLimiter();
+	}
+
+	/**
+	 * @param rateLimiter	Rate limiter of the requests, null does not limit them
+	 * @return				This config
+	 */
+	public synchronized SwiftypeConfig setRateLimiter(final RateLimiter rateLimiter) {
+		client = client.toBuilder().rateLimiter(rateLimiter).build();
+		return this;
+	}
+
+	/**
+	 * @return	Bulkhead bounding the concurrent requests or null if they are not bounded
+	 */
+	public Bulkhead getBulkhead() {
+		return client.getBulkhead();
+	}
+
+	/**
+	 * @param bulkhead	Bulkhead bounding the concurrent requests and preferring interactive ones, null does not bound them
+	 * @return			This config
+	 */
+	public synchronized SwiftypeConfig setBulkhead(final Bulkhead bulkhead) {
+		client = client.toBuilder().bulkhead(bulkhead).build();
+		return this;
+	}
+
+	/**
+	 * @return	Adaptive limit of the concurrent requests or null if it is not adapted
+	 */
+	public AdaptiveConcurrencyLimit getConcurrencyLimit() {
+		return client.getConcurrencyLimit();
+	}
+
+	/**
+	 * @param concurrencyLimit	Limit of the concurrent requests adapting to the latency of the API, null does not limit them
+	 * @return					This config
+	 */
+	public synchronized SwiftypeConfig setConcurrencyLimit(final AdaptiveConcurrencyLimit concurrencyLimit) {
+		client = client.toBuilder().concurrencyLimit(concurrencyLimit).build();
+		return this;
+	}
+
+	/**
+	 * @return	Policy for hedging searches and suggests or null if they are not hedged
+	 */
+	public HedgingPolicy getHedgingPolicy() {
+		return client.getHedgingPolicy();
 	}
 
-	public SwiftypeConfig setApiHost(final String apiHost) {
-		this.apiHost = apiHost;
+	/**
+	 * @param hedgingPolicy	Policy for hedging slow searches and suggests, null does not hedge them
+	 * @return				This config
+	 */
+	public synchronized SwiftypeConfig setHedgingPolicy(final HedgingPolicy hedgingPolicy) {
+		client = client.toBuilder().hedgingPolicy(hedgingPolicy).build();
 		return this;
 	}
 
+	public boolean isAcceptCompression() {
+		return client.isAcceptCompression();
+	}
+
+	/**
+	 * @param acceptCompression	False to ask the API for uncompressed responses
+	 * @return					This config
+	 */
+	public synchronized SwiftypeConfig setAcceptCompression(final boolean acceptCompression) {
+		client = client.toBuilder().acceptCompression(acceptCompression).build();
+		return this;
+	}
+
+	public long getRequestCompressionThreshold() {
+		return client.getRequestCompressionThreshold();
+	}
+
+	/**
+	 * @param threshold	Size in bytes from which request bodies are sent gzip compressed, -1 never compresses them
+	 * @return			This config
+	 */
+	public synchronized SwiftypeConfig setCompressRequests(final long threshold) {
+		client = client.toBuilder().compressRequests(threshold).build();
+		return this;
+	}
+
+	public JsonCodec getJsonCodec() {
+		return client.getJsonCodec();
+	}
+
+	/**
+	 * @param jsonCodec	Codec reading the responses and writing the request bodies
+	 * @return			This config
+	 */
+	public synchronized SwiftypeConfig setJsonCodec(final JsonCodec jsonCodec) {
+		client = client.toBuilder().jsonCodec(jsonCodec).build();
+		return this;
+	}
+
+	public RetryPolicy getRetryPolicy() {
+		return client.getRetryPolicy();
+	}
+
+	/**
+	 * @param retryPolicy	Policy for repeating failed idempotent requests, {@link RetryPolicy#NONE} disables retries
+	 * @return				This config
+	 */
+	public synchronized SwiftypeConfig setRetryPolicy(final RetryPolicy retryPolicy) {
+		client = client.toBuilder().retryPolicy(retryPolicy).build();
+		return this;
+	}
+
+	/**
+	 * @return	Circuit breaker guarding the API hosts or null if disabled
+	 */
+	public CircuitBreaker getCircuitBreaker() {
+		return client.getCircuitBreaker();
+	}
+
+	/**
+	 * @param circuitBreaker	Circuit breaker guarding the API hosts, null disables it
+	 * @return					This config
+	 */
+	public synchronized SwiftypeConfig setCircuitBreaker(final CircuitBreaker circuitBreaker) {
+		client = client.toBuilder().circuitBreaker(circuitBreaker).build();
+		return this;
+	}
+
+	public long getConnectTimeoutMillis() {
+		return client.getConnectTimeoutMillis();
+	}
+
+	/**
+	 * @param timeout	Maximum time to get a connection to the API, 0 waits forever
+	 * @param unit		Unit of the timeout
+	 * @return			This config
+	 */
+	public synchronized SwiftypeConfig setConnectTimeout(final long timeout, final TimeUnit unit) {
+		client = client.toBuilder().connectTimeout(timeout, unit).build();
+		return this;
+	}
+
+	public long getReadTimeoutMillis() {
+		return client.getReadTimeoutMillis();
+	}
+
+	/**
+	 * @param timeout	Maximum time to wait for data from the API, 0 waits forever
+	 * @param unit		Unit of the timeout
+	 * @return			This config
+	 */
+	public synchronized SwiftypeConfig setReadTimeout(final long timeout, final TimeUnit unit) {
+		client = client.toBuilder().readTimeout(timeout, unit).build();
+		return this;
+	}
+
+	/**
+	 * @return	Latency histograms of all requests, collected by default
+	 */
+	public ClientMetrics getMetrics() {
+		return client.getMetrics();
+	}
+
+	/**
+	 * @param listener	Listener receiving the timings of every request
+	 * @return			This config
+	 */
+	public synchronized SwiftypeConfig addMetricsListener(final MetricsListener listener) {
+		if (listener == getMetrics()) {
+			client = client.toBuilder().metrics(getMetrics(), true).build();
+		} else {
+			client = client.toBuilder().addMetricsListener(listener).build();
+		}
+		return this;
+	}
+
+	/**
+	 * @param listener	Listener to remove, also {@link #getMetrics()} to stop collecting the default histograms
+	 * @return			This config
+	 */
+	public synchronized SwiftypeConfig removeMetricsListener(final MetricsListener listener) {
+		if (listener == getMetrics()) {
+			client = client.toBuilder().metrics(getMetrics(), false).build();
+		} else {
+			client = client.toBuilder().removeMetricsListener(listener).build();
+		}
+		return this;
+	}
+
+	public List<MetricsListener> getMetricsListeners() {
+		return client.getMetricsListeners();
+	}
+
+	public String getApiBasePath() {
+		return SwiftypeClient.API_BASE_PATH;
+	}
+
 	public String getBaseUrl() {
-		return protocol + "://" + apiHost + apiBasePath;
+		return client.getBaseUrl();
 	}
 }
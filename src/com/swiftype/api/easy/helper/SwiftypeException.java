@@ -0,0 +1,87 @@
+package com.swiftype.api.easy.helper;
+
+import javax.xml.ws.WebServiceException;
+
+/**
+ * Thrown if a request to the API failed. Carries the HTTP status of the response, so callers can tell
+ * a missing resource apart from a failing server.
+ *
+ */
+public class SwiftypeException extends WebServiceException {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Status of requests which got no response, e.g. because the connection failed
+	 */
+	public static final int NO_RESPONSE = 0;
+
+	private final int status;
+	private final String body;
+	private final long retryAfterMillis;
+
+	/**
+	 * @param status	HTTP status of the response
+	 * @param body		Body of the response
+	 */
+	public SwiftypeException(final int status, final String body) {
+		this(status, body, -1);
+	}
+
+	/**
+	 * @param status			HTTP status of the response
+	 * @param body				Body of the response
+	 * @param retryAfterMillis	Delay requested by the server through Retry-After or -1
+	 */
+	public SwiftypeException(final int status, final String body, final long retryAfterMillis) {
+		super("Status: " + status + ", Body: " + body);
+		this.status = status;
+		this.body = body;
+		this.retryAfterMillis = retryAfterMillis;
+	}
+
+	/**
+	 * @param message	Description of the failure
+	 * @param cause		Failure which prevented a response
+	 */
+	public SwiftypeException(final String message, final Throwable cause) {
+		super(message, cause);
+		this.status = NO_RESPONSE;
+		this.body = null;
+		this.retryAfterMillis = -1;
+	}
+
+	/**
+	 * @return	HTTP status of the response or {@link #NO_RESPONSE}
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return	Body of the response or null if there was no response
+	 */
+	public String getBody() {
+		return body;
+	}
+
+	/**
+	 * @return	Delay requested by the server before the request is repeated or -1
+	 */
+	public long getRetryAfterMillis() {
+		return retryAfterMillis;
+	}
+
+	/**
+	 * @return	True if the request was rejected because of the request itself, e.g. the resource does not exist
+	 */
+	public boolean isClientError() {
+		return status / 100 == 4 && status != 429;
+	}
+
+	/**
+	 * @return	True if the same request may succeed later, i.e. on rate limiting, server errors and connection failures
+	 */
+	public boolean isRetryable() {
+		return status == NO_RESPONSE || status == 429 || status / 100 == 5;
+	}
+}
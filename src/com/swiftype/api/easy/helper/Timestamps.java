@@ -0,0 +1,153 @@
+package com.swiftype.api.easy.helper;
+
+import java.time.Instant;
+
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * Parser for the ISO 8601 timestamps of the API, e.g. <code>2013-01-01T10:00:00Z</code> or
+ * <code>2013-01-01T10:00:00.123+02:00</code>. Timestamps with a zone are computed directly from their digits
+ * without a Calendar, everything else is left to {@link DatatypeConverter#parseDateTime(String)}.
+ *
+ * Entities of one response often share their timestamps, so recently parsed values are cached. The cache
+ * holds immutable entries only and is safe to use from any thread without locking.
+ *
+ */
+public final class Timestamps {
+	private static final int CACHE_SIZE = 256;
+	private static final Entry[] CACHE = new Entry[CACHE_SIZE];
+
+	private Timestamps() {
+	}
+
+	/**
+	 * @param timestamp	ISO 8601 timestamp
+	 * @return			Milliseconds since the epoch
+	 * @throws IllegalArgumentException	If the timestamp is no ISO 8601 timestamp
+	 */
+	public static long parseMillis(final String timestamp) {
+		final int slot = timestamp.hashCode() & (CACHE_SIZE - 1);
+		final Entry cached = CACHE[slot];
+		if (cached != null && cached.timestamp.equals(timestamp)) {
+			return cached.millis;
+		}
+		final long millis = parse(timestamp);
+		CACHE[slot] = new Entry(timestamp, millis);
+		return millis;
+	}
+
+	/**
+	 * @param timestamp	ISO 8601 timestamp
+	 * @return			Instant of the timestamp
+	 * @throws IllegalArgumentException	If the timestamp is no ISO 8601 timestamp
+	 */
+	public static Instant parseInstant(final String timestamp) {
+		return Instant.ofEpochMilli(parseMillis(timestamp));
+	}
+
+	private static long parse(final String s) {
+		final int length = s.length();
+		if (length < 20 || s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(10) != 'T' || s.charAt(13) != ':' || s.charAt(16) != ':') {
+			return parseSlow(s);
+		}
+		final int year = digits(s, 0, 4);
+		final int month = digits(s, 5, 7);
+		final int day = digits(s, 8, 10);
+		final int hour = digits(s, 11, 13);
+		final int minute = digits(s, 14, 16);
+		final int second = digits(s, 17, 19);
+		if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+			return parseSlow(s);
+		}
+		if (day > lengthOfMonth(year, month)) {
+			// Rejected like DatatypeConverter does, instead of rolling over into the next month
+			throw new IllegalArgumentException("Invalid day in timestamp '" + s + "'.");
+		}
+		int pos = 19;
+		int millis = 0;
+		if (s.charAt(pos) == '.') {
+			int scale = 100;
+			++pos;
+			final int start = pos;
+			while (pos < length && s.charAt(pos) >= '0' && s.charAt(pos) <= '9') {
+				millis += scale * (s.charAt(pos) - '0');
+				scale /= 10;
+				++pos;
+			}
+			if (pos == start || pos == length) {
+				return parseSlow(s);
+			}
+		}
+		final int offsetSeconds;
+		final char zone = s.charAt(pos);
+		if (zone == 'Z' && pos + 1 == length) {
+			offsetSeconds = 0;
+		} else if ((zone == '+' || zone == '-') && pos + 6 == length && s.charAt(pos + 3) == ':') {
+			final int offsetHours = digits(s, pos + 1, pos + 3);
+			final int offsetMinutes = digits(s, pos + 4, pos + 6);
+			if (offsetHours < 0 || offsetMinutes < 0) {
+				return parseSlow(s);
+			}
+			offsetSeconds = (zone == '-' ? -1 : 1) * (offsetHours * 3600 + offsetMinutes * 60);
+		} else {
+			return parseSlow(s);
+		}
+		final long epochSeconds = epochDay(year, month, day) * 86400 + hour * 3600 + minute * 60 + second - offsetSeconds;
+		return epochSeconds * 1000 + millis;
+	}
+
+	private static long parseSlow(final String s) {
+		return DatatypeConverter.parseDateTime(s).getTimeInMillis();
+	}
+
+	/**
+	 * @return	Number of the digits from start to end or -1 if they are no digits
+	 */
+	private static int digits(final String s, final int start, final int end) {
+		int value = 0;
+		for (int i = start; i < end; ++i) {
+			final char c = s.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	private static int lengthOfMonth(final int year, final int month) {
+		switch (month) {
+		case 2:
+			return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+	/**
+	 * Days since 1970-01-01 in the proleptic Gregorian calendar, as {@link java.time.LocalDate#toEpochDay()}.
+	 */
+	private static long epochDay(final int year, final int month, final int day) {
+		final long y = month <= 2 ? year - 1 : year;
+		final long era = (y >= 0 ? y : y - 399) / 400;
+		final long yearOfEra = y - era * 400;
+		final long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		final long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	private static final class Entry {
+		private final String timestamp;
+		private final long millis;
+
+		private Entry(final String timestamp, final long millis) {
+			this.timestamp = timestamp;
+			this.millis = millis;
+		}
+	}
+}
@@ -0,0 +1,279 @@
+package com.swiftype.api.easy.helper;
+
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sends HTTP requests on behalf of {@link Client}. Plug a different implementation in through
+ * {@link SwiftypeConfig#setTransport(Transport)}.
+ *
+ */
+public interface Transport extends Closeable {
+
+	/**
+	 * @param request	Request to send
+	 * @return			Response of the server. The caller has to close it once the body is consumed.
+	 * @throws IOException	If the request could not be sent or the response could not be read
+	 */
+	Response execute(Request request) throws IOException;
+
+	/**
+	 * Releases all connections held by this transport.
+	 */
+	@Override
+	void close();
+
+	public static class Request {
+		private final String method;
+		private final URL url;
+		private final Map<String, String> headers;
+		private final RequestBody body;
+		private final boolean idempotent;
+		private final long connectTimeoutMillis;
+		private final long readTimeoutMillis;
+
+		public Request(final String method, final URL url, final Map<String, String> headers, final byte[] body) {
+			this(method, url, headers, body == null ? null : new ByteArrayBody(body));
+		}
+
+		public Request(final String method, final URL url, final Map<String, String> headers, final RequestBody body) {
+			this(method, url, headers, body, isIdempotent(method));
+		}
+
+		/**
+		 * @param method		HTTP method
+		 * @param url			URL of the request
+		 * @param headers		Request headers
+		 * @param body			Request body, may be null
+		 * @param idempotent	True if sending the request twice has the same effect as sending it once,
+		 * 						e.g. for searches sent as POST
+		 */
+		public Request(final String method, final URL url, final Map<String, String> headers, final RequestBody body, final boolean idempotent) {
+			this(method, url, Collections.unmodifiableMap(new LinkedHashMap<String, String>(headers)), body, idempotent, 0, 0);
+		}
+
+		private Request(final String method,
+						final URL url,
+						final Map<String, String> headers,
+						final RequestBody body,
+						final boolean idempotent,
+						final long connectTimeoutMillis,
+						final long readTimeoutMillis) {
+			this.method = method;
+			this.url = url;
+			this.headers = headers;
+			this.body = body;
+			this.idempotent = idempotent;
+			this.connectTimeoutMillis = connectTimeoutMillis;
+			this.readTimeoutMillis = readTimeoutMillis;
+		}
+
+		/**
+		 * @param connectTimeoutMillis	Maximum time to get a connection to the host, 0 waits forever
+		 * @param readTimeoutMillis		Maximum time to wait for data from the host, 0 waits forever
+		 * @return						Copy of this request with the given timeouts
+		 */
+		public Request withTimeouts(final long connectTimeoutMillis, final long readTimeoutMillis) {
+			if (connectTimeoutMillis < 0 || readTimeoutMillis < 0) {
+				throw new IllegalArgumentException("Timeouts must not be negative!");
+			}
+			return new Request(method, url, headers, body, idempotent, connectTimeoutMillis, readTimeoutMillis);
+		}
+
+		public String getMethod() {
+			return method;
+		}
+
+		public URL getUrl() {
+			return url;
+		}
+
+		public Map<String, String> getHeaders() {
+			return headers;
+		}
+
+		/**
+		 * @return	Request body or null if the request has none
+		 */
+		public RequestBody getBody() {
+			return body;
+		}
+
+		/**
+		 * @return	True if the request may be sent again, e.g. on a fresh connection after the pooled one failed.
+		 * 			By default only true for GET, HEAD, PUT, DELETE and OPTIONS.
+		 */
+		public boolean isIdempotent() {
+			return idempotent;
+		}
+
+		/**
+		 * @return	Maximum time to get a connection to the host in milliseconds, 0 waits forever
+		 */
+		public long getConnectTimeoutMillis() {
+			return connectTimeoutMillis;
+		}
+
+		/**
+		 * @return	Maximum time to wait for data from the host in milliseconds, 0 waits forever
+		 */
+		public long getReadTimeoutMillis() {
+			return readTimeoutMillis;
+		}
+
+		/**
+		 * @param timeoutMillis	Timeout in milliseconds, 0 waits forever
+		 * @return				Timeout as accepted by sockets and connections
+		 */
+		static int toIntTimeout(final long timeoutMillis) {
+			return (int) Math.min(Integer.MAX_VALUE, timeoutMillis);
+		}
+
+		private static boolean isIdempotent(final String method) {
+			return "GET".equals(method) || "HEAD".equals(method) || "PUT".equals(method) || "DELETE".equals(method) || "OPTIONS".equals(method);
+		}
+	}
+
+	/**
+	 * Body written to the connection while the request is sent. A body may be written more than once,
+	 * e.g. when the request has to be repeated on another connection.
+	 */
+	public interface RequestBody {
+		/**
+		 * @return	Length of the body in bytes or -1 if unknown, in which case the body is sent chunked
+		 */
+		long contentLength();
+
+		/**
+		 * @param out	Stream to write the body to. Must not be closed.
+		 */
+		void writeTo(OutputStream out) throws IOException;
+	}
+
+	public static class ByteArrayBody implements RequestBody {
+		private final byte[] bytes;
+
+		public ByteArrayBody(final byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		@Override
+		public long contentLength() {
+			return bytes.length;
+		}
+
+		@Override
+		public void writeTo(final OutputStream out) throws IOException {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Compresses another body with gzip while it is written. The compressed length is not known
+	 * in advance, so the body is sent chunked.
+	 */
+	public static class GzipBody implements RequestBody {
+		private final RequestBody body;
+
+		public GzipBody(final RequestBody body) {
+			this.body = body;
+		}
+
+		@Override
+		public long contentLength() {
+			return -1;
+		}
+
+		@Override
+		public void writeTo(final OutputStream out) throws IOException {
+			final GZIPOutputStream gzip = new GZIPOutputStream(new FilterOutputStream(out) {
+				@Override
+				public void write(final byte[] b, final int off, final int len) throws IOException {
+					out.write(b, off, len);
+				}
+
+				@Override
+				public void close() throws IOException {
+					// The connection stays open for the response
+					flush();
+				}
+			}, 8192);
+			body.writeTo(gzip);
+			gzip.close();
+		}
+	}
+
+	public static class Response implements Closeable {
+		private final int status;
+		private final Map<String, String> headers;
+		private final InputStream body;
+		private final long connectNanos;
+
+		/**
+		 * @param status	HTTP status code
+		 * @param headers	Response headers with lower case names
+		 * @param body		Response body, may be null
+		 */
+		public Response(final int status, final Map<String, String> headers, final InputStream body) {
+			this(status, headers, body, 0);
+		}
+
+		/**
+		 * @param status		HTTP status code
+		 * @param headers		Response headers with lower case names
+		 * @param body			Response body, may be null
+		 * @param connectNanos	Time it took to get a connection for the request
+		 */
+		public Response(final int status, final Map<String, String> headers, final InputStream body, final long connectNanos) {
+			this.status = status;
+			this.headers = headers;
+			this.body = body;
+			this.connectNanos = connectNanos;
+		}
+
+		public int getStatus() {
+			return status;
+		}
+
+		public boolean isSuccess() {
+			return status / 100 == 2;
+		}
+
+		/**
+		 * @param name	Header name, case insensitive
+		 * @return		Header value or null
+		 */
+		public String getHeader(final String name) {
+			return headers.get(name.toLowerCase());
+		}
+
+		/**
+		 * @return	Response body or null if the response has none
+		 */
+		public InputStream getBody() {
+			return body;
+		}
+
+		/**
+		 * @return	Time it took to get a connection for the request in nanoseconds, 0 if unknown
+		 */
+		public long getConnectNanos() {
+			return connectNanos;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (body != null) {
+				body.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.swiftype.api.easy.helper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transport based on {@link HttpURLConnection}. Connection reuse is left to the JDK, which makes this
+ * transport honor the JDK networking properties like {@code http.proxyHost} or {@code http.maxConnections}.
+ *
+ */
+public class UrlConnectionTransport implements Transport {
+
+	@Override
+	public Response execute(final Request request) throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection) request.getUrl().openConnection();
+		connection.setRequestMethod(request.getMethod());
+		connection.setConnectTimeout(Request.toIntTimeout(request.getConnectTimeoutMillis()));
+		connection.setReadTimeout(Request.toIntTimeout(request.getReadTimeoutMillis()));
+		for (final Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+			connection.setRequestProperty(header.getKey(), header.getValue());
+		}
+
+		final RequestBody body = request.getBody();
+		if (body != null) {
+			connection.setDoOutput(true);
+			final long contentLength = body.contentLength();
+			if (contentLength >= 0) {
+				connection.setFixedLengthStreamingMode(contentLength);
+			} else {
+				connection.setChunkedStreamingMode(0);
+			}
+		}
+
+		final long start = System.nanoTime();
+		connection.connect();
+		final long connectNanos = System.nanoTime() - start;
+
+		if (body != null) {
+			final OutputStream out = connection.getOutputStream();
+			body.writeTo(out);
+			out.close();
+		}
+
+		final int status = connection.getResponseCode();
+		final InputStream in = (status / 100 == 2) ? connection.getInputStream() : connection.getErrorStream();
+		return new Response(status, toHeaders(connection.getHeaderFields()), in, connectNanos);
+	}
+
+	@Override
+	public void close() {
+		// Connections are owned by the JDK keep-alive cache
+	}
+
+	private static Map<String, String> toHeaders(final Map<String, List<String>> fields) {
+		final Map<String, String> headers = new HashMap<String, String>();
+		for (final Map.Entry<String, List<String>> field : fields.entrySet()) {
+			if (field.getKey() == null) {
+				continue;
+			}
+			final StringBuilder sb = new StringBuilder();
+			for (final String value : field.getValue()) {
+				if (sb.length() > 0) {
+					sb.append(", ");
+				}
+				sb.append(value);
+			}
+			headers.put(field.getKey().toLowerCase(), sb.toString());
+		}
+		return headers;
+	}
+}
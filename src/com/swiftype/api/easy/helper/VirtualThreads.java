@@ -0,0 +1,51 @@
+package com.swiftype.api.easy.helper;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to the virtual threads of Java 21 and later, while the library itself still runs on Java 8.
+ * Blocking API calls running on virtual threads don't tie up a platform thread while they wait for
+ * the API, so tens of thousands of calls can run at once without tuning a thread pool.
+ *
+ */
+public final class VirtualThreads {
+	private static final Method NEW_EXECUTOR = lookup();
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * @return	True if the running JVM supports virtual threads
+	 */
+	public static boolean isAvailable() {
+		return NEW_EXECUTOR != null;
+	}
+
+	/**
+	 * @return	Executor starting a new virtual thread for every task
+	 * @throws IllegalStateException	If the running JVM has no virtual threads
+	 */
+	public static ExecutorService newExecutor() {
+		if (NEW_EXECUTOR == null) {
+			throw new IllegalStateException("Virtual threads need Java 21 or later!");
+		}
+		try {
+			return (ExecutorService) NEW_EXECUTOR.invoke(null);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e.getMessage());
+		} catch (InvocationTargetException e) {
+			throw new IllegalStateException(e.getCause().getMessage());
+		}
+	}
+
+	private static Method lookup() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+}
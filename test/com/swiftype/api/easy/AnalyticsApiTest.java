@@ -75,4 +75,14 @@ public class AnalyticsApiTest {
 		final List<QueryCount> queryCounts = api.topNoResultQueries(new Date(), new Date());
 		assertEquals(0, queryCounts.size());
 	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDay() {
+		api.searches("2013-13-01", "2013-12-31");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonExistentDay() {
+		api.searches("2013-02-30", "2013-03-31");
+	}
 }
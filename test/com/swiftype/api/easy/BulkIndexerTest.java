@@ -0,0 +1,76 @@
+package com.swiftype.api.easy;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.swiftype.api.easy.helper.SwiftypeConfig;
+
+public class BulkIndexerTest {
+	private static final String ENGINE_ID = "engine_id1";
+	private static final String DOCUMENT_TYPE_ID = "document_type_id1";
+
+	private BulkIndexer indexer;
+
+	@Before
+	public void setUp() throws Exception {
+		final SwiftypeConfig config = SwiftypeConfig.INSTANCE;
+		config.setApiHost("127.0.0.1:9292");
+		indexer = new BulkIndexer.Builder(new DocumentsApi(ENGINE_ID, DOCUMENT_TYPE_ID)).maxDocuments(2).build();
+	}
+
+	@Test
+	public void testBatchOnDocumentCount() throws JSONException, InterruptedException {
+		indexer.add(buildDocumentJSON("id1"));
+		indexer.add(buildDocumentJSON("id2"));
+		indexer.flush();
+		assertEquals(1, indexer.getBatchesSent());
+		assertEquals(2, indexer.getDocumentsIndexed());
+	}
+
+	@Test
+	public void testCloseSendsRemainingDocuments() throws JSONException, InterruptedException {
+		indexer.add(buildDocumentJSON("id1"));
+		indexer.add(buildDocumentJSON("id2"));
+		indexer.close();
+		assertEquals(2, indexer.getDocumentsIndexed());
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testAddAfterClose() throws JSONException, InterruptedException {
+		indexer.close();
+		indexer.add(buildDocumentJSON("id1"));
+	}
+
+	@Test
+	public void testThrowingListenerDoesNotFailBatch() throws JSONException, InterruptedException {
+		final AtomicInteger failures = new AtomicInteger();
+		final BulkIndexer throwingIndexer = new BulkIndexer.Builder(new DocumentsApi(ENGINE_ID, DOCUMENT_TYPE_ID)).maxDocuments(2)
+				.listener(new BulkIndexer.Listener() {
+					@Override
+					public void afterBatch(final JSONObject[] documents, final boolean[] stati) {
+						throw new IllegalStateException("Listener failed");
+					}
+
+					@Override
+					public void onFailure(final JSONObject[] documents, final RuntimeException cause) {
+						failures.incrementAndGet();
+					}
+				}).build();
+		throwingIndexer.add(buildDocumentJSON("id1"));
+		throwingIndexer.add(buildDocumentJSON("id2"));
+		throwingIndexer.close();
+		assertEquals(2, throwingIndexer.getDocumentsIndexed());
+		assertEquals(0, throwingIndexer.getDocumentsFailed());
+		assertEquals(0, failures.get());
+	}
+
+	private JSONObject buildDocumentJSON(final String externalId) throws JSONException {
+		return new JSONObject("{\"external_id\": \"" + externalId + "\" }");
+	}
+}
@@ -0,0 +1,150 @@
+package com.swiftype.api.easy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import com.swiftype.api.easy.helper.SwiftypeException;
+
+public class DocumentSpliteratorTest {
+	@Test
+	public void testExportsAllPages() {
+		final StubDocumentsApi api = new StubDocumentsApi(25, Integer.MAX_VALUE);
+		assertEquals(ids(0, 25), api.stream(10, 1).map(Document::getExternalId).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void testPrefetchesAhead() {
+		final StubDocumentsApi api = new StubDocumentsApi(1000, Integer.MAX_VALUE);
+		final Spliterator<Document> spliterator = new DocumentSpliterator(api, 10, 2, 1, Integer.MAX_VALUE, true);
+		assertTrue(spliterator.tryAdvance(document -> assertEquals("0", document.getExternalId())));
+		assertEquals(3, api.pages.size());
+		for (int i = 1; i < 10; ++i) {
+			spliterator.tryAdvance(document -> { });
+		}
+		assertEquals(3, api.pages.size());
+		spliterator.tryAdvance(document -> assertEquals("10", document.getExternalId()));
+		assertEquals(4, api.pages.size());
+	}
+
+	@Test
+	public void testCancelsPagesBeyondTheLastPage() {
+		final StubDocumentsApi api = new StubDocumentsApi(25, 3);
+		assertEquals(25, api.stream(10, 2).count());
+		assertEquals(5, api.pages.size());
+		assertCancelledAfter(api, 3);
+	}
+
+	@Test
+	public void testCancelsPagesOnClose() {
+		final StubDocumentsApi api = new StubDocumentsApi(100, 1);
+		try (Stream<Document> stream = api.stream(10, 2)) {
+			assertEquals("0", stream.findFirst().get().getExternalId());
+		}
+		assertEquals(3, api.pages.size());
+		assertCancelledAfter(api, 1);
+	}
+
+	@Test
+	public void testCancelsPagesAfterFailedPage() {
+		final StubDocumentsApi api = new StubDocumentsApi(100, Integer.MAX_VALUE);
+		api.failingPage = 2;
+		api.completeUpTo = 2;
+		try {
+			api.stream(10, 2).count();
+			fail("Expected the failure of page 2");
+		} catch (SwiftypeException e) {
+			assertEquals(500, e.getStatus());
+		}
+		assertCancelledAfter(api, 2);
+	}
+
+	@Test
+	public void testSplitsKnownRange() {
+		final StubDocumentsApi api = new StubDocumentsApi(40, 5);
+		final DocumentSpliterator spliterator = new DocumentSpliterator(api, 10, 1, 1, 5, true);
+		final Spliterator<Document> prefix = spliterator.trySplit();
+		assertNotNull(prefix);
+		assertEquals(20, prefix.estimateSize());
+		assertEquals(20, spliterator.estimateSize());
+		assertNull(new DocumentSpliterator(api, 10, 1, 1, Integer.MAX_VALUE, true).trySplit());
+
+		final List<String> ids = api.stream(10, 1, 40).parallel().map(Document::getExternalId).collect(Collectors.toList());
+		assertEquals(ids(0, 40), ids);
+	}
+
+	private static void assertCancelledAfter(final StubDocumentsApi api, final int lastPage) {
+		for (final Map.Entry<Integer, CompletableFuture<Document[]>> page : api.pages.entrySet()) {
+			if (page.getKey() > lastPage) {
+				assertTrue("Page " + page.getKey() + " not cancelled", page.getValue().isCancelled());
+			}
+		}
+	}
+
+	private static List<String> ids(final int from, final int to) {
+		final List<String> ids = new ArrayList<String>();
+		for (int i = from; i < to; ++i) {
+			ids.add(Integer.toString(i));
+		}
+		return ids;
+	}
+
+	/**
+	 * Serves pages of numbered documents without a server. Pages after completeUpTo stay in flight forever.
+	 */
+	private static class StubDocumentsApi extends DocumentsApi {
+		private final Map<Integer, CompletableFuture<Document[]>> pages = new ConcurrentHashMap<Integer, CompletableFuture<Document[]>>();
+		private final int documents;
+		private volatile int completeUpTo;
+		private volatile int failingPage;
+
+		private StubDocumentsApi(final int documents, final int completeUpTo) {
+			super("engine", "type");
+			this.documents = documents;
+			this.completeUpTo = completeUpTo;
+		}
+
+		@Override
+		public CompletableFuture<Document[]> getAllAsync(final int page, final int perPage) {
+			final CompletableFuture<Document[]> future = new CompletableFuture<Document[]>();
+			if (page == failingPage) {
+				future.completeExceptionally(new SwiftypeException(500, "error"));
+			} else if (page <= completeUpTo) {
+				future.complete(page(page, perPage));
+			}
+			pages.put(page, future);
+			return future;
+		}
+
+		private Document[] page(final int page, final int perPage) {
+			final int from = Math.min(documents, (page - 1) * perPage);
+			final int to = Math.min(documents, from + perPage);
+			final Document[] result = new Document[to - from];
+			for (int i = from; i < to; ++i) {
+				try {
+					result[i - from] = Document.fromJson(new JSONObject()
+							.put("external_id", Integer.toString(i))
+							.put("updated_at", "2013-01-01T10:00:00Z"));
+				} catch (JSONException e) {
+					throw new IllegalStateException(e.getMessage());
+				}
+			}
+			return result;
+		}
+	}
+}
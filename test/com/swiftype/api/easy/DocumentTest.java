@@ -4,11 +4,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.swiftype.api.easy.helper.GeoPoint;
 import com.swiftype.api.easy.helper.SwiftypeConfig;
 
 public class DocumentTest {
@@ -43,4 +46,16 @@ public class DocumentTest {
 		assertTrue(document.destroy());
 		document.destroy();
 	}
+
+	@Test
+	public void testTypedFields() throws JSONException {
+		final Document typed = Document.fromJson(new JSONObject("{\"id\": \"id2\", \"updated_at\": \"2013-01-01T00:00:00Z\", "
+				+ "\"views\": 42, \"rating\": 4.5, \"tags\": [\"a\", \"b\"], \"location\": {\"lat\": 52.5, \"lon\": 13.4}}"));
+		assertEquals(42, typed.getLong("views", 0));
+		assertEquals(-1, typed.getLong("missing", -1));
+		assertEquals(4.5, typed.getDouble("rating", 0), 0);
+		assertEquals(1356998400000L, typed.getInstant("updated_at").toEpochMilli());
+		assertEquals(Arrays.asList("a", "b"), typed.getStringList("tags"));
+		assertEquals(new GeoPoint(52.5, 13.4), typed.getGeoPoint("location"));
+	}
 }
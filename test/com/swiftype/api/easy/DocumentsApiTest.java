@@ -43,6 +43,11 @@ public class DocumentsApiTest {
 		assertEquals(DOCUMENT_TYPE_ID, documents[0].getDocumentTypeId());
 	}
 
+	@Test
+	public void testStream() {
+		assertEquals(2, api.stream(10, 1).count());
+	}
+
 	@Test
 	public void testGet() {
 		final Document document = api.get(DOCUMENT_ID);
@@ -51,6 +56,13 @@ public class DocumentsApiTest {
 		assertEquals(DOCUMENT_ID, document.getExternalId());
 	}
 
+	@Test
+	public void testGetAsync() throws Exception {
+		final Document document = api.getAsync(DOCUMENT_ID).get();
+		assertEquals(ENGINE_ID, document.getEngineId());
+		assertEquals(DOCUMENT_ID, document.getExternalId());
+	}
+
 	@Test
 	public void testCreate() throws JSONException {
 		final JSONObject jsonDocument = buildDocumentJSON(DOCUMENT_ID);
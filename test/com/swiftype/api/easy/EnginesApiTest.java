@@ -1,18 +1,24 @@
 package com.swiftype.api.easy;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import com.swiftype.api.easy.Engine;
 import com.swiftype.api.easy.EnginesApi;
+import com.swiftype.api.easy.helper.ResultCache;
 import com.swiftype.api.easy.helper.SearchOptions;
 import com.swiftype.api.easy.helper.SearchResult;
 import com.swiftype.api.easy.helper.SuggestResult;
+import com.swiftype.api.easy.helper.SwiftypeClient;
 import com.swiftype.api.easy.helper.SwiftypeConfig;
 
 public class EnginesApiTest {
@@ -40,6 +46,26 @@ public class EnginesApiTest {
 		assertEquals(ENGINE_ID, engine.getSlug());
 	}
 
+	@Test
+	public void testCoalescedGetReturnsOwnEngine() throws Exception {
+		final CompletableFuture<Engine> first = api.getAsync(ENGINE_ID);
+		final CompletableFuture<Engine> second = api.getAsync(ENGINE_ID);
+		assertNotSame(first.get(), second.get());
+		assertEquals(ENGINE_ID, second.get().getSlug());
+	}
+
+	@Test
+	public void testGetWithClient() {
+		final SwiftypeClient client = new SwiftypeClient.Builder("test").apiHost("127.0.0.1:9292").build();
+		try {
+			final Engine engine = new EnginesApi(client).get(ENGINE_ID);
+			assertEquals(ENGINE_ID, engine.getSlug());
+			assertEquals(1, client.getMetrics().getEndpointStats().size());
+		} finally {
+			client.close();
+		}
+	}
+
 	@Test
 	public void testCreate() {
 		Engine engine = api.create(ENGINE_ID);
@@ -72,6 +98,46 @@ public class EnginesApiTest {
 		assertTrue(results.size() > 1);
 	}
 
+	@Test
+	public void testSearchAsync() throws Exception {
+		final Map<String, SearchResult> results = api.searchAsync(ENGINE_ID, "query").get();
+		for (final SearchResult documentTypeResult : results.values()) {
+			assertEquals(1, documentTypeResult.getInfo().page);
+		}
+		assertTrue(results.size() > 1);
+	}
+
+	@Test
+	public void testSearchCached() {
+		final ResultCache cache = new ResultCache.Builder().maximumSize(10).ttl(1, TimeUnit.MINUTES).build();
+		SwiftypeConfig.INSTANCE.setResultCache(cache);
+		try {
+			final Map<String, SearchResult> results = api.search(ENGINE_ID, "query");
+			assertSame(results, api.search(ENGINE_ID, "  Query "));
+			assertEquals(1, cache.getHits());
+			assertEquals(1, cache.getMisses());
+		} finally {
+			SwiftypeConfig.INSTANCE.setResultCache(null);
+		}
+	}
+
+	@Test
+	public void testSearchCachedPerApiKey() {
+		final ResultCache cache = new ResultCache.Builder().maximumSize(10).ttl(1, TimeUnit.MINUTES).build();
+		final String apiKey = SwiftypeConfig.INSTANCE.getApiKey();
+		SwiftypeConfig.INSTANCE.setResultCache(cache);
+		try {
+			final Map<String, SearchResult> results = api.search(ENGINE_ID, "query");
+			SwiftypeConfig.INSTANCE.setApiKey("other");
+			assertNotSame(results, api.search(ENGINE_ID, "query"));
+			assertEquals(0, cache.getHits());
+			assertEquals(2, cache.getMisses());
+		} finally {
+			SwiftypeConfig.INSTANCE.setApiKey(apiKey);
+			SwiftypeConfig.INSTANCE.setResultCache(null);
+		}
+	}
+
 	@Test
 	public void testSuggest() {
 		final Map<String, SuggestResult> results = api.suggest(ENGINE_ID, "query");
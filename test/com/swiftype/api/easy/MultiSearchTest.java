@@ -0,0 +1,47 @@
+package com.swiftype.api.easy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.swiftype.api.easy.helper.Query;
+import com.swiftype.api.easy.helper.SearchOptions;
+import com.swiftype.api.easy.helper.SwiftypeConfig;
+
+public class MultiSearchTest {
+	private static final String ENGINE_ID = "engine1";
+	private static final String DOCUMENT_TYPE_ID = "id1";
+
+	private MultiSearch multiSearch;
+
+	@Before
+	public void setUp() throws Exception {
+		final SwiftypeConfig config = SwiftypeConfig.INSTANCE;
+		config.setApiHost("127.0.0.1:9292");
+		multiSearch = new MultiSearch.Builder().maxConcurrent(2).timeout(10, TimeUnit.SECONDS).build();
+	}
+
+	@Test
+	public void testSearch() {
+		final Query engineQuery = new Query(ENGINE_ID, "query");
+		final Query documentTypeQuery = new Query(ENGINE_ID, DOCUMENT_TYPE_ID, "query", SearchOptions.DEFAULT);
+		final List<MultiSearch.Result> results = multiSearch.search(engineQuery, documentTypeQuery, engineQuery);
+		assertEquals(3, results.size());
+		for (final MultiSearch.Result result : results) {
+			assertTrue(result.isSuccess());
+			assertNull(result.getError());
+		}
+		assertSame(engineQuery, results.get(0).getQuery());
+		assertSame(documentTypeQuery, results.get(1).getQuery());
+		assertTrue(results.get(0).getResults().size() > 1);
+		assertEquals(1, results.get(1).getResults().size());
+		assertEquals(1, results.get(1).getResults().get(DOCUMENT_TYPE_ID).getInfo().page);
+	}
+}
@@ -0,0 +1,129 @@
+package com.swiftype.api.easy.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class AdaptiveConcurrencyLimitTest {
+	@Test
+	public void testGrowsWhileRoundTripsStayFast() {
+		final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit.Builder()
+				.initialLimit(4)
+				.smoothing(1)
+				.build();
+		acquire(limit, 4);
+		limit.onSuccess(startedAgo(10));
+		assertEquals(6, limit.getLimit());
+		assertEquals(3, limit.getInFlight());
+	}
+
+	@Test
+	public void testShrinksWhenRoundTripsGetSlower() {
+		final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit.Builder()
+				.initialLimit(20)
+				.limits(1, 20)
+				.smoothing(1)
+				.build();
+		acquire(limit, 20);
+		limit.onSuccess(startedAgo(10));
+		assertEquals(20, limit.getLimit());
+		limit.onSuccess(startedAgo(100));
+		assertEquals(14, limit.getLimit());
+	}
+
+	@Test
+	public void testDoesNotGrowWhileMostlyIdle() {
+		final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit.Builder()
+				.initialLimit(10)
+				.smoothing(1)
+				.build();
+		limit.onSuccess(limit.acquire());
+		assertEquals(10, limit.getLimit());
+	}
+
+	@Test
+	public void testDroppedRequestsCutTheLimit() {
+		final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit.Builder()
+				.initialLimit(10)
+				.limits(4, 20)
+				.backoffRatio(0.5)
+				.build();
+		acquire(limit, 3);
+		limit.onDropped();
+		assertEquals(5, limit.getLimit());
+		limit.onDropped();
+		assertEquals(4, limit.getLimit());
+		limit.onIgnore();
+		assertEquals(4, limit.getLimit());
+		assertEquals(0, limit.getInFlight());
+	}
+
+	@Test
+	public void testProbeHalvesTheLimit() {
+		final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit.Builder()
+				.initialLimit(8)
+				.probeInterval(2)
+				.build();
+		limit.onSuccess(limit.acquire());
+		assertTrue(limit.getMinRttMillis() > 0);
+		limit.onSuccess(limit.acquire());
+		assertEquals(4, limit.getLimit());
+		assertEquals(0, limit.getMinRttMillis(), 0);
+	}
+
+	@Test
+	public void testRejectsOverTheLimit() {
+		final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit.Builder()
+				.initialLimit(1)
+				.maxWait(0, TimeUnit.MILLISECONDS)
+				.build();
+		limit.acquire();
+		try {
+			limit.acquire();
+			fail("Expected the limit to be reached");
+		} catch (ConcurrencyLimitExceededException e) {
+			assertEquals(1, e.getLimit());
+			assertEquals(0, limit.getQueued());
+		}
+	}
+
+	@Test
+	public void testRegistersEveryLimitUnderItsName() throws Exception {
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		final ObjectName searchName = new ObjectName(AdaptiveConcurrencyLimit.OBJECT_NAME + ",name=\"search\"");
+		final ObjectName indexerName = new ObjectName(AdaptiveConcurrencyLimit.OBJECT_NAME + ",name=\"indexer\"");
+		try (AdaptiveConcurrencyLimit search = new AdaptiveConcurrencyLimit.Builder().build().registerMBean("search");
+				AdaptiveConcurrencyLimit indexer = new AdaptiveConcurrencyLimit.Builder().initialLimit(5).build().registerMBean("indexer")) {
+			assertEquals(5, server.getAttribute(indexerName, "Limit"));
+			try {
+				new AdaptiveConcurrencyLimit.Builder().build().registerMBean("indexer");
+				fail("Expected the name to be taken");
+			} catch (IllegalStateException e) {
+				// Expected
+			}
+			assertTrue(server.isRegistered(searchName));
+			search.close();
+			assertFalse(server.isRegistered(searchName));
+		}
+		assertFalse(server.isRegistered(indexerName));
+	}
+
+	private static void acquire(final AdaptiveConcurrencyLimit limit, final int slots) {
+		for (int i = 0; i < slots; ++i) {
+			limit.acquire();
+		}
+	}
+
+	private static long startedAgo(final long millis) {
+		return System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+}
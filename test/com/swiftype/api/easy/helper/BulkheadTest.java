@@ -0,0 +1,101 @@
+package com.swiftype.api.easy.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class BulkheadTest {
+	@Test
+	public void testShedsBackgroundBeyondItsShare() {
+		final Bulkhead bulkhead = new Bulkhead.Builder()
+				.maxConcurrent(3)
+				.maxBackground(1)
+				.maxQueueTime(Bulkhead.Priority.BACKGROUND, 0, TimeUnit.MILLISECONDS)
+				.maxQueueTime(Bulkhead.Priority.INTERACTIVE, 0, TimeUnit.MILLISECONDS)
+				.build();
+		bulkhead.acquire(Bulkhead.Priority.BACKGROUND);
+		try {
+			bulkhead.acquire(Bulkhead.Priority.BACKGROUND);
+			fail("Expected the background share to be used up");
+		} catch (BulkheadFullException e) {
+			assertEquals(Bulkhead.Priority.BACKGROUND, e.getPriority());
+			assertFalse(e.isRetryable());
+		}
+		bulkhead.acquire(Bulkhead.Priority.INTERACTIVE);
+		bulkhead.acquire(Bulkhead.Priority.INTERACTIVE);
+		try {
+			bulkhead.acquire(Bulkhead.Priority.INTERACTIVE);
+			fail("Expected all slots to be used up");
+		} catch (BulkheadFullException e) {
+			assertEquals(Bulkhead.Priority.INTERACTIVE, e.getPriority());
+		}
+		assertEquals(1, bulkhead.getShed(Bulkhead.Priority.BACKGROUND));
+		assertEquals(1, bulkhead.getShed(Bulkhead.Priority.INTERACTIVE));
+		assertEquals(2, bulkhead.getInFlight(Bulkhead.Priority.INTERACTIVE));
+		assertEquals(1, bulkhead.getInFlight(Bulkhead.Priority.BACKGROUND));
+	}
+
+	@Test
+	public void testInteractiveGetsFreedSlotFirst() throws InterruptedException {
+		final Bulkhead bulkhead = new Bulkhead.Builder()
+				.maxConcurrent(1)
+				.maxQueueTime(Bulkhead.Priority.INTERACTIVE, 10, TimeUnit.SECONDS)
+				.build();
+		bulkhead.acquire(Bulkhead.Priority.INTERACTIVE);
+		final Thread background = new Thread(() -> bulkhead.acquire(Bulkhead.Priority.BACKGROUND));
+		background.start();
+		awaitQueued(bulkhead, Bulkhead.Priority.BACKGROUND);
+		final Thread interactive = new Thread(() -> bulkhead.acquire(Bulkhead.Priority.INTERACTIVE));
+		interactive.start();
+		awaitQueued(bulkhead, Bulkhead.Priority.INTERACTIVE);
+
+		bulkhead.release(Bulkhead.Priority.INTERACTIVE);
+		interactive.join(TimeUnit.SECONDS.toMillis(1));
+		assertFalse(interactive.isAlive());
+		assertEquals(1, bulkhead.getInFlight(Bulkhead.Priority.INTERACTIVE));
+		assertEquals(0, bulkhead.getInFlight(Bulkhead.Priority.BACKGROUND));
+		assertEquals(1, bulkhead.getQueued(Bulkhead.Priority.BACKGROUND));
+
+		bulkhead.release(Bulkhead.Priority.INTERACTIVE);
+		background.join(TimeUnit.SECONDS.toMillis(1));
+		assertFalse(background.isAlive());
+		assertEquals(1, bulkhead.getInFlight(Bulkhead.Priority.BACKGROUND));
+	}
+
+	@Test
+	public void testShedsAtDeadline() {
+		final Bulkhead bulkhead = new Bulkhead.Builder()
+				.maxConcurrent(1)
+				.build();
+		bulkhead.acquire(Bulkhead.Priority.BACKGROUND);
+		try {
+			Deadline.after(20, TimeUnit.MILLISECONDS).run(() -> bulkhead.acquire(Bulkhead.Priority.BACKGROUND));
+			fail("Expected the request to be shed at its deadline");
+		} catch (BulkheadFullException e) {
+			assertEquals(1, bulkhead.getShed(Bulkhead.Priority.BACKGROUND));
+			assertEquals(0, bulkhead.getQueued(Bulkhead.Priority.BACKGROUND));
+		}
+	}
+
+	@Test
+	public void testPriorities() {
+		assertEquals(Bulkhead.Priority.INTERACTIVE, Bulkhead.Priority.of("POST", "engines/{id}/search"));
+		assertEquals(Bulkhead.Priority.INTERACTIVE, Bulkhead.Priority.of("GET", "engines/{id}/document_types/{id}/documents/{id}"));
+		assertEquals(Bulkhead.Priority.BACKGROUND, Bulkhead.Priority.of("DELETE", "engines/{id}/document_types/{id}/documents/{id}"));
+		assertEquals(Bulkhead.Priority.BACKGROUND, Bulkhead.Priority.of("GET", "engines/{id}/document_types/{id}/documents"));
+	}
+
+	private static void awaitQueued(final Bulkhead bulkhead, final Bulkhead.Priority priority) throws InterruptedException {
+		final long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(1);
+		while (bulkhead.getQueued(priority) == 0) {
+			if (System.currentTimeMillis() > end) {
+				fail("No " + priority + " request queued");
+			}
+			Thread.sleep(1);
+		}
+	}
+}
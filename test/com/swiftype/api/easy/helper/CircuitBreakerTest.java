@@ -0,0 +1,81 @@
+package com.swiftype.api.easy.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+	private static final String HOST = "api.swiftype.com";
+
+	@Test
+	public void testOpensAfterConsecutiveFailures() {
+		final CircuitBreaker breaker = new CircuitBreaker.Builder().failureThreshold(3).openDuration(1, TimeUnit.MINUTES).build();
+		breaker.onFailure(HOST);
+		breaker.onFailure(HOST);
+		breaker.onSuccess(HOST);
+		breaker.onFailure(HOST);
+		breaker.onFailure(HOST);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(HOST));
+		breaker.onFailure(HOST);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState(HOST));
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("other.swiftype.com"));
+	}
+
+	@Test(expected = CircuitOpenException.class)
+	public void testOpenCircuitFailsFast() {
+		final CircuitBreaker breaker = new CircuitBreaker.Builder().failureThreshold(1).openDuration(1, TimeUnit.MINUTES).build();
+		breaker.onFailure(HOST);
+		breaker.acquire(HOST);
+	}
+
+	@Test
+	public void testHalfOpenLetsSingleTrialThrough() throws InterruptedException {
+		final CircuitBreaker breaker = openBreaker();
+		breaker.acquire(HOST);
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState(HOST));
+		try {
+			breaker.acquire(HOST);
+			fail("Only one trial request may be sent");
+		} catch (CircuitOpenException e) {
+			assertEquals(HOST, e.getHost());
+		}
+	}
+
+	@Test
+	public void testSuccessfulTrialClosesCircuit() throws InterruptedException {
+		final CircuitBreaker breaker = openBreaker();
+		breaker.acquire(HOST);
+		breaker.onSuccess(HOST);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(HOST));
+		breaker.acquire(HOST);
+		breaker.acquire(HOST);
+	}
+
+	@Test
+	public void testFailedTrialOpensCircuitAgain() throws InterruptedException {
+		final CircuitBreaker breaker = openBreaker();
+		breaker.acquire(HOST);
+		breaker.onFailure(HOST);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState(HOST));
+	}
+
+	@Test
+	public void testIgnoredTrialLetsNextTrialThrough() throws InterruptedException {
+		final CircuitBreaker breaker = openBreaker();
+		breaker.acquire(HOST);
+		breaker.onIgnore(HOST);
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState(HOST));
+		breaker.acquire(HOST);
+	}
+
+	private static CircuitBreaker openBreaker() throws InterruptedException {
+		final CircuitBreaker breaker = new CircuitBreaker.Builder().failureThreshold(1).openDuration(20, TimeUnit.MILLISECONDS).build();
+		breaker.onFailure(HOST);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState(HOST));
+		Thread.sleep(40);
+		return breaker;
+	}
+}
@@ -0,0 +1,94 @@
+package com.swiftype.api.easy.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class ClientMetricsTest {
+	private static final MBeanServer SERVER = ManagementFactory.getPlatformMBeanServer();
+
+	@Test
+	public void testRecordsPhasesPerEndpoint() {
+		final ClientMetrics metrics = new ClientMetrics();
+		metrics.onRequest(new RequestMetrics("engines/{id}/search", "GET", 200, millis(1), millis(20), millis(3), millis(4), millis(28)));
+		metrics.onRequest(new RequestMetrics("engines/{id}/search", "GET", 200, 0, millis(10), millis(1), millis(2), millis(13)));
+		metrics.onRequest(new RequestMetrics("engines/{id}/search", "GET", 503, 0, millis(5), 0, 0, millis(5)));
+
+		final LatencyHistogram total = metrics.getHistogram("engines/{id}/search", "GET", 200, ClientMetrics.Phase.TOTAL);
+		assertEquals(2, total.getCount());
+		assertEquals(28, total.getMaxMillis(), 0);
+		assertEquals(20, metrics.getHistogram("engines/{id}/search", "GET", 200, ClientMetrics.Phase.TIME_TO_FIRST_BYTE).getMaxMillis(), 0);
+		assertEquals(4, metrics.getHistogram("engines/{id}/search", "GET", 200, ClientMetrics.Phase.PARSE).getMaxMillis(), 0);
+		assertNull(metrics.getHistogram("engines/{id}/search", "POST", 200, ClientMetrics.Phase.TOTAL));
+
+		final List<ClientMetrics.EndpointStats> stats = metrics.getEndpointStats();
+		assertEquals(2, stats.size());
+		for (final ClientMetrics.EndpointStats endpoint : stats) {
+			assertEquals("engines/{id}/search", endpoint.getEndpoint());
+			assertEquals(endpoint.getStatus() == 200 ? 2 : 1, endpoint.getCount());
+		}
+
+		metrics.reset();
+		assertTrue(metrics.getEndpointStats().isEmpty());
+	}
+
+	@Test
+	public void testRegistersEveryInstanceUnderItsName() throws Exception {
+		final ClientMetrics search = new ClientMetrics().registerMBean("search");
+		final ClientMetrics indexer = new ClientMetrics().registerMBean("indexer");
+		try {
+			assertTrue(SERVER.isRegistered(name("search")));
+			assertTrue(SERVER.isRegistered(name("indexer")));
+			try {
+				new ClientMetrics().registerMBean("search");
+				fail("Expected the name to be taken");
+			} catch (IllegalStateException e) {
+				// Expected
+			}
+			search.registerMBean("search");
+			search.registerMBean("search:2");
+			assertFalse(SERVER.isRegistered(name("search")));
+			assertTrue(SERVER.isRegistered(name("search:2")));
+		} finally {
+			search.unregisterMBean();
+			indexer.unregisterMBean();
+		}
+		assertFalse(SERVER.isRegistered(name("search:2")));
+		assertFalse(SERVER.isRegistered(name("indexer")));
+	}
+
+	@Test
+	public void testClientUnregistersItsMetricsOnClose() throws Exception {
+		final SwiftypeClient client = new SwiftypeClient.Builder("key").build();
+		client.getMetrics().registerMBean("closed");
+		final ClientMetrics shared = new ClientMetrics().registerMBean("shared");
+		try {
+			final SwiftypeClient sharing = new SwiftypeClient.Builder("key").metrics(shared, true).build();
+			sharing.close();
+			assertTrue(SERVER.isRegistered(name("shared")));
+		} finally {
+			client.close();
+			shared.unregisterMBean();
+		}
+		assertFalse(SERVER.isRegistered(name("closed")));
+	}
+
+	private static ObjectName name(final String name) throws Exception {
+		return new ObjectName(ClientMetrics.OBJECT_NAME + ",name=" + ObjectName.quote(name));
+	}
+
+	private static long millis(final long millis) {
+		return TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+}
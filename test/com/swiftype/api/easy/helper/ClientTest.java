@@ -0,0 +1,242 @@
+package com.swiftype.api.easy.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClientTest {
+	private static final SwiftypeConfig CONFIG = SwiftypeConfig.INSTANCE;
+
+	private Transport transport;
+	private RetryPolicy retryPolicy;
+	private CircuitBreaker circuitBreaker;
+	private AdaptiveConcurrencyLimit concurrencyLimit;
+
+	@Before
+	public void setUp() throws Exception {
+		transport = CONFIG.getTransport();
+		retryPolicy = CONFIG.getRetryPolicy();
+		circuitBreaker = CONFIG.getCircuitBreaker();
+		concurrencyLimit = CONFIG.getConcurrencyLimit();
+		CONFIG.setRetryPolicy(new RetryPolicy.Builder().maxRetries(2).initialBackoff(1, TimeUnit.MILLISECONDS).build());
+		CONFIG.setCircuitBreaker(null);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		CONFIG.setTransport(transport);
+		CONFIG.setRetryPolicy(retryPolicy);
+		CONFIG.setCircuitBreaker(circuitBreaker);
+		CONFIG.setConcurrencyLimit(concurrencyLimit);
+	}
+
+	@Test
+	public void testRetriesIdempotentRequests() {
+		final FakeTransport fake = use(new FakeTransport(503, "unavailable"));
+		try {
+			Client.get("engines");
+			fail("Expected the 503 after all retries");
+		} catch (SwiftypeException e) {
+			assertEquals(503, e.getStatus());
+		}
+		assertEquals(3, fake.requests.size());
+	}
+
+	@Test
+	public void testDoesNotRetryNonIdempotentRequests() {
+		final FakeTransport fake = use(new FakeTransport(503, "unavailable"));
+		try {
+			Client.post("engines", "{}");
+			fail("Expected the 503 of the only attempt");
+		} catch (SwiftypeException e) {
+			assertEquals(503, e.getStatus());
+		}
+		assertEquals(1, fake.requests.size());
+	}
+
+	@Test
+	public void testDoesNotRetryClientErrors() {
+		final FakeTransport fake = use(new FakeTransport(404, "not found"));
+		try {
+			Client.get("engines/missing");
+			fail("Expected the 404");
+		} catch (SwiftypeException e) {
+			assertTrue(e.isClientError());
+		}
+		assertEquals(1, fake.requests.size());
+	}
+
+	@Test
+	public void testCircuitBreakerStopsSendingRequests() {
+		final FakeTransport fake = use(new FakeTransport(500, "error"));
+		CONFIG.setRetryPolicy(RetryPolicy.NONE);
+		CONFIG.setCircuitBreaker(new CircuitBreaker.Builder().failureThreshold(2).openDuration(1, TimeUnit.MINUTES).build());
+		for (int i = 0; i < 2; ++i) {
+			try {
+				Client.get("engines");
+				fail("Expected the 500");
+			} catch (SwiftypeException e) {
+				assertEquals(500, e.getStatus());
+			}
+		}
+		try {
+			Client.get("engines");
+			fail("Expected the open circuit");
+		} catch (CircuitOpenException e) {
+			assertEquals(2, fake.requests.size());
+		}
+	}
+
+	@Test
+	public void testRetriesRateLimitingWithoutOpeningCircuit() {
+		final FakeTransport fake = use(new FakeTransport(429, "slow down"));
+		fake.headers.put("retry-after", "0");
+		CONFIG.setCircuitBreaker(new CircuitBreaker.Builder().failureThreshold(1).openDuration(1, TimeUnit.MINUTES).build());
+		try {
+			Client.get("engines");
+			fail("Expected the 429 after all retries");
+		} catch (SwiftypeException e) {
+			assertEquals(429, e.getStatus());
+		}
+		assertEquals(3, fake.requests.size());
+		assertEquals(CircuitBreaker.State.CLOSED, CONFIG.getCircuitBreaker().getState("api.swiftype.com"));
+	}
+
+	@Test
+	public void testDoesNotRetryBeforeRetryAfter() {
+		final FakeTransport fake = use(new FakeTransport(429, "slow down"));
+		fake.headers.put("retry-after", "60");
+		try {
+			Client.get("engines");
+			fail("Expected the 429 without waiting a minute");
+		} catch (SwiftypeException e) {
+			assertEquals(60000, e.getRetryAfterMillis());
+		}
+		assertEquals(1, fake.requests.size());
+	}
+
+	@Test
+	public void testDoesNotRetryAfterDeadline() {
+		final FakeTransport fake = use(new FakeTransport(503, "unavailable"));
+		fake.headers.put("retry-after", "1");
+		try {
+			Deadline.after(500, TimeUnit.MILLISECONDS).call(() -> Client.get("engines"));
+			fail("Expected the 503 without retrying after the deadline");
+		} catch (SwiftypeException e) {
+			assertEquals(503, e.getStatus());
+		}
+		assertEquals(1, fake.requests.size());
+	}
+
+	@Test
+	public void testTimeoutShortenedByDeadlineExceedsDeadline() {
+		CONFIG.setCircuitBreaker(new CircuitBreaker.Builder().failureThreshold(1).openDuration(1, TimeUnit.MINUTES).build());
+		CONFIG.setConcurrencyLimit(new AdaptiveConcurrencyLimit.Builder().initialLimit(10).build());
+		final List<Long> readTimeouts = new CopyOnWriteArrayList<Long>();
+		CONFIG.setTransport(new Transport() {
+			@Override
+			public Response execute(final Request request) throws IOException {
+				readTimeouts.add(request.getReadTimeoutMillis());
+				throw new SocketTimeoutException("Read timed out");
+			}
+
+			@Override
+			public void close() {
+			}
+		});
+		try {
+			Deadline.after(5, TimeUnit.SECONDS).call(() -> Client.get("engines"));
+			fail("Expected the deadline to be exceeded");
+		} catch (DeadlineExceededException e) {
+			assertTrue(e.getCause() instanceof SocketTimeoutException);
+		}
+		assertEquals(1, readTimeouts.size());
+		assertTrue(readTimeouts.get(0) <= 5000);
+		assertEquals(CircuitBreaker.State.CLOSED, CONFIG.getCircuitBreaker().getState("api.swiftype.com"));
+		assertEquals(10, CONFIG.getConcurrencyLimit().getLimit());
+
+		try {
+			Client.get("engines");
+			fail("Expected the timeout of the host");
+		} catch (SwiftypeException e) {
+			assertFalse(e instanceof DeadlineExceededException);
+		}
+		assertEquals(CircuitBreaker.State.OPEN, CONFIG.getCircuitBreaker().getState("api.swiftype.com"));
+	}
+
+	@Test
+	public void testLocalFailuresDoNotOpenCircuit() {
+		CONFIG.setRetryPolicy(RetryPolicy.NONE);
+		CONFIG.setCircuitBreaker(new CircuitBreaker.Builder().failureThreshold(1).openDuration(1, TimeUnit.MINUTES).build());
+		final IOException[] failures = {
+			new ConnectionPoolTimeoutException("api.swiftype.com:443"),
+			new InterruptedIOException("Interrupted while waiting for a connection."),
+		};
+		for (final IOException failure : failures) {
+			CONFIG.setTransport(new Transport() {
+				@Override
+				public Response execute(final Request request) throws IOException {
+					throw failure;
+				}
+
+				@Override
+				public void close() {
+				}
+			});
+			try {
+				Client.get("engines");
+				fail("Expected the failure of the transport");
+			} catch (SwiftypeException e) {
+				assertEquals(failure, e.getCause());
+			}
+		}
+		assertEquals(CircuitBreaker.State.CLOSED, CONFIG.getCircuitBreaker().getState("api.swiftype.com"));
+	}
+
+	@Test
+	public void testBrokenResponseBodyDoesNotOpenCircuit() {
+		CONFIG.setRetryPolicy(RetryPolicy.NONE);
+		CONFIG.setCircuitBreaker(new CircuitBreaker.Builder().failureThreshold(1).openDuration(1, TimeUnit.MINUTES).build());
+		CONFIG.setTransport(new Transport() {
+			@Override
+			public Response execute(final Request request) throws IOException {
+				return new Response(200, Collections.<String, String>emptyMap(), new InputStream() {
+					@Override
+					public int read() throws IOException {
+						throw new IOException("Connection reset");
+					}
+				});
+			}
+
+			@Override
+			public void close() {
+			}
+		});
+		try {
+			Client.get("engines");
+			fail("Expected the failure of the body");
+		} catch (SwiftypeException e) {
+			assertEquals(SwiftypeException.NO_RESPONSE, e.getStatus());
+		}
+		assertEquals(CircuitBreaker.State.CLOSED, CONFIG.getCircuitBreaker().getState("api.swiftype.com"));
+	}
+
+	private static FakeTransport use(final FakeTransport fake) {
+		CONFIG.setTransport(fake);
+		return fake;
+	}
+}
@@ -0,0 +1,39 @@
+package com.swiftype.api.easy.helper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Transport answering every request with the same response, without a server. Header names are lower case.
+ *
+ */
+class FakeTransport implements Transport {
+	final List<Transport.Request> requests = new CopyOnWriteArrayList<Transport.Request>();
+	final Map<String, String> headers = new HashMap<String, String>();
+	private final int status;
+	private final byte[] body;
+
+	FakeTransport(final int status, final String body) {
+		this(status, body.getBytes(StandardCharsets.UTF_8));
+	}
+
+	FakeTransport(final int status, final byte[] body) {
+		this.status = status;
+		this.body = body;
+	}
+
+	@Override
+	public Response execute(final Request request) throws IOException {
+		requests.add(request);
+		return new Response(status, headers, new ByteArrayInputStream(body));
+	}
+
+	@Override
+	public void close() {
+	}
+}
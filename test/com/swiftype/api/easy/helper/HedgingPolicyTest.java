@@ -0,0 +1,77 @@
+package com.swiftype.api.easy.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class HedgingPolicyTest {
+	private static final String SEARCH = "engines/{id}/search";
+
+	@Test
+	public void testBudgetLimitsExtraLoad() {
+		final HedgingPolicy policy = new HedgingPolicy.Builder()
+				.maxExtraLoad(0.1)
+				.build();
+		assertFalse(policy.tryHedge());
+		for (int i = 0; i < 9; ++i) {
+			policy.onRequest(SEARCH);
+		}
+		assertFalse(policy.tryHedge());
+		policy.onRequest(SEARCH);
+		assertTrue(policy.tryHedge());
+		assertFalse(policy.tryHedge());
+		assertEquals(1, policy.getHedged());
+	}
+
+	@Test
+	public void testUnusedBudgetIsCapped() {
+		final HedgingPolicy policy = new HedgingPolicy.Builder()
+				.maxExtraLoad(1)
+				.maxBurst(2)
+				.build();
+		for (int i = 0; i < 5; ++i) {
+			policy.onRequest(SEARCH);
+		}
+		assertTrue(policy.tryHedge());
+		assertTrue(policy.tryHedge());
+		assertFalse(policy.tryHedge());
+		assertEquals(2, policy.getHedged());
+	}
+
+	@Test
+	public void testDelayFromRecentLatencies() {
+		final HedgingPolicy policy = new HedgingPolicy.Builder()
+				.percentile(50)
+				.minDelay(0, TimeUnit.MILLISECONDS)
+				.window(10, 4)
+				.build();
+		assertEquals(-1, policy.onRequest(SEARCH));
+		for (int i = 1; i <= 4; ++i) {
+			policy.record(SEARCH, TimeUnit.MILLISECONDS.toNanos(i));
+		}
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(2), policy.onRequest(SEARCH));
+		assertEquals(2, policy.getDelayMillis(SEARCH), 0);
+		assertEquals(-1, policy.getDelayMillis("engines/{id}/suggest"), 0);
+	}
+
+	@Test
+	public void testMinDelay() {
+		final HedgingPolicy policy = new HedgingPolicy.Builder()
+				.minDelay(5, TimeUnit.MILLISECONDS)
+				.window(10, 1)
+				.build();
+		policy.record(SEARCH, TimeUnit.MILLISECONDS.toNanos(1));
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(5), policy.onRequest(SEARCH));
+	}
+
+	@Test
+	public void testHedgeWins() {
+		final HedgingPolicy policy = new HedgingPolicy.Builder().build();
+		policy.onHedgeWon();
+		assertEquals(1, policy.getHedgeWins());
+	}
+}
@@ -0,0 +1,162 @@
+package com.swiftype.api.easy.helper;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONString;
+import org.junit.Test;
+
+public class JsonWriterTest {
+	@Test
+	public void testPlainValues() throws JSONException {
+		final JSONObject document = new JSONObject("{\"title\": \"Tab\\t\\\"quoted\\\" </script> \\u2028\", \"count\": 3,"
+				+ " \"price\": 1.5, \"available\": true, \"missing\": null, \"tags\": [\"a\", 1, [], {}]}");
+		assertRoundTrip(document);
+	}
+
+	@Test
+	public void testMapsCollectionsAndArrays() throws JSONException {
+		final Map<String, Object> location = new LinkedHashMap<String, Object>();
+		location.put("lat", 1.5);
+		location.put("lon", -2.25);
+		location.put("labels", Arrays.asList("x", "y"));
+		final List<Object> list = new ArrayList<Object>();
+		list.add("a");
+		list.add(location);
+		list.add(new int[] {1, 2});
+		final JSONObject document = new JSONObject();
+		document.put("location", location);
+		document.put("list", list);
+		document.put("ints", new int[] {1, 2, 3});
+		document.put("strings", new String[] {"b", "c"});
+		document.put("nested", new JSONArray().put(location));
+		assertRoundTrip(document);
+		assertEquals(-2.25, new JSONObject(JsonCodec.DEFAULT.toJson(document)).getJSONObject("location").getDouble("lon"), 0);
+	}
+
+	@Test
+	public void testJSONString() throws JSONException {
+		final JSONString raw = new JSONString() {
+			@Override
+			public String toJSONString() {
+				return "{\"raw\":[1,2]}";
+			}
+		};
+		final JSONObject document = new JSONObject();
+		document.put("raw", raw);
+		document.put("list", Arrays.asList(raw, "b"));
+		assertRoundTrip(document);
+	}
+
+	@Test
+	public void testJSONStringParsedByDefault() throws JSONException {
+		final JSONString raw = new JSONString() {
+			@Override
+			public String toJSONString() {
+				return "{ \"raw\" : [1, 2] }";
+			}
+		};
+		final JsonCodec parsingCodec = new JsonCodec() {
+			@Override
+			public JsonReader newReader(final Reader in) {
+				return new StreamingJsonReader(in);
+			}
+
+			@Override
+			public JsonWriter newWriter(final Writer out) {
+				return new DelegatingWriter(new StreamingJsonWriter(out));
+			}
+		};
+		assertEquals("[{\"raw\":[1,2]}]", parsingCodec.toJson(new JSONArray().put(raw)));
+	}
+
+	private static void assertRoundTrip(final JSONObject document) {
+		assertEquals(document.toString(), JsonCodec.DEFAULT.toJson(document));
+	}
+
+	/**
+	 * Writer without its own {@link JsonWriter#jsonValue(String)}, like a writer of another codec.
+	 */
+	private static class DelegatingWriter extends JsonWriter {
+		private final JsonWriter delegate;
+
+		private DelegatingWriter(final JsonWriter delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public JsonWriter beginObject() throws IOException {
+			delegate.beginObject();
+			return this;
+		}
+
+		@Override
+		public JsonWriter endObject() throws IOException {
+			delegate.endObject();
+			return this;
+		}
+
+		@Override
+		public JsonWriter beginArray() throws IOException {
+			delegate.beginArray();
+			return this;
+		}
+
+		@Override
+		public JsonWriter endArray() throws IOException {
+			delegate.endArray();
+			return this;
+		}
+
+		@Override
+		public JsonWriter name(final String name) throws IOException {
+			delegate.name(name);
+			return this;
+		}
+
+		@Override
+		public JsonWriter value(final String value) throws IOException {
+			delegate.value(value);
+			return this;
+		}
+
+		@Override
+		public JsonWriter value(final Number value) throws IOException {
+			delegate.value(value);
+			return this;
+		}
+
+		@Override
+		public JsonWriter value(final boolean value) throws IOException {
+			delegate.value(value);
+			return this;
+		}
+
+		@Override
+		public JsonWriter nullValue() throws IOException {
+			delegate.nullValue();
+			return this;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			delegate.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			delegate.close();
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.swiftype.api.easy.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+	private static final int LAST_INDEX = LatencyHistogram.indexOf(Long.MAX_VALUE);
+
+	@Test
+	public void testSmallValuesAreExact() {
+		for (int micros = 0; micros < 16; ++micros) {
+			assertEquals(micros, LatencyHistogram.indexOf(micros));
+			assertEquals(micros, LatencyHistogram.highestValueOf(micros));
+		}
+	}
+
+	@Test
+	public void testBucketsAreContiguous() {
+		for (int index = 0; index < LAST_INDEX; ++index) {
+			final long highest = LatencyHistogram.highestValueOf(index);
+			assertEquals(index, LatencyHistogram.indexOf(highest));
+			assertEquals(index + 1, LatencyHistogram.indexOf(highest + 1));
+		}
+	}
+
+	@Test
+	public void testPrecision() {
+		for (int exponent = 4; exponent < 40; ++exponent) {
+			for (final long micros : new long[] {(1L << exponent) - 1, 1L << exponent, (1L << exponent) + 1, 3L << (exponent - 1)}) {
+				final long highest = LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(micros));
+				assertTrue(micros + " above " + highest, micros <= highest);
+				assertTrue(highest + " too far from " + micros, highest - micros <= micros / 16);
+			}
+		}
+	}
+
+	@Test
+	public void testHugeValuesShareLastBucket() {
+		assertEquals(LAST_INDEX, LatencyHistogram.indexOf(1L << 41));
+		assertEquals(LAST_INDEX, LatencyHistogram.indexOf((1L << 41) - 1));
+		final LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(TimeUnit.NANOSECONDS.toMicros(Long.MAX_VALUE) / 1000.0, histogram.getPercentileMillis(100), 0);
+	}
+
+	@Test
+	public void testPercentiles() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getPercentileMillis(99), 0);
+		for (int millis = 1; millis <= 100; ++millis) {
+			histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+		}
+		histogram.record(-1);
+		assertEquals(101, histogram.getCount());
+		assertEquals(100, histogram.getMaxMillis(), 0);
+		assertEquals(5050 / 101.0, histogram.getMeanMillis(), 0.001);
+		assertEquals(0, histogram.getPercentileMillis(0), 0);
+		assertEquals(50, histogram.getPercentileMillis(50), 50 / 16.0);
+		assertEquals(99, histogram.getPercentileMillis(99), 99 / 16.0);
+		assertEquals(100, histogram.getPercentileMillis(100), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPercentileAbove100() {
+		new LatencyHistogram().getPercentileMillis(100.5);
+	}
+}
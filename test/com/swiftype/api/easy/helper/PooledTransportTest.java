@@ -0,0 +1,303 @@
+package com.swiftype.api.easy.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PooledTransportTest {
+	private static final String HELLO = "HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\nhello";
+
+	private TestServer server;
+	private PooledTransport transport;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestServer();
+		transport = new PooledTransport.Builder().build();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		transport.close();
+		server.close();
+	}
+
+	@Test
+	public void testContentLengthBody() throws IOException {
+		server.reply(HELLO);
+		assertEquals("hello", send(get()));
+		assertEquals("GET /api/v1/engines.json", server.requests.get(0));
+		assertEquals(1, transport.getIdleConnections());
+		assertEquals(0, transport.getLeasedConnections());
+	}
+
+	@Test
+	public void testChunkedBody() throws IOException {
+		server.reply("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhello\r\n6;name=value\r\n world\r\n0\r\nTrailer: x\r\n\r\n");
+		assertEquals("hello world", send(get()));
+		assertEquals(1, transport.getIdleConnections());
+	}
+
+	@Test
+	public void testChunkedRequestBody() throws IOException {
+		server.reply(HELLO);
+		final Transport.RequestBody body = new Transport.RequestBody() {
+			@Override
+			public long contentLength() {
+				return -1;
+			}
+
+			@Override
+			public void writeTo(final OutputStream out) throws IOException {
+				out.write("{\"documents\":".getBytes(StandardCharsets.UTF_8));
+				out.write("[]}".getBytes(StandardCharsets.UTF_8));
+			}
+		};
+		assertEquals("hello", send(post(body, false)));
+		assertEquals("POST /api/v1/engines.json {\"documents\":[]}", server.requests.get(0));
+	}
+
+	@Test
+	public void testReusesConnection() throws IOException {
+		server.reply(HELLO);
+		server.reply(HELLO);
+		assertEquals("hello", send(get()));
+		assertEquals("hello", send(get()));
+		assertEquals(1, transport.getConnectionsCreated());
+		assertEquals(1, transport.getConnectionsReused());
+		assertEquals(1, server.connections.size());
+	}
+
+	@Test
+	public void testConnectionClose() throws IOException {
+		server.reply("HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 5\r\n\r\nhello");
+		server.reply(HELLO);
+		assertEquals("hello", send(get()));
+		assertEquals(0, transport.getIdleConnections());
+		assertEquals("hello", send(get()));
+		assertEquals(2, transport.getConnectionsCreated());
+		assertEquals(0, transport.getConnectionsReused());
+	}
+
+	@Test
+	public void testEvictsIdleConnections() throws Exception {
+		transport.close();
+		transport = new PooledTransport.Builder().idleTimeout(1, TimeUnit.MILLISECONDS).build();
+		server.reply(HELLO);
+		assertEquals("hello", send(get()));
+		assertEquals(1, transport.getIdleConnections());
+		Thread.sleep(20);
+		transport.evictIdleConnections();
+		assertEquals(0, transport.getIdleConnections());
+		assertEquals(1, transport.getConnectionsEvicted());
+	}
+
+	@Test
+	public void testRetriesIdempotentRequestOnStaleConnection() throws Exception {
+		server.replyAndClose(HELLO);
+		server.reply(HELLO);
+		assertEquals("hello", send(get()));
+		server.awaitClosed();
+		assertEquals("hello", send(get()));
+		assertEquals(2, transport.getConnectionsCreated());
+		assertEquals(2, server.requests.size());
+	}
+
+	@Test
+	public void testRetriesIdempotentPostOnStaleConnection() throws Exception {
+		server.replyAndClose(HELLO);
+		server.reply(HELLO);
+		assertEquals("hello", send(get()));
+		server.awaitClosed();
+		assertEquals("hello", send(post(new Transport.ByteArrayBody("{}".getBytes(StandardCharsets.UTF_8)), true)));
+		assertEquals("POST /api/v1/engines.json {}", server.requests.get(1));
+	}
+
+	@Test
+	public void testDoesNotResendNonIdempotentRequest() throws Exception {
+		server.replyAndClose(HELLO);
+		server.reply(HELLO);
+		assertEquals("hello", send(get()));
+		server.awaitClosed();
+		try {
+			send(post(new Transport.ByteArrayBody("{}".getBytes(StandardCharsets.UTF_8)), false));
+			fail("Expected the stale connection to fail the request");
+		} catch (IOException e) {
+			assertEquals(1, transport.getConnectionsCreated());
+			assertEquals(1, server.requests.size());
+		}
+		assertEquals(0, transport.getLeasedConnections());
+	}
+
+	private Transport.Request get() throws IOException {
+		return new Transport.Request("GET", server.url(), Collections.<String, String>emptyMap(), (Transport.RequestBody) null);
+	}
+
+	private Transport.Request post(final Transport.RequestBody body, final boolean idempotent) throws IOException {
+		return new Transport.Request("POST", server.url(), Collections.<String, String>emptyMap(), body, idempotent);
+	}
+
+	private String send(final Transport.Request request) throws IOException {
+		try (Transport.Response response = transport.execute(request)) {
+			assertEquals(200, response.getStatus());
+			return new String(readAll(response.getBody()), StandardCharsets.UTF_8);
+		}
+	}
+
+	private static byte[] readAll(final InputStream in) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[256];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * HTTP/1.1 server answering requests in order with scripted raw responses. Records every request
+	 * as method, path and body.
+	 */
+	private static class TestServer implements AutoCloseable {
+		private final ServerSocket serverSocket = new ServerSocket(0);
+		private final BlockingQueue<String[]> replies = new LinkedBlockingQueue<String[]>();
+		private final List<String> requests = new CopyOnWriteArrayList<String>();
+		private final List<Socket> connections = new CopyOnWriteArrayList<Socket>();
+		private final CountDownLatch closed = new CountDownLatch(1);
+
+		private TestServer() throws IOException {
+			final Thread acceptor = new Thread(() -> {
+				try {
+					while (true) {
+						final Socket socket = serverSocket.accept();
+						connections.add(socket);
+						final Thread handler = new Thread(() -> serve(socket));
+						handler.setDaemon(true);
+						handler.start();
+					}
+				} catch (IOException e) {
+					// Server closed
+				}
+			});
+			acceptor.setDaemon(true);
+			acceptor.start();
+		}
+
+		private URL url() throws IOException {
+			return new URL("http://127.0.0.1:" + serverSocket.getLocalPort() + "/api/v1/engines.json");
+		}
+
+		private void reply(final String response) {
+			replies.add(new String[] {response, ""});
+		}
+
+		/**
+		 * Answers and closes the connection without telling the client, like a server dropping an idle connection.
+		 */
+		private void replyAndClose(final String response) {
+			replies.add(new String[] {response, "close"});
+		}
+
+		private void awaitClosed() throws InterruptedException {
+			assertTrue(closed.await(1, TimeUnit.SECONDS));
+		}
+
+		private void serve(final Socket socket) {
+			try {
+				final InputStream in = new BufferedInputStream(socket.getInputStream());
+				final OutputStream out = socket.getOutputStream();
+				String requestLine;
+				while ((requestLine = readLine(in)) != null) {
+					long contentLength = 0;
+					boolean chunked = false;
+					String line;
+					while ((line = readLine(in)) != null && line.length() > 0) {
+						final String header = line.toLowerCase();
+						if (header.startsWith("content-length:")) {
+							contentLength = Long.parseLong(header.substring(15).trim());
+						} else if (header.startsWith("transfer-encoding:") && header.contains("chunked")) {
+							chunked = true;
+						}
+					}
+					final String body = chunked ? readChunked(in) : readFixed(in, contentLength);
+					final String[] parts = requestLine.split(" ");
+					requests.add(parts[0] + " " + parts[1] + (body.isEmpty() ? "" : " " + body));
+					final String[] reply = replies.poll(1, TimeUnit.SECONDS);
+					out.write(reply[0].getBytes(StandardCharsets.ISO_8859_1));
+					out.flush();
+					if (!reply[1].isEmpty() || reply[0].contains("Connection: close")) {
+						socket.close();
+						closed.countDown();
+						return;
+					}
+				}
+			} catch (IOException | InterruptedException e) {
+				// Connection closed by the client
+			}
+		}
+
+		private static String readFixed(final InputStream in, final long length) throws IOException {
+			final byte[] body = new byte[(int) length];
+			int offset = 0;
+			while (offset < body.length) {
+				final int read = in.read(body, offset, body.length - offset);
+				if (read == -1) {
+					throw new IOException("Request body incomplete");
+				}
+				offset += read;
+			}
+			return new String(body, StandardCharsets.UTF_8);
+		}
+
+		private static String readChunked(final InputStream in) throws IOException {
+			final StringBuilder sb = new StringBuilder();
+			int size;
+			while ((size = Integer.parseInt(readLine(in), 16)) > 0) {
+				sb.append(readFixed(in, size));
+				readLine(in);
+			}
+			readLine(in);
+			return sb.toString();
+		}
+
+		private static String readLine(final InputStream in) throws IOException {
+			final StringBuilder sb = new StringBuilder();
+			int c;
+			while ((c = in.read()) != -1 && c != '\n') {
+				if (c != '\r') {
+					sb.append((char) c);
+				}
+			}
+			return c == -1 && sb.length() == 0 ? null : sb.toString();
+		}
+
+		@Override
+		public void close() throws IOException {
+			serverSocket.close();
+			for (final Socket socket : connections) {
+				socket.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package com.swiftype.api.easy.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RateLimiterTest {
+	@Test
+	public void testRejectsAfterBurst() {
+		final RateLimiter limiter = new RateLimiter.Builder()
+				.limit(RateLimiter.EndpointClass.SEARCH, 1, 3)
+				.maxWait(0, TimeUnit.MILLISECONDS)
+				.build();
+		for (int i = 0; i < 3; ++i) {
+			limiter.acquire("key", RateLimiter.EndpointClass.SEARCH);
+		}
+		try {
+			limiter.acquire("key", RateLimiter.EndpointClass.SEARCH);
+			fail("Expected the burst to be used up");
+		} catch (RateLimitedException e) {
+			assertEquals(RateLimiter.EndpointClass.SEARCH, e.getEndpointClass());
+			assertFalse(e.isRetryable());
+		}
+		assertEquals(1, limiter.getRejected());
+		assertEquals(0, limiter.getDelayed());
+	}
+
+	@Test
+	public void testWaitsForPermit() {
+		final RateLimiter limiter = new RateLimiter.Builder()
+				.limit(RateLimiter.EndpointClass.BULK_DOCUMENTS, 20, 1)
+				.build();
+		limiter.acquire("key", RateLimiter.EndpointClass.BULK_DOCUMENTS);
+		final long start = System.nanoTime();
+		limiter.acquire("key", RateLimiter.EndpointClass.BULK_DOCUMENTS);
+		final long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue("Waited " + waitedMillis + "ms", waitedMillis >= 30);
+		assertEquals(1, limiter.getDelayed());
+		assertEquals(0, limiter.getRejected());
+	}
+
+	@Test
+	public void testRejectsWaitBeyondDeadline() {
+		final RateLimiter limiter = new RateLimiter.Builder()
+				.limit(RateLimiter.EndpointClass.SEARCH, 1, 1)
+				.build();
+		limiter.acquire("key", RateLimiter.EndpointClass.SEARCH);
+		try {
+			Deadline.after(50, TimeUnit.MILLISECONDS).run(() -> limiter.acquire("key", RateLimiter.EndpointClass.SEARCH));
+			fail("Expected the wait to exceed the deadline");
+		} catch (RateLimitedException e) {
+			assertEquals(1, limiter.getRejected());
+		}
+	}
+
+	@Test
+	public void testTryAcquire() {
+		final RateLimiter limiter = new RateLimiter.Builder()
+				.limit(RateLimiter.EndpointClass.SUGGEST, 1, 2)
+				.build();
+		assertTrue(limiter.tryAcquire("key", RateLimiter.EndpointClass.SUGGEST));
+		assertTrue(limiter.tryAcquire("key", RateLimiter.EndpointClass.SUGGEST));
+		assertFalse(limiter.tryAcquire("key", RateLimiter.EndpointClass.SUGGEST));
+		for (int i = 0; i < 10; ++i) {
+			assertTrue(limiter.tryAcquire("key", RateLimiter.EndpointClass.OTHER));
+		}
+	}
+
+	@Test
+	public void testBucketsPerApiKey() {
+		final RateLimiter limiter = new RateLimiter.Builder()
+				.limit(RateLimiter.EndpointClass.SEARCH, 1, 1)
+				.limit("batch", RateLimiter.EndpointClass.SEARCH, 1, 2)
+				.build();
+		assertTrue(limiter.tryAcquire("first", RateLimiter.EndpointClass.SEARCH));
+		assertFalse(limiter.tryAcquire("first", RateLimiter.EndpointClass.SEARCH));
+		assertTrue(limiter.tryAcquire("second", RateLimiter.EndpointClass.SEARCH));
+		assertTrue(limiter.tryAcquire("batch", RateLimiter.EndpointClass.SEARCH));
+		assertTrue(limiter.tryAcquire("batch", RateLimiter.EndpointClass.SEARCH));
+		assertFalse(limiter.tryAcquire("batch", RateLimiter.EndpointClass.SEARCH));
+	}
+
+	@Test
+	public void testEndpointClasses() {
+		assertEquals(RateLimiter.EndpointClass.SEARCH, RateLimiter.EndpointClass.of("engines/{id}/search"));
+		assertEquals(RateLimiter.EndpointClass.SUGGEST, RateLimiter.EndpointClass.of("engines/{id}/suggest"));
+		assertEquals(RateLimiter.EndpointClass.BULK_DOCUMENTS,
+				RateLimiter.EndpointClass.of("engines/{id}/document_types/{id}/documents/bulk_create_or_update"));
+		assertEquals(RateLimiter.EndpointClass.OTHER, RateLimiter.EndpointClass.of("engines/{id}"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBurst() {
+		new RateLimiter.Builder().limit(RateLimiter.EndpointClass.SEARCH, 1, 0);
+	}
+}
@@ -0,0 +1,83 @@
+package com.swiftype.api.easy.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class RecordTest {
+	private static final String RECORD = "{\"id\": \"1\", \"title\": \"Tab\\tand \\\"quotes\\\" \\u00e9\", \"plain\": \"text\","
+			+ " \"count\": 42, \"price\": 1.5, \"empty\": null, \"tags\": [\"a\", \"b\\/c\", [1, 2], {}],"
+			+ " \"location\": {\"lat\": 1.5, \"lon\": -2.25, \"name\": \"x\\ny\"},"
+			+ " \"highlight\": {\"title\": \"\\u003cem\\u003eTab\\u003c/em\\u003e\"}}";
+
+	@Test
+	public void testEscapedStrings() throws IOException, JSONException {
+		final Record record = read(RECORD);
+		assertEquals("Tab\tand \"quotes\" \u00e9", record.getField("title"));
+		assertEquals("<em>Tab</em>", record.getHighlightedField("title"));
+		assertEquals("text", record.getField("plain"));
+	}
+
+	@Test
+	public void testNestedValues() throws IOException, JSONException {
+		final Record record = read(RECORD);
+		assertEquals(Arrays.asList("a", "b/c", "[1,2]", "{}"), record.getStringList("tags"));
+		assertEquals(new GeoPoint(1.5, -2.25), record.getGeoPoint("location"));
+		assertEquals("x\ny", new JSONObject(record.getField("location")).getString("name"));
+		assertEquals(42, record.getLong("count", 0));
+		assertEquals(1.5, record.getDouble("price", 0), 0);
+		assertEquals(0, record.getLong("empty", 0));
+		assertNull(record.getField("missing"));
+	}
+
+	@Test
+	public void testSameFieldsAsParsedRecord() throws IOException, JSONException {
+		final Record lazy = read(RECORD);
+		final Record parsed = Record.fromJson(new JSONObject(RECORD));
+		assertEquals(parsed.getFieldNames(), lazy.getFieldNames());
+		assertEquals(parsed.getFields(), lazy.getFields());
+		assertEquals(parsed.getHighlightedFields(), lazy.getHighlightedFields());
+	}
+
+	@Test
+	public void testRepeatedAccessDecodesOnce() throws IOException, JSONException {
+		final Record record = read(RECORD);
+		assertSame(record.getField("title"), record.getField("title"));
+		assertSame(record.getHighlightedField("title"), record.getHighlightedField("title"));
+		assertEquals(record.getField("location"), record.getField("location"));
+		assertSame(record.getFields(), record.getFields());
+	}
+
+	@Test
+	public void testFieldMapsAreUnmodifiable() throws IOException, JSONException {
+		for (final Record record : new Record[] {read(RECORD), Record.fromJson(new JSONObject(RECORD))}) {
+			try {
+				record.getFields().put("title", "changed");
+				fail("Expected the shared fields to be unmodifiable");
+			} catch (UnsupportedOperationException e) {
+				// Expected
+			}
+			try {
+				record.getHighlightedFields().clear();
+				fail("Expected the shared highlights to be unmodifiable");
+			} catch (UnsupportedOperationException e) {
+				// Expected
+			}
+			assertEquals("text", record.getFields().get("plain"));
+			assertEquals(1, record.getHighlightedFields().size());
+		}
+	}
+
+	private static Record read(final String json) throws IOException, JSONException {
+		return Record.fromJson(new StreamingJsonReader(new StringReader(json)));
+	}
+}
@@ -0,0 +1,125 @@
+package com.swiftype.api.easy.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestCoalescerTest {
+	private static final int CALLERS = 4;
+
+	private RequestCoalescer coalescer;
+
+	@Before
+	public void setUp() throws Exception {
+		coalescer = new RequestCoalescer();
+	}
+
+	@Test
+	public void testConcurrentCallsShareRequest() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger calls = new AtomicInteger();
+		final List<CompletableFuture<Object>> results = callConcurrently("key", () -> {
+			calls.incrementAndGet();
+			await(release);
+			return new Object();
+		});
+		awaitCoalesced(CALLERS - 1);
+		release.countDown();
+		for (final CompletableFuture<Object> result : results) {
+			assertSame(results.get(0).get(), result.get());
+		}
+		assertEquals(1, calls.get());
+		assertEquals(1, coalescer.getExecuted());
+		assertEquals(0, coalescer.getInFlight());
+	}
+
+	@Test
+	public void testConcurrentCallsShareException() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final IllegalStateException failure = new IllegalStateException("Request failed");
+		final List<CompletableFuture<Object>> results = callConcurrently("key", () -> {
+			await(release);
+			throw failure;
+		});
+		awaitCoalesced(CALLERS - 1);
+		release.countDown();
+		for (final CompletableFuture<Object> result : results) {
+			try {
+				result.get();
+				fail("Expected the failure of the shared request");
+			} catch (ExecutionException e) {
+				assertSame(failure, e.getCause());
+			}
+		}
+		assertEquals(1, coalescer.getExecuted());
+	}
+
+	@Test
+	public void testFinishedRequestIsNotReused() {
+		final Object first = coalescer.execute("path", "key", () -> new Object());
+		final Object second = coalescer.execute("path", "key", () -> new Object());
+		assertNotSame(first, second);
+		assertEquals(2, coalescer.getExecuted());
+		assertEquals(0, coalescer.getCoalesced());
+	}
+
+	@Test
+	public void testDifferentKeysAreNotShared() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> coalescer.execute("path", "key1", () -> {
+			started.countDown();
+			await(release);
+			return "first";
+		}));
+		started.await();
+		assertEquals("second", coalescer.execute("path", "key2", () -> "second"));
+		release.countDown();
+		assertEquals("first", first.get());
+		assertEquals(2, coalescer.getExecuted());
+		assertEquals(0, coalescer.getCoalesced());
+	}
+
+	private List<CompletableFuture<Object>> callConcurrently(final String key, final Supplier<Object> call) {
+		final List<CompletableFuture<Object>> results = new ArrayList<CompletableFuture<Object>>();
+		for (int i = 0; i < CALLERS; ++i) {
+			final CompletableFuture<Object> result = new CompletableFuture<Object>();
+			final Thread thread = new Thread(() -> {
+				try {
+					result.complete(coalescer.execute("path", key, call));
+				} catch (RuntimeException e) {
+					result.completeExceptionally(e);
+				}
+			});
+			thread.start();
+			results.add(result);
+		}
+		return results;
+	}
+
+	private void awaitCoalesced(final int callers) throws InterruptedException {
+		while (coalescer.getCoalesced() < callers) {
+			Thread.sleep(1);
+		}
+	}
+
+	private static void await(final CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package com.swiftype.api.easy.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RetryPolicyTest {
+	private final RetryPolicy policy = new RetryPolicy.Builder().maxRetries(3)
+			.initialBackoff(100, TimeUnit.MILLISECONDS).maxBackoff(1, TimeUnit.SECONDS).build();
+
+	@Test
+	public void testNoneNeverRetries() {
+		assertEquals(0, RetryPolicy.NONE.getMaxRetries());
+	}
+
+	@Test
+	public void testBackoffGrowsExponentiallyWithJitter() {
+		for (int i = 0; i < 1000; ++i) {
+			assertBetween(0, 100, policy.backoffMillis(1, -1));
+			assertBetween(0, 200, policy.backoffMillis(2, -1));
+			assertBetween(0, 400, policy.backoffMillis(3, -1));
+			assertBetween(0, 1000, policy.backoffMillis(30, -1));
+		}
+	}
+
+	@Test
+	public void testRetryAfterIsHonoredUpToMaxBackoff() {
+		assertEquals(500, policy.backoffMillis(1, 500));
+		assertEquals(1000, policy.backoffMillis(1, 1000));
+		assertEquals(-1, policy.backoffMillis(1, 1001));
+		assertEquals(-1, policy.backoffMillis(1, 60000));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeMaxRetries() {
+		new RetryPolicy.Builder().maxRetries(-1);
+	}
+
+	private static void assertBetween(final long min, final long max, final long actual) {
+		assertTrue(actual + " not in [" + min + ", " + max + "]", actual >= min && actual <= max);
+	}
+}
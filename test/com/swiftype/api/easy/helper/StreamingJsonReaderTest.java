@@ -0,0 +1,166 @@
+package com.swiftype.api.easy.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class StreamingJsonReaderTest {
+	@Test
+	public void testStringEscapes() throws IOException, JSONException {
+		final String json = "[\"a\\\"b\\\\c\\/d\\b\\f\\n\\r\\t\", \"\\u00e9\\u20AC\", \"\\ud83d\\ude00 smile\", \"\"]";
+		for (final JsonReader reader : readers(json)) {
+			reader.beginArray();
+			assertEquals("a\"b\\c/d\b\f\n\r\t", reader.nextString());
+			assertEquals("\u00e9\u20ac", reader.nextString());
+			final String surrogates = reader.nextString();
+			assertEquals("\ud83d\ude00 smile", surrogates);
+			assertEquals(0x1f600, surrogates.codePointAt(0));
+			assertEquals("", reader.nextString());
+			reader.endArray();
+			assertEquals(JsonReader.Token.END_DOCUMENT, reader.peek());
+		}
+	}
+
+	@Test
+	public void testLongStringAcrossBuffers() throws IOException, JSONException {
+		final StringBuilder expected = new StringBuilder();
+		final StringBuilder json = new StringBuilder("{\"text\": \"");
+		for (int i = 0; i < 5000; ++i) {
+			expected.append("x\"");
+			json.append("x\\\"");
+		}
+		json.append("\"}");
+		final JsonReader reader = new StreamingJsonReader(new StringReader(json.toString()));
+		reader.beginObject();
+		assertEquals("text", reader.nextName());
+		assertEquals(expected.toString(), reader.nextString());
+		reader.endObject();
+	}
+
+	@Test
+	public void testNumbers() throws IOException, JSONException {
+		final String json = "[0, -12, 1.5e3, -2E-2, 9223372036854775807, -9223372036854775808, 1e2, 3.25, 2147483648]";
+		for (final JsonReader reader : readers(json)) {
+			reader.beginArray();
+			assertEquals(JsonReader.Token.NUMBER, reader.peek());
+			assertEquals(0, reader.nextInt());
+			assertEquals(-12, reader.nextLong());
+			assertEquals(1500, reader.nextDouble(), 0);
+			assertEquals(-0.02, reader.nextDouble(), 0);
+			assertEquals(Long.MAX_VALUE, reader.nextLong());
+			assertEquals(Long.MIN_VALUE, reader.nextLong());
+			assertEquals(100, reader.nextLong());
+			assertEquals("3.25", reader.nextString());
+			try {
+				reader.nextInt();
+				fail("Expected 2147483648 to overflow an int");
+			} catch (JSONException e) {
+				// Expected
+			}
+			reader.endArray();
+		}
+	}
+
+	@Test(expected = JSONException.class)
+	public void testFractionIsNoLong() throws IOException, JSONException {
+		new StreamingJsonReader(new StringReader("1.5")).nextLong();
+	}
+
+	@Test
+	public void testReadValueLikeJSONObject() throws IOException, JSONException {
+		final String json = "{\"id\": 9223372036854775807, \"price\": -1.5e-3, \"ok\": false, \"none\": null, \"list\": [1, \"two\", {}]}";
+		final JSONObject value = (JSONObject) new StreamingJsonReader(new StringReader(json)).readValue();
+		assertEquals(new JSONObject(json).toString(), value.toString());
+		assertEquals(Long.MAX_VALUE, value.getLong("id"));
+		assertTrue(value.isNull("none"));
+		assertEquals(3, ((JSONArray) value.get("list")).length());
+	}
+
+	@Test
+	public void testSkipValue() throws IOException, JSONException {
+		final String json = "{\"skip\": {\"a\": [1, {\"b\": \"x\\\"]}\"}, null, [[]]], \"c\": true}, \"flat\": \"\\u0041\", \"keep\": 1}";
+		for (final JsonReader reader : readers(json)) {
+			reader.beginObject();
+			assertEquals("skip", reader.nextName());
+			reader.skipValue();
+			assertEquals("flat", reader.nextName());
+			reader.skipValue();
+			assertEquals("keep", reader.nextName());
+			assertEquals(1, reader.nextInt());
+			assertFalse(reader.hasNext());
+			reader.endObject();
+			assertEquals(JsonReader.Token.END_DOCUMENT, reader.peek());
+		}
+	}
+
+	@Test
+	public void testMalformedInput() throws IOException {
+		final String[] malformed = {
+			"",
+			"{\"a\": [1, 2",
+			"{\"a\": 1",
+			"\"unterminated",
+			"{\"a\" 1}",
+			"{a: 1}",
+			"[1 2]",
+			"{\"a\": 1,}x",
+			"[\"\\x\"]",
+			"[\"\\u12g4\"]",
+			"[\"\\u12",
+			"[tru]",
+			"{} []",
+		};
+		for (final String json : malformed) {
+			try {
+				final JsonReader reader = new StreamingJsonReader(new StringReader(json));
+				reader.readValue();
+				reader.peek();
+				fail("Expected a JSONException for '" + json + "'");
+			} catch (JSONException e) {
+				// Expected
+			}
+		}
+	}
+
+	@Test(expected = JSONException.class)
+	public void testSkipValueAtEnd() throws IOException, JSONException {
+		final JsonReader reader = new StreamingJsonReader(new StringReader("[1]"));
+		reader.skipValue();
+		reader.skipValue();
+	}
+
+	/**
+	 * @return	Readers of the JSON reading it at once and one character at a time
+	 */
+	private static JsonReader[] readers(final String json) {
+		return new JsonReader[] {
+			new StreamingJsonReader(new StringReader(json)),
+			new StreamingJsonReader(new OneCharReader(new StringReader(json))),
+		};
+	}
+
+	/**
+	 * Returns a single character per read, so every token crosses the end of the buffer.
+	 */
+	private static class OneCharReader extends FilterReader {
+		private OneCharReader(final Reader in) {
+			super(in);
+		}
+
+		@Override
+		public int read(final char[] buffer, final int offset, final int length) throws IOException {
+			return super.read(buffer, offset, Math.min(1, length));
+		}
+	}
+}
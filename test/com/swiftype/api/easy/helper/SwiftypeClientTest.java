@@ -0,0 +1,211 @@
+package com.swiftype.api.easy.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SwiftypeClientTest {
+	private static final String RESPONSE = "{\"name\":\"compressed\",\"document_count\":1}";
+	private static final String SEARCH_RESPONSE = "{\"info\":{\"books\":{\"query\":\"tom sawyer\",\"total_result_count\":1}},"
+			+ "\"records\":{\"books\":[{\"external_id\":\"1\",\"title\":\"Tom Sawyer\"}]}}";
+
+	private final List<SwiftypeClient> clients = new ArrayList<SwiftypeClient>();
+	private ExecutorService executor;
+	private SwiftypeClient client;
+
+	@Before
+	public void setUp() throws Exception {
+		executor = Executors.newFixedThreadPool(2);
+		client = new SwiftypeClient.Builder("test").apiHost("127.0.0.1:9292").executor(executor).build();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		executor.shutdownNow();
+		for (final SwiftypeClient other : clients) {
+			other.close();
+		}
+	}
+
+	@Test
+	public void testAsyncAllKeepsOrder() {
+		final List<Supplier<String>> calls = new ArrayList<Supplier<String>>();
+		for (int i = 0; i < 10; ++i) {
+			final String result = Integer.toString(i);
+			calls.add(() -> result);
+		}
+		final List<String> results = client.asyncAll(calls);
+		for (int i = 0; i < 10; ++i) {
+			assertEquals(Integer.toString(i), results.get(i));
+		}
+	}
+
+	@Test
+	public void testAsyncAllThrowsFirstFailure() throws InterruptedException {
+		final CountDownLatch release = new CountDownLatch(1);
+		final IllegalStateException failure = new IllegalStateException("Search failed");
+		final List<Boolean> expired = new ArrayList<Boolean>();
+		final List<Supplier<String>> calls = Arrays.asList(
+				() -> {
+					await(release);
+					throw new IllegalArgumentException("Failed later");
+				},
+				() -> {
+					throw failure;
+				},
+				() -> {
+					synchronized (expired) {
+						expired.add(Deadline.current().isExpired());
+					}
+					return "skipped";
+				});
+		try {
+			client.asyncAll(calls);
+			fail("Expected the failure of the second call");
+		} catch (IllegalStateException e) {
+			assertSame(failure, e);
+		} finally {
+			release.countDown();
+		}
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.SECONDS);
+		assertEquals(1, expired.size());
+		assertTrue(expired.get(0));
+	}
+
+	@Test
+	public void testDecodesGzipResponse() throws IOException {
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+			out.write(RESPONSE.getBytes(StandardCharsets.UTF_8));
+		}
+		final FakeTransport transport = new FakeTransport(200, compressed.toByteArray());
+		transport.headers.put("content-encoding", "gzip");
+		final SwiftypeClient compressing = clientWith(new SwiftypeClient.Builder("test").transport(transport));
+		assertEquals(RESPONSE, compressing.get("engines/compressed").trim());
+		assertEquals("gzip, deflate", transport.requests.get(0).getHeaders().get("Accept-Encoding"));
+	}
+
+	@Test
+	public void testCompressesRequestBody() throws IOException {
+		final FakeTransport transport = new FakeTransport(200, RESPONSE);
+		final SwiftypeClient compressing = clientWith(new SwiftypeClient.Builder("test").transport(transport).compressRequests(10));
+		final String document = "{\"external_id\":\"1\",\"fields\":[{\"name\":\"title\",\"value\":\"Gzip\",\"type\":\"string\"}]}";
+		assertEquals(RESPONSE, compressing.post("engines/compressed/document_types/books/documents", document).trim());
+		final Transport.Request request = transport.requests.get(0);
+		assertEquals("gzip", request.getHeaders().get("Content-Encoding"));
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		request.getBody().writeTo(body);
+		final ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body.toByteArray()))) {
+			final byte[] buffer = new byte[256];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				decompressed.write(buffer, 0, read);
+			}
+		}
+		assertEquals(document, new String(decompressed.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testDoesNotCompressSmallRequestBody() {
+		final FakeTransport transport = new FakeTransport(200, RESPONSE);
+		final SwiftypeClient compressing = clientWith(new SwiftypeClient.Builder("test").transport(transport).compressRequests(1024));
+		compressing.post("engines", "{}");
+		final Transport.Request request = transport.requests.get(0);
+		assertNull(request.getHeaders().get("Content-Encoding"));
+		assertEquals(2, request.getBody().contentLength());
+	}
+
+	@Test
+	public void testSharesUnmodifiableSearchResults() {
+		final FakeTransport transport = new FakeTransport(200, SEARCH_RESPONSE);
+		final SwiftypeClient caching = clientWith(new SwiftypeClient.Builder("test").transport(transport)
+				.resultCache(new ResultCache.Builder().build()));
+		final Map<String, SearchResult> first = search(caching, "Tom Sawyer");
+		assertSame(first, search(caching, " tom  sawyer"));
+		assertEquals(1, transport.requests.size());
+		try {
+			first.remove("books");
+			fail("Expected the shared results to be unmodifiable");
+		} catch (UnsupportedOperationException e) {
+			// Expected
+		}
+		try {
+			first.get("books").getResults().clear();
+			fail("Expected the shared records to be unmodifiable");
+		} catch (UnsupportedOperationException e) {
+			// Expected
+		}
+		assertEquals("Tom Sawyer", first.get("books").getResults().get(0).getField("title"));
+	}
+
+	@Test
+	public void testCoalescesOnlyIdenticalRequestBodies() throws Exception {
+		final RequestCoalescer coalescer = new RequestCoalescer();
+		final SwiftypeClient coalescing = clientWith(new SwiftypeClient.Builder("test").requestCoalescer(coalescer));
+		final CountDownLatch release = new CountDownLatch(1);
+		final ExecutorService callers = Executors.newFixedThreadPool(3);
+		final List<CompletableFuture<String>> results = new ArrayList<CompletableFuture<String>>();
+		for (final String query : new String[] {"Tom", "tom", "Tom"}) {
+			results.add(CompletableFuture.supplyAsync(() -> coalescing.cached("engines/bookstore/search", query, SearchOptions.DEFAULT, () -> {
+				await(release);
+				return query;
+			}), callers));
+		}
+		callers.shutdown();
+		while (coalescer.getInFlight() < 2 || coalescer.getCoalesced() < 1) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+		assertEquals("Tom", results.get(0).get());
+		assertEquals("tom", results.get(1).get());
+		assertEquals("Tom", results.get(2).get());
+		assertEquals(2, coalescer.getExecuted());
+		assertEquals(1, coalescer.getCoalesced());
+	}
+
+	private static Map<String, SearchResult> search(final SwiftypeClient client, final String query) {
+		final String path = "engines/bookstore/search";
+		return client.cached(path, query, SearchOptions.DEFAULT, () -> client.query(path, SearchOptions.DEFAULT.withQuery(query), SearchResult::fromJson));
+	}
+
+	private SwiftypeClient clientWith(final SwiftypeClient.Builder builder) {
+		final SwiftypeClient created = builder.apiHost("127.0.0.1:9292").build();
+		clients.add(created);
+		return created;
+	}
+
+	private static void await(final CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package com.swiftype.api.easy.helper;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+
+import org.junit.Test;
+
+public class TimestampsTest {
+	@Test
+	public void testUtc() {
+		assertParsed("2013-01-01T10:00:00Z");
+		assertParsed("1969-12-31T23:59:59Z");
+		assertParsed("1600-03-01T00:00:00Z");
+	}
+
+	@Test
+	public void testOffsets() {
+		assertParsed("2013-01-01T10:00:00+02:00");
+		assertParsed("2013-01-01T10:00:00-05:30");
+		assertParsed("2099-12-31T12:00:00+14:00");
+		assertEquals(Timestamps.parseMillis("2013-01-01T08:00:00Z"), Timestamps.parseMillis("2013-01-01T10:00:00+02:00"));
+	}
+
+	@Test
+	public void testFractionalSeconds() {
+		assertParsed("2013-01-01T10:00:00.1Z");
+		assertParsed("2013-01-01T10:00:00.123Z");
+		assertParsed("1969-12-31T23:59:59.999Z");
+		assertEquals(Timestamps.parseMillis("2013-01-01T10:00:00.123Z"), Timestamps.parseMillis("2013-01-01T10:00:00.123456-00:00"));
+	}
+
+	@Test
+	public void testLeapDays() {
+		assertParsed("2012-02-29T00:00:00Z");
+		assertParsed("2000-02-29T23:59:59Z");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDay() {
+		Timestamps.parseMillis("2013-02-30T10:00:00Z");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoLeapYear() {
+		Timestamps.parseMillis("2013-02-29T10:00:00Z");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoLeapCentury() {
+		Timestamps.parseMillis("1900-02-29T10:00:00+01:00");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDayInThirtyDayMonth() {
+		Timestamps.parseMillis("2013-04-31T10:00:00Z");
+	}
+
+	@Test
+	public void testCachedValue() {
+		final String timestamp = "2014-05-06T07:08:09.010Z";
+		assertEquals(Timestamps.parseMillis(timestamp), Timestamps.parseMillis(new String(timestamp)));
+		assertEquals(Instant.parse(timestamp), Timestamps.parseInstant(timestamp));
+	}
+
+	private static void assertParsed(final String timestamp) {
+		assertEquals(timestamp, OffsetDateTime.parse(timestamp).toInstant().toEpochMilli(), Timestamps.parseMillis(timestamp));
+	}
+}